@@ -0,0 +1,99 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import building.Building;
+import trace.CsvPassengerSource;
+
+/**
+ * The Class BuildingTickBench. Times one simulated tick -
+ * checkPassengerQueue followed by updateElevator - of a building fed by a
+ * generated trace, for a range of building sizes. Logging is off, as it is
+ * in a run until the gui enables it. Each iteration starts from an empty
+ * building, and the trace is long enough that it is still running when the
+ * iteration ends.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildingTickBench {
+
+	/** The number of groups in the trace. */
+	private static final int NUM_GROUPS = 500000;
+
+	/** The number of floors. */
+	@Param({"6", "20", "50"})
+	public int numFloors;
+
+	/** The number of elevators - the trace gets busier with more of them. */
+	@Param({"1", "16"})
+	public int numElevators;
+
+	/**
+	 * The number of threads that update the elevators - run with
+	 * -p updateThreads=1,4 on a machine with the cores to compare the two
+	 * phase update with the sequential one.
+	 */
+	@Param({"1"})
+	public int updateThreads;
+
+	/** The trace. */
+	private String trace;
+
+	/** The log file. */
+	private String logfile;
+
+	/** The building. */
+	private Building building;
+
+	/** The current tick. */
+	private int time;
+
+	@Setup(Level.Trial)
+	public void setUpTrial() throws IOException {
+		trace = Traces.generate(NUM_GROUPS, numFloors, 8 * numFloors / numElevators, 42);
+		logfile = Traces.logFile();
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		int[] cfg = Traces.elevatorConfig();
+		building = new Building(numFloors, numElevators, logfile);
+		building.configElevators(cfg[0], cfg[1], cfg[2], cfg[3]);
+		building.setUpdateThreads(updateThreads);
+		building.setPassengerSource(new CsvPassengerSource(trace));
+		time = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		building.setPassengerSource(null);
+		building.closeLogs(time);
+	}
+
+	@Benchmark
+	public int tick() {
+		time++;
+		building.checkPassengerQueue(time);
+		building.updateElevator(time);
+		return time;
+	}
+}
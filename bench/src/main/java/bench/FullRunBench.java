@@ -0,0 +1,139 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The Class FullRunBench. Runs whole simulations, from reading the config
+ * to writing PassData, headless and without logging. The score is runs per
+ * second; the ticks counter gives the simulated ticks per second.
+ *
+ * The trace is FullElevatorTest.csv with the three configurations the full
+ * tests use, or a generated trace of 100000 groups in a 20 floor building.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FullRunBench {
+
+	/** The maximum number of ticks of a run. */
+	private static final int MAX_TICKS = 100000000;
+
+	/** The simulation to run. */
+	@Param({"FullElevatorTest-1", "FullElevatorTest-2", "FullElevatorTest-3", "Generated-100000"})
+	public String run;
+
+	/** Whether idle ticks are skipped. */
+	@Param({"false", "true"})
+	public boolean timeSkip;
+
+	/** The dispatch policy - run with -p dispatch=DEFAULT,NEAREST to compare them. */
+	@Param({"DEFAULT"})
+	public String dispatch;
+
+	/** The configuration file. */
+	private String simConfig;
+
+	/** The log file. */
+	private String logfile;
+
+	/**
+	 * The Class Ticks. Counts the simulated ticks, reported per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Ticks {
+
+		/** The ticks. */
+		public long ticks;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			ticks = 0;
+		}
+	}
+
+	/** The controller's constructor and the methods a run calls. */
+	private MethodHandle newController;
+	private MethodHandle runSim;
+	private MethodHandle getStepCnt;
+	private MethodHandle closeLogs;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, ReflectiveOperationException {
+		String skip = "timeSkip,"+timeSkip;
+		String policy = "dispatch,"+dispatch;
+		if (run.startsWith("FullElevatorTest-")) {
+			String cfg = run.substring(run.indexOf('-') + 1);
+			String base = Traces.projectFile("ElevatorSimConfig"+cfg+".csv");
+			simConfig = copyConfig(base, Traces.projectFile("FullElevatorTest.csv"), skip, policy);
+		} else {
+			int groups = Integer.parseInt(run.substring(run.indexOf('-') + 1));
+			simConfig = Traces.config(20, 1, Traces.generate(groups, 20, 160, 42), skip, policy);
+		}
+		logfile = Traces.logFile();
+		// the controller is in the default package, which a benchmark cannot import
+		Class<?> controller = Class.forName("ElevatorSimController");
+		MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		newController = lookup.findConstructor(controller, MethodType.methodType(void.class, Class.forName("ElevatorSimulation"),
+				String.class, String.class, String.class));
+		runSim = lookup.findVirtual(controller, "runSim", MethodType.methodType(void.class, int.class));
+		getStepCnt = lookup.findVirtual(controller, "getStepCnt", MethodType.methodType(int.class));
+		closeLogs = lookup.findVirtual(controller, "disableLogging", MethodType.methodType(void.class));
+	}
+
+	/**
+	 * Copy config. Copies a configuration file, pointing it at the given
+	 * passenger file and adding extra lines.
+	 *
+	 * @param config the configuration file
+	 * @param passCSV the passenger file
+	 * @param extra the extra lines
+	 * @return the path of the copy
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static String copyConfig(String config, String passCSV, String... extra) throws IOException {
+		File f = File.createTempFile("bench-config-", ".csv");
+		f.deleteOnExit();
+		StringBuilder sb = new StringBuilder();
+		for (String line : Files.readAllLines(Paths.get(config))) {
+			sb.append(line.startsWith("passCSV") ? "passCSV,"+passCSV : line).append('\n');
+		}
+		for (String line : extra) sb.append(line).append('\n');
+		Files.write(f.toPath(), sb.toString().getBytes());
+		return f.getPath();
+	}
+
+	@Benchmark
+	public int fullRun(Ticks ticks) throws Throwable {
+		Object c = newController.invoke(null, simConfig, (String) null, logfile);
+		runSim.invoke(c, MAX_TICKS);
+		int stepCnt = (int) getStepCnt.invoke(c);
+		closeLogs.invoke(c);
+		ticks.ticks += stepCnt;
+		return stepCnt;
+	}
+}
@@ -0,0 +1,68 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import genericqueue.GenericQueue;
+
+/**
+ * The Class GenericQueueBench. Times add, poll and peek on a GenericQueue
+ * that is kept half full, backed by a linked list or by a ring buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenericQueueBench {
+
+	/** Whether the queue is backed by a ring buffer. */
+	@Param({"false", "true"})
+	public boolean ringBuffer;
+
+	/** The maximum size of the queue. */
+	@Param({"10", "1024"})
+	public int queueSize;
+
+	/** The queue. */
+	private GenericQueue<Integer> queue;
+
+	/** The element that is added. */
+	private final Integer element = 42;
+
+	@Setup
+	public void setUp() {
+		queue = new GenericQueue<Integer>(queueSize, ringBuffer);
+		for (int i = 0; i < queueSize / 2; i++) {
+			queue.add(i);
+		}
+	}
+
+	@Benchmark
+	public Integer addPoll() {
+		queue.add(element);
+		return queue.poll();
+	}
+
+	@Benchmark
+	public Integer peek() {
+		return queue.peek();
+	}
+
+	@Benchmark
+	public int size() {
+		return queue.size();
+	}
+}
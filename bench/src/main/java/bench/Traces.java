@@ -0,0 +1,119 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import traffic.TrafficGenerator;
+
+/**
+ * The Class Traces. Finds the project's passenger files, and generates large
+ * passenger traces and configurations for the benchmarks. Generated
+ * files are temporary and deleted when the JVM exits.
+ *
+ * The project files are looked up under the directory in the elevator.root
+ * system property - the current directory by default, so the benchmarks
+ * should be run from the project root.
+ */
+public class Traces {
+
+	/** The capacity, ticks per floor, door ticks and passengers per tick of the generated configurations. */
+	private static final int CAPACITY = 15;
+	private static final int FLOOR_TICKS = 5;
+	private static final int DOOR_TICKS = 2;
+	private static final int PASS_PER_TICK = 3;
+
+	/**
+	 * Gets a file of the project.
+	 *
+	 * @param name the file name, relative to the project root
+	 * @return the path of the file
+	 */
+	public static String projectFile(String name) {
+		return new File(System.getProperty("elevator.root", "."), name).getPath();
+	}
+
+	/**
+	 * Generate a passenger trace with the traffic generator. Groups of 1 to 4
+	 * passengers call from random floors to other random floors, as a Poisson
+	 * process meanGap ticks apart on average; half of them are polite and they
+	 * wait 300 to 1000 ticks before giving up.
+	 *
+	 * @param numGroups the number of groups
+	 * @param numFloors the number of floors
+	 * @param meanGap the average number of ticks between groups
+	 * @param seed the seed
+	 * @return the path of the passenger csv
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static String generate(int numGroups, int numFloors, int meanGap, long seed) throws IOException {
+		File f = File.createTempFile("bench-"+numGroups+"-"+numFloors+"-", ".csv");
+		f.deleteOnExit();
+		traffic(TrafficGenerator.POISSON, numGroups, numFloors, meanGap, seed).writeCsv(f.getPath());
+		return f.getPath();
+	}
+
+	/**
+	 * Gets a traffic generator with the group sizes, polite share and waits
+	 * of the generated traces.
+	 *
+	 * @param profile the traffic profile
+	 * @param numGroups the number of groups
+	 * @param numFloors the number of floors
+	 * @param meanGap the average number of ticks between groups
+	 * @param seed the seed
+	 * @return the traffic generator
+	 */
+	public static TrafficGenerator traffic(int profile, long numGroups, int numFloors, double meanGap, long seed) {
+		TrafficGenerator gen = new TrafficGenerator(profile, numFloors, numGroups, meanGap, seed);
+		gen.setGroupSizes(1, 1, 1, 1);
+		gen.setPoliteShare(0.5);
+		gen.setWaitRange(300, 1000);
+		return gen;
+	}
+
+	/**
+	 * Write a simulation configuration file.
+	 *
+	 * @param numFloors the number of floors
+	 * @param numElevators the number of elevators
+	 * @param passCSV the passenger file
+	 * @param extra extra config lines, such as timeSkip,TRUE
+	 * @return the path of the configuration file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static String config(int numFloors, int numElevators, String passCSV, String... extra) throws IOException {
+		File f = File.createTempFile("bench-config-", ".csv");
+		f.deleteOnExit();
+		try (BufferedWriter out = Files.newBufferedWriter(f.toPath())) {
+			out.write("numFloors,"+numFloors+"\nnumElevators,"+numElevators+"\npassCSV,"+passCSV+"\ncapacity,"+CAPACITY+
+			          "\nfloorTicks,"+FLOOR_TICKS+"\ndoorTicks,"+DOOR_TICKS+"\npassPerTick,"+PASS_PER_TICK+"\n");
+			for (String line : extra) out.write(line+"\n");
+		}
+		return f.getPath();
+	}
+
+	/**
+	 * Gets a temporary log file name. The log and PassData files written to it
+	 * are deleted when the JVM exits.
+	 *
+	 * @return the log file name
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static String logFile() throws IOException {
+		File f = File.createTempFile("bench-", ".log");
+		f.deleteOnExit();
+		new File(f.getPath().replaceAll(".log", "PassData.csv")).deleteOnExit();
+		return f.getPath();
+	}
+
+	/**
+	 * Gets the elevator settings of the generated configurations.
+	 *
+	 * @return capacity, ticks per floor, door ticks and passengers per tick
+	 */
+	public static int[] elevatorConfig() {
+		return new int[] {CAPACITY, FLOOR_TICKS, DOOR_TICKS, PASS_PER_TICK};
+	}
+}
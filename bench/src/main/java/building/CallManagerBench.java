@@ -0,0 +1,114 @@
+package building;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The Class CallManagerBench. Times each CallManager query on a building
+ * with calls waiting on some of its floors - the dispatch decisions built on
+ * them are timed by DispatchPolicyBench. It lives in package building
+ * because the queries are not public. Each call asks about the next floor and
+ * direction in turn, so the answers vary as they would in a run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallManagerBench {
+
+	/** The number of floors. */
+	@Param({"6", "50", "200"})
+	public int numFloors;
+
+	/** The fraction of floors, in percent, with a call waiting in each direction. */
+	@Param({"10", "50"})
+	public int load;
+
+	/** The call manager. */
+	private CallManager callMgr;
+
+	/** The floor the next query asks about. */
+	private int floor;
+
+	/** The direction the next query asks about. */
+	private int dir = 1;
+
+	@Setup
+	public void setUp() {
+		Floor[] floors = new Floor[numFloors];
+		for (int i = 0; i < numFloors; i++) {
+			floors[i] = new Floor(10);
+		}
+		callMgr = new CallManager(floors, numFloors);
+		Random rnd = new Random(42);
+		int id = 0;
+		for (int i = 0; i < numFloors; i++) {
+			if (i < numFloors - 1 && rnd.nextInt(100) < load) {
+				floors[i].add(1, new Passengers(id++, 0, 1, i+1, numFloors, true, 1000));
+			}
+			if (i > 0 && rnd.nextInt(100) < load) {
+				floors[i].add(-1, new Passengers(id++, 0, 1, i+1, 1, true, 1000));
+			}
+		}
+	}
+
+	/**
+	 * Next floor. Moves the query to the next floor, turning at the ends.
+	 *
+	 * @return the floor to ask about
+	 */
+	private int nextFloor() {
+		floor += dir;
+		if (floor == numFloors - 1 || floor == 0) dir = -dir;
+		return floor;
+	}
+
+	@Benchmark
+	public boolean callPending() {
+		return callMgr.callPending();
+	}
+
+	@Benchmark
+	public boolean callsPendingOnFloor() {
+		return callMgr.callsPendingOnFloor(nextFloor(), dir);
+	}
+
+	@Benchmark
+	public boolean callsPendingInDir() {
+		return callMgr.callsPendingInDir(nextFloor(), dir);
+	}
+
+	@Benchmark
+	public int numCallPending() {
+		return callMgr.numCallPending();
+	}
+
+	@Benchmark
+	public int numCallPendingOnFloor() {
+		return callMgr.numCallPending(nextFloor());
+	}
+
+	@Benchmark
+	public Passengers getPassenger() {
+		return callMgr.getPassenger(nextFloor(), dir);
+	}
+
+	@Benchmark
+	public int nearestCall() {
+		return callMgr.nearestCall(nextFloor());
+	}
+}
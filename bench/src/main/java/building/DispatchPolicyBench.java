@@ -0,0 +1,104 @@
+package building;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The Class DispatchPolicyBench. Times each decision of each dispatch policy
+ * on a building with calls waiting on some of its floors, the same way
+ * CallManagerBench times the queries the decisions are built on. Run it with
+ * -prof gc to check that no decision allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchPolicyBench {
+
+	/** The dispatch policy. */
+	@Param({DispatchPolicy.DEFAULT, DispatchPolicy.NEAREST})
+	public String policy;
+
+	/** The number of floors. */
+	@Param({"6", "50", "200"})
+	public int numFloors;
+
+	/** The fraction of floors, in percent, with a call waiting in each direction. */
+	@Param({"10", "50"})
+	public int load;
+
+	/** The call manager. */
+	private CallManager callMgr;
+
+	/** The dispatch policy. */
+	private DispatchPolicy dispatch;
+
+	/** The floor the next decision is made on. */
+	private int floor;
+
+	/** The direction the elevator making the next decision is travelling in. */
+	private int dir = 1;
+
+	@Setup
+	public void setUp() {
+		dispatch = DispatchPolicy.forName(policy);
+		Floor[] floors = new Floor[numFloors];
+		for (int i = 0; i < numFloors; i++) {
+			floors[i] = new Floor(10);
+		}
+		callMgr = new CallManager(floors, numFloors);
+		Random rnd = new Random(42);
+		int id = 0;
+		for (int i = 0; i < numFloors; i++) {
+			if (i < numFloors - 1 && rnd.nextInt(100) < load) {
+				floors[i].add(1, new Passengers(id++, 0, 1, i+1, numFloors, true, 1000));
+			}
+			if (i > 0 && rnd.nextInt(100) < load) {
+				floors[i].add(-1, new Passengers(id++, 0, 1, i+1, 1, true, 1000));
+			}
+		}
+		if (!callMgr.callPending()) {
+			floors[0].add(1, new Passengers(id++, 0, 1, 1, numFloors, true, 1000));
+		}
+	}
+
+	/**
+	 * Next floor. Moves the decision to the next floor, turning at the ends.
+	 *
+	 * @return the floor to decide on
+	 */
+	private int nextFloor() {
+		floor += dir;
+		if (floor == numFloors - 1 || floor == 0) dir = -dir;
+		return floor;
+	}
+
+	@Benchmark
+	public Passengers chooseTarget() {
+		return dispatch.chooseTarget(callMgr, nextFloor());
+	}
+
+	@Benchmark
+	public boolean keepDirection() {
+		return dispatch.keepDirection(callMgr, nextFloor(), dir);
+	}
+
+	@Benchmark
+	public boolean stopAtFloor() {
+		return dispatch.stopAtFloor(callMgr, nextFloor(), dir);
+	}
+}
@@ -0,0 +1,98 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import building.ArrivalCalendar;
+import building.Building;
+import traffic.TrafficGenerator;
+
+class ArrivalCalendarTest extends SimTestSupport {
+
+	private Building simulate(String name, String passCSV, String extra) throws IOException {
+		return run(name, config(name, building(16, 2, 8, 4, 2, 3)+"timeSkip,TRUE\n"+extra), passCSV).getBuilding();
+	}
+
+	@Test
+	void testReleasesByTickInAnyOrder() {
+		ArrivalCalendar cal = new ArrivalCalendar(2);
+		int[] times = {40, 7, 3, 7, 1000, 3, 12};
+		for (int i = 0; i < times.length; i++) {
+			cal.add(i, times[i], 1, 0, 1, false, 100);
+		}
+		assertEquals(3, cal.nextDue());
+		int[] expect = {2, 5, 1, 3, 6, 0, 4};
+		for (int id : expect) {
+			int t = cal.nextDue();
+			assertEquals(id, cal.pollDue(t).getId());
+		}
+		assertTrue(cal.isEmpty());
+		assertEquals(ArrivalCalendar.NONE, cal.nextDue());
+	}
+
+	@Test
+	void testLateRowIsDueAtNextTick() {
+		ArrivalCalendar cal = new ArrivalCalendar(16);
+		cal.add(0, 10, 1, 0, 1, false, 100);
+		assertNull(cal.pollDue(5));
+		cal.add(1, 4, 1, 0, 1, false, 100);
+		assertEquals(6, cal.nextDue());
+		assertNull(cal.pollDue(5));
+		assertEquals(1, cal.pollDue(6).getId());
+		assertEquals(0, cal.pollDue(10).getId());
+	}
+
+	@Test
+	void testUnsortedTraceMatchesSorted() throws IOException {
+		TrafficGenerator gen = new TrafficGenerator(TrafficGenerator.POISSON, 16, 1500, 8, 5);
+		gen.setWaitRange(30, 300);
+		Path sorted = dir.resolve("Sorted.csv");
+		gen.writeCsv(sorted.toString());
+		List<String> lines = Files.readAllLines(sorted);
+		List<String> rows = new ArrayList<>(lines.subList(1, lines.size()));
+		// shuffle the rows, but keep the ones at the same tick in order, as
+		// they queue in the order they are read
+		Map<String, Iterator<String>> byTime = new HashMap<>();
+		for (String row : rows) {
+			String t = row.substring(0, row.indexOf(','));
+			byTime.computeIfAbsent(t, k -> rows.stream().filter(r -> r.startsWith(k+",")).iterator());
+		}
+		List<String> shuffled = new ArrayList<>(rows);
+		Collections.shuffle(shuffled, new Random(23));
+		for (int i = 0; i < shuffled.size(); i++) {
+			String row = shuffled.get(i);
+			shuffled.set(i, byTime.get(row.substring(0, row.indexOf(','))).next());
+		}
+		shuffled.add(0, lines.get(0));
+		Path unsorted = dir.resolve("Unsorted.csv");
+		Files.write(unsorted, shuffled);
+
+		Building a = simulate("Sorted", sorted.toString(), "");
+		Building b = simulate("Unsorted", unsorted.toString(), "readAhead,0\n");
+		assertEquals(1500, a.getGroupsArrived() + a.getGroupsGaveUp());
+		assertEquals(a.getGroupsArrived(), b.getGroupsArrived());
+		assertEquals(a.getGroupsGaveUp(), b.getGroupsGaveUp());
+		assertEquals(a.getBoardWaitHistogram().getSummary(), b.getBoardWaitHistogram().getSummary());
+	}
+
+	@Test
+	void testLateRowDoesNotStallLaterRows() throws IOException {
+		Path csv = dir.resolve("Late.csv");
+		Files.write(csv, ("Time,NumPass,FromFloor,ToFloor,Polite,Wait\n10,1,1,5,TRUE,1000\n30,1,3,1,TRUE,1000\n"+
+		                  "20,2,2,8,TRUE,1000\n60,1,8,2,TRUE,1000\n").getBytes());
+		Building b = simulate("Late", csv.toString(), "readAhead,1\n");
+		assertEquals(4, b.getGroupsArrived());
+	}
+}
@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import eventlog.AsyncEventSink;
+import eventlog.EventSink;
+
+class AsyncEventSinkTest extends SimTestSupport {
+
+	/** A sink that records what it is handed, and holds up the first event until the gate opens. */
+	private static class SlowSink implements EventSink {
+		final List<String> events = new ArrayList<>();
+		final CountDownLatch gate = new CountDownLatch(1);
+
+		private void add(String event) {
+			try {
+				gate.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			events.add(event);
+		}
+
+		public void config(int capacity, int ticksPerFloor, int ticksDoorOpenClose, int passPerTick, int state, int floor) { add("config"); }
+		public void stateChanged(int time, int prevState, int currState, int prevFloor, int currFloor) { add("state "+time); }
+		public void called(int time, int numPass, int floor, int dir, int id) { add("called "+time); }
+		public void board(int time, int numPass, int floor, int dir, int id) { add("board "+time); }
+		public void skip(int time, int numPass, int floor, int dir, int id) { add("skip "+time); }
+		public void gaveUp(int time, int numPass, int floor, int dir, int id) { add("gaveUp "+time); }
+		public void arrived(int time, int numPass, int floor, int id) { add("arrived "+time); }
+		public void endSimulation(int time) { add("end "+time); }
+		public void flush() { add("flush"); }
+		public void close() { add("close"); }
+	}
+
+	private String settings(String extra) {
+		return building(10, 2, 8, 4, 2, 3)+"traffic,POISSON,1500,10,7\n"+extra;
+	}
+
+	@Test
+	void testBlockWritesTheSameLog() throws IOException {
+		run("Sync", config("Sync", settings("")), null);
+		run("Async", config("Async", settings("asyncLog,TRUE\nasyncLogSize,4\nasyncLogPolicy,BLOCK\n")), null);
+		byte[] log = Files.readAllBytes(dir.resolve("Sync.log"));
+		assertTrue(log.length > 100000);
+		assertEquals(new String(log), new String(Files.readAllBytes(dir.resolve("Async.log"))));
+	}
+
+	@Test
+	void testDropCountsAndKeepsWhatMustBeKept() throws InterruptedException {
+		SlowSink slow = new SlowSink();
+		AsyncEventSink sink = new AsyncEventSink(slow, 4, AsyncEventSink.DROP);
+		// the writer holds the first record, so the ring takes 4 and drops the rest -
+		// except the end of the simulation, which waits for room
+		for (int time = 1; time <= 20; time++) {
+			sink.stateChanged(time, 0, 1, 1, 2);
+		}
+		assertEquals(16, sink.getDropped());
+		Thread opener = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				return;
+			}
+			slow.gate.countDown();
+		});
+		opener.start();
+		sink.endSimulation(21);
+		sink.flush();
+		opener.join();
+		assertEquals(List.of("state 1", "state 2", "state 3", "state 4", "end 21", "flush"), slow.events);
+		assertEquals(16, sink.getDropped());
+
+		// once drained, the ring has room again
+		sink.config(8, 4, 2, 3, 0, 1);
+		sink.arrived(22, 1, 3, 7);
+		sink.close();
+		assertEquals(List.of("config", "arrived 22", "close"), slow.events.subList(6, slow.events.size()));
+		assertEquals(16, sink.getDropped());
+	}
+
+	@Test
+	void testDropLogIsPartOfTheFullLog() throws IOException {
+		run("Full", config("Full", settings("")), null);
+		run("Drop", config("Drop", settings("asyncLog,TRUE\nasyncLogSize,2\nasyncLogPolicy,DROP\n")), null);
+		List<String> full = log("Full"), drop = log("Drop");
+		// the closing flush hands on every record kept, in order, ending with the end of the simulation
+		int i = 0;
+		for (String line : drop) {
+			while (i < full.size() && !full.get(i).equals(line)) i++;
+			assertTrue(i < full.size(), "not in the full log, or out of order: "+line);
+			i++;
+		}
+		assertEquals(full.get(0), drop.get(0));
+		assertEquals(full.get(full.size() - 1), drop.get(drop.size() - 1));
+	}
+}
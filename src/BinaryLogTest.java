@@ -0,0 +1,36 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+
+import eventlog.BinaryEventSink;
+import eventlog.BinaryLogRenderer;
+import eventlog.FileEventSink;
+import traffic.TrafficGenerator;
+
+class BinaryLogTest extends SimTestSupport {
+
+	@Test
+	void testRenderedLogMatchesTextLog() throws IOException {
+		// impolite groups and short waits, so skips and give ups are logged too
+		String csv = file("Trace.csv");
+		TrafficGenerator gen = new TrafficGenerator(TrafficGenerator.LUNCH, 10, 2000, 12, 17);
+		gen.setPoliteShare(0.5);
+		gen.setWaitRange(20, 300);
+		gen.writeCsv(csv);
+		String settings = building(10, 2, 6, 4, 2, 3);
+		ElevatorSimController text = run("Text", config("Text", settings), csv);
+		ElevatorSimController binary = run("Binary", config("Binary", settings+"logFormat,BINARY\n"), csv);
+		assertTrue(text.getBuilding().getGroupsGaveUp() > 0);
+		assertEquals(text.getStepCnt(), binary.getStepCnt());
+
+		FileEventSink sink = new FileEventSink(file("Rendered.log"));
+		long events = BinaryLogRenderer.replay(file("Binary"+BinaryEventSink.EXTENSION), sink);
+		sink.close();
+		assertEquals(log("Text").size(), events);
+		assertEquals(new String(Files.readAllBytes(dir.resolve("Text.log"))), new String(Files.readAllBytes(dir.resolve("Rendered.log"))));
+	}
+}
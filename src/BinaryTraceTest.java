@@ -0,0 +1,41 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import trace.BinaryTrace;
+import traffic.TrafficGenerator;
+
+class BinaryTraceTest extends SimTestSupport {
+
+	@Test
+	void testTraceRunsLikeCsv() throws IOException {
+		// impolite groups, short waits and the default wait, so every field is encoded
+		String csv = file("Trace.csv");
+		TrafficGenerator gen = new TrafficGenerator(TrafficGenerator.LUNCH, 12, 3000, 10, 21);
+		gen.setPoliteShare(0.5);
+		gen.setWaitRange(20, 1000);
+		gen.writeCsv(csv);
+		String trace = file("Trace"+BinaryTrace.EXTENSION);
+		assertEquals(3000, BinaryTrace.convert(csv, trace, 12));
+
+		String settings = building(12, 3, 8, 4, 2, 3)+"stateHash,TRUE\n";
+		ElevatorSimController fromCsv = run("Csv", config("Csv", settings), csv);
+		assertTrue(fromCsv.getBuilding().getGroupsGaveUp() > 0);
+		assertSameRun("Csv", fromCsv, "Binary", run("Binary", config("Binary", settings), trace));
+	}
+
+	@Test
+	void testTraceForOtherFloorsIsRejected() throws IOException {
+		String csv = file("Trace.csv");
+		new TrafficGenerator(TrafficGenerator.POISSON, 10, 100, 10, 3).writeCsv(csv);
+		String trace = file("Trace"+BinaryTrace.EXTENSION);
+		BinaryTrace.convert(csv, trace, 10);
+		String config = config("Tall", building(12, 1, 8, 4, 2, 3));
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> controller("Tall", config, trace));
+		assertTrue(e.getMessage().contains("written for 10 floors"), e.getMessage());
+	}
+}
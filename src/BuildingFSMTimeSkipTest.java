@@ -0,0 +1,205 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import building.*;
+import myfileio.MyFileIO;
+
+@TestMethodOrder(OrderAnnotation.class)
+class BuildingFSMTimeSkipTest {
+	private ElevatorSimController c;
+	private Building b;
+	private MyFileIO fio = new MyFileIO();
+	private static boolean DEBUG = false;
+	private static String os = null;
+	private static String javaHome = null;
+	private ElevatorLogCompare cmpLog = new ElevatorLogCompare();
+
+	private void updateSimConfigCSV(String fname) {
+		File fh = fio.getFileHandle("ElevatorSimConfig.csv");
+		String line = "";
+		ArrayList<String> fileData = new ArrayList<>();
+		try {
+			BufferedReader br = fio.openBufferedReader(fh);
+			while ( (line = br.readLine())!=null) {
+				if (line.matches("passCSV.*")) 
+					fileData.add("passCSV,"+fname);
+				else
+					fileData.add(line);
+			}
+			fio.closeFile(br);
+			BufferedWriter bw = fio.openBufferedWriter(fh);
+			for (String l : fileData)
+				bw.write(l+"\n");
+			fio.closeFile(bw);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	private void copyTestFile(String fname) {
+		File ifh = fio.getFileHandle("test_data/"+fname);
+		File ofh = fio.getFileHandle(fname);
+		Path src = Paths.get(ifh.getPath());
+		Path dest = Paths.get(ofh.getPath());
+		try {
+			Files.copy(src, dest,StandardCopyOption.REPLACE_EXISTING);
+		} 
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+		updateSimConfigCSV(fname);
+	}
+	
+	private void deleteTestCSV(String fname) {
+		MyFileIO fio = new MyFileIO();
+		File ifh = fio.getFileHandle(fname);
+		ifh.delete();
+		ifh = fio.getFileHandle(fname.replaceAll(".csv", "PassData.csv"));
+		ifh.delete();
+	}
+
+	
+    private static String getOperatingSystem() {
+    	os = System.getProperty("os.name");
+    	return os;
+    }
+
+    private static void getJavaHome() {
+    	File fh = null;
+    	javaHome = System.getProperty("java.home").replaceAll("jre","bin");
+		if (DEBUG) System.out.println("JavaHome: "+javaHome);
+		fh = new File(javaHome);
+		if (!fh.exists()) 
+			javaHome = null;
+    }
+
+    private void moveLogCmpFiles(String base) {
+    	File ifh = new File(base+".log");
+    	File ofh = new File("JUnitTestLogs/"+base+".log");
+		Path src = Paths.get(ifh.getPath());
+		Path dest = Paths.get(ofh.getPath());
+		try {
+			Files.move(src,dest,StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+    	ifh = new File(base+".cmp");
+    	ofh = new File("JUnitTestLogs/"+base+".cmp");
+		src = Paths.get(ifh.getPath());
+		dest = Paths.get(ofh.getPath());
+		try {
+			Files.move(src,dest,StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+    }
+    
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+		System.out.println("Running on: "+getOperatingSystem());
+		getJavaHome();
+		File ifh = new File("ElevatorSimConfig.csv");
+		File ofh = new File("ElevatorSimConfig.save");
+		Path src = Paths.get(ifh.getPath());
+		Path dest = Paths.get(ofh.getPath());
+		Files.copy(src, dest,StandardCopyOption.REPLACE_EXISTING);
+		ifh = new File("JUnitTestLogs");
+		if (!ifh.exists()) {
+			ifh.mkdir();
+			System.out.println("Created file: JUnitTestLogs");
+		}
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+		File ifh = new File("ElevatorSimConfig.save");
+		File ofh = new File("ElevatorSimConfig.csv");
+		Path src = Paths.get(ifh.getPath());
+		Path dest = Paths.get(ofh.getPath());
+		Files.copy(src, dest,StandardCopyOption.REPLACE_EXISTING);
+		ifh.delete();
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	// runs the test with time skipping enabled - the log must be the same as
+	// stepping through every tick
+	private void runTimeSkipTest (String test, int ticks) {
+		System.out.println("\n\nExecuting Test: "+test+".csv");
+		copyTestFile(test+".csv");
+		c = new ElevatorSimController(null);
+		c.setTimeSkip(true);
+		b = c.getBuilding();
+		b.enableLogging();
+		while (c.getStepCnt() < ticks) c.stepSim(ticks);
+		b.closeLogs(ticks);
+		String cmd = "java -jar ./cmpElevator.jar "+test+".log";
+	    runFSMTest(test,cmd);
+	}
+
+	private void runFSMTest (String test,String cmd) {
+		deleteTestCSV(test+".csv");
+		assertTrue(cmpLog.executeCompare(cmd.split("\\s+")));
+		moveLogCmpFiles(test);
+	}
+	
+	@Test
+	@Order(1)
+	//@Disabled
+	void testBasicClDrOpDr5() {
+		runTimeSkipTest("basicClDrOpDr5", 92);
+	}
+
+	@Test
+	@Order(2)
+	//@Disabled
+	void testMv2FCallPri4() {
+		runTimeSkipTest("Mv2FCallPri4", 152);
+	}
+
+	@Test
+	@Order(3)
+	//@Disabled
+	void testPolTest3() {
+		runTimeSkipTest("PolTest3", 106);
+	}
+
+	@Test
+	@Order(4)
+	//@Disabled
+	void testGiveUpTest2() {
+		runTimeSkipTest("GiveUpTest2", 107);
+	}
+
+	@Test
+	@Order(5)
+	//@Disabled
+	void testCapTest6() {
+		runTimeSkipTest("CapTest6", 178);
+	}
+}
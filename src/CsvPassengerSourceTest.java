@@ -0,0 +1,59 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+
+import trace.CsvPassengerSource;
+
+class CsvPassengerSourceTest extends SimTestSupport {
+
+	private CsvPassengerSource source(String rows) throws IOException {
+		Files.write(dir.resolve("Pass.csv"), ("Time,NumPass,FromFloor,ToFloor,Polite,Wait\n"+rows).getBytes());
+		return new CsvPassengerSource(file("Pass.csv"));
+	}
+
+	@Test
+	void testEmptyTrailingFieldsKeepDefaults() throws IOException {
+		CsvPassengerSource src = source("10,1,3,5,,\n11,2,4,6,FALSE,\n12,1,2,3\n13,1,2,3,,,,\n14,1,2,3,,500\n15,1,2,3,true,250,,\n");
+		assertArrayEquals(new int[] {10, 1, 3, 5, 1, 1000}, src.nextRow());
+		assertArrayEquals(new int[] {11, 2, 4, 6, 0, 1000}, src.nextRow());
+		assertArrayEquals(new int[] {12, 1, 2, 3, 1, 1000}, src.nextRow());
+		assertArrayEquals(new int[] {13, 1, 2, 3, 1, 1000}, src.nextRow());
+		// an empty field with more after it is kept by split, and is not TRUE
+		assertArrayEquals(new int[] {14, 1, 2, 3, 0, 500}, src.nextRow());
+		assertArrayEquals(new int[] {15, 1, 2, 3, 1, 250}, src.nextRow());
+		assertNull(src.nextRow());
+	}
+
+	@Test
+	void testExtraColumnsCrlfAndBlankLines() throws IOException {
+		CsvPassengerSource src = source("\r\n10,1,3,5,TRUE,200,x,y\r\n\n\r\n20,2,5,1,false,300,\r\n30,1,1,9,TRUE,400");
+		assertArrayEquals(new int[] {10, 1, 3, 5, 1, 200}, src.nextRow());
+		assertEquals(3, src.getLineNum());
+		assertArrayEquals(new int[] {20, 2, 5, 1, 0, 300}, src.nextRow());
+		assertEquals(6, src.getLineNum());
+		assertArrayEquals(new int[] {30, 1, 1, 9, 1, 400}, src.nextRow());
+		assertNull(src.nextRow());
+	}
+
+	@Test
+	void testMalformedRowNamesFileAndLine() throws IOException {
+		CsvPassengerSource src = source("10,1,3,5,TRUE,100\n\n20,1,x,5,TRUE,100\n");
+		src.nextRow();
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, src::nextRow);
+		assertEquals("Bad passenger data in "+file("Pass.csv")+" line 4: field 3 is not a number", e.getMessage());
+
+		// an empty field is only missing when nothing follows it
+		src = source("10,,3,5,TRUE,100\n");
+		e = assertThrows(IllegalArgumentException.class, src::nextRow);
+		assertEquals("Bad passenger data in "+file("Pass.csv")+" line 2: field 2 is not a number", e.getMessage());
+		src = source("10,1,3,5,TRUE,,x\n");
+		e = assertThrows(IllegalArgumentException.class, src::nextRow);
+		assertEquals("Bad passenger data in "+file("Pass.csv")+" line 2: field 6 is not a number", e.getMessage());
+	}
+}
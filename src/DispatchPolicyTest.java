@@ -0,0 +1,46 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import building.DispatchPolicy;
+import building.NearestCallPolicy;
+
+class DispatchPolicyTest extends SimTestSupport {
+
+	private String results(String name, String passCSV, String extra) throws IOException {
+		return ElevatorBatchRunner.results(run(name, config(name, building(12, 1, 10, 5, 2, 3)+"traffic,POISSON,2000,25,5\n"+extra), passCSV));
+	}
+
+	private String firstStop(String name) throws IOException {
+		for (String line : log(name)) {
+			if (line.contains("Curr State: OPENDR")) return line;
+		}
+		return null;
+	}
+
+	@Test
+	void testDefaultIsTheOriginalRules() throws IOException {
+		assertEquals(results("None", null, ""), results("Default", null, "dispatch,DEFAULT\n"));
+		assertEquals(log("None"), log("Default"));
+	}
+
+	@Test
+	void testNearestIsSelectable() throws IOException {
+		// one group going up from 3 and two going down from 11 and 12, all calling at once
+		Path csv = dir.resolve("Calls.csv");
+		Files.write(csv, ("Time,NumPass,FromFloor,To Floor,Polite,Wait,\n10,1,3,5,TRUE,1000,\n10,1,11,1,TRUE,1000,\n"+
+		                  "10,1,12,2,TRUE,1000,\n").getBytes());
+		results("Default", csv.toString(), "");
+		results("Nearest", csv.toString(), "dispatch,nearest\n");
+		assertTrue(firstStop("Default").endsWith("CurrFloor: 12"), firstStop("Default"));
+		assertTrue(firstStop("Nearest").endsWith("CurrFloor: 3"), firstStop("Nearest"));
+		assertTrue(DispatchPolicy.forName("Nearest") instanceof NearestCallPolicy);
+		assertThrows(IllegalArgumentException.class, () -> DispatchPolicy.forName("FASTEST"));
+	}
+}
@@ -0,0 +1,198 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import building.Building;
+import myfileio.MyFileIO;
+
+/**
+ * The Class ElevatorBatchRunner. Runs many simulations headless and side by
+ * side on a pool of worker threads. Each run gets its own controller and
+ * Building, and prints one summary row once it has finished. Rows are printed
+ * in the order the runs appear in the batch file.
+ *
+ * The batch file is a csv with a header line, followed by one run per line:
+ * SimConfig,PassCSV[,LogFile]. PassCSV may be empty or "-" to use the
+ * passenger file or traffic generator named in the SimConfig. When LogFile
+ * is missing, the run logs to PassCSV-SimConfig.log so that runs sharing a
+ * passenger file stay apart, or to SimConfig.log when PassCSV is empty. A
+ * run whose passenger file cannot be read fails, and gets no summary row.
+ *
+ * Usage: java ElevatorBatchRunner batchFile [threads] [maxTicks]
+ */
+public class ElevatorBatchRunner {
+
+	/**  The default maximum number of ticks for a run that never ends. */
+	private static final int MAX_TICKS = 1000000;
+
+	/** The header of the results of a run in a summary row. */
+	static final String RESULT_HEADER =
+			"Ticks,Ended,GroupsArrived,PassArrived,GroupsGaveUp,PassGaveUp,AvgWaitToBoard,AvgTravelTime,"+
+			"P50WaitToBoard,P99WaitToBoard,P50TravelTime,P99TravelTime";
+
+	/** The header of the summary rows. */
+	private static final String SUMMARY_HEADER = "SimConfig,PassCSV,"+RESULT_HEADER;
+
+	/** The fio. */
+	private MyFileIO fio = new MyFileIO();
+
+	/** The runs - each entry holds the simConfig, passCSV (or null) and logfile (or null). */
+	private ArrayList<String[]> runs = new ArrayList<String[]>();
+
+	/** The max ticks. */
+	private final int maxTicks;
+
+	/**
+	 * Instantiates a new elevator batch runner.
+	 *
+	 * @param maxTicks the maximum number of ticks to simulate per run
+	 */
+	public ElevatorBatchRunner(int maxTicks) {
+		this.maxTicks = maxTicks;
+	}
+
+	/**
+	 * Read batch. Reads the list of runs, skipping the header line.
+	 *
+	 * @param filename the batch filename
+	 */
+	public void readBatch(String filename) {
+		boolean firstLine = true;
+		File batchFile = fio.getFileHandle(filename);
+		try (BufferedReader br = fio.openBufferedReader(batchFile)) {
+			if (br == null) return;
+			String line;
+			while ((line = br.readLine())!= null) {
+				if (firstLine) {
+					firstLine = false;
+					continue;
+				}
+				String[] values = line.split(",");
+				if (values.length < 2) continue;
+				String passCSV = values[1].trim();
+				if (passCSV.isEmpty() || passCSV.equals("-")) passCSV = null;
+				runs.add(new String[] {values[0].trim(), passCSV, (values.length > 2) ? values[2].trim() : null});
+			}
+		} catch (IOException e) {
+			System.err.println("Error in reading file: "+filename);
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Run one simulation to its end (or maxTicks) and build its summary row.
+	 *
+	 * @param run the simConfig, passCSV and logfile of the run
+	 * @return the summary row
+	 * @throws IllegalArgumentException if the passenger file cannot be read
+	 */
+	String runOne(String[] run) {
+		String logfile = run[2];
+		if (logfile == null) {
+			logfile = (run[1] == null) ? baseName(run[0]) + ".log" : baseName(run[1]) + "-" + baseName(run[0]) + ".log";
+		}
+		ElevatorSimController c = new ElevatorSimController(null, run[0], run[1], logfile);
+		String passFile = c.getPassengerFile();
+		if (passFile != null && !(new File(passFile).isFile() && new File(passFile).canRead())) {
+			finish(c);
+			throw new IllegalArgumentException("Cannot read passenger file "+passFile);
+		}
+		c.runSim(maxTicks);
+		return run[0]+","+((run[1] == null) ? "" : run[1])+","+finish(c);
+	}
+
+	/**
+	 * Finish a run that has ended or been stopped at maxTicks: writes out its
+	 * passenger data, closes its files and builds the results part of its
+	 * summary row.
+	 *
+	 * @param c the controller of the run
+	 * @return the results, in the columns of RESULT_HEADER
+	 */
+	static String finish(ElevatorSimController c) {
+		Building b = c.getBuilding();
+		if (!c.isEndSim()) {
+			b.processPassengerData();
+		}
+		b.setPassengerSource(null);
+		b.closeLogs(c.getStepCnt());
+		return results(c);
+	}
+
+	/**
+	 * Results. Builds the results part of the summary row of a finished run.
+	 *
+	 * @param c the controller of the run
+	 * @return the results, in the columns of RESULT_HEADER
+	 */
+	static String results(ElevatorSimController c) {
+		Building b = c.getBuilding();
+		return c.getStepCnt()+","+c.isEndSim()+","+b.getGroupsArrived()+","+b.getPassArrived()+","+
+		       b.getGroupsGaveUp()+","+b.getPassGaveUp()+","+String.format("%.2f", b.getAvgWaitToBoard())+","+
+		       String.format("%.2f", b.getAvgTravelTime())+","+b.getBoardWaitHistogram().getPercentile(50)+","+
+		       b.getBoardWaitHistogram().getPercentile(99)+","+b.getTotalHistogram().getPercentile(50)+","+
+		       b.getTotalHistogram().getPercentile(99);
+	}
+
+	/**
+	 * Base name. Strips the directory and the extension off a filename.
+	 *
+	 * @param filename the filename
+	 * @return the base name
+	 */
+	static String baseName(String filename) {
+		String name = new File(filename).getName();
+		int dot = name.lastIndexOf('.');
+		return (dot > 0) ? name.substring(0, dot) : name;
+	}
+
+	/**
+	 * Run all. Submits every run to a pool of worker threads and prints the
+	 * summary rows as the runs complete, in batch file order.
+	 *
+	 * @param threads the number of worker threads
+	 */
+	public void runAll(int threads) {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<String>> results = new ArrayList<Future<String>>();
+		for (String[] run : runs) {
+			results.add(pool.submit(() -> runOne(run)));
+		}
+		System.out.println(SUMMARY_HEADER);
+		for (int i = 0; i < results.size(); i++) {
+			try {
+				System.out.println(results.get(i).get());
+			} catch (ExecutionException e) {
+				String[] run = runs.get(i);
+				System.err.println("Run failed: "+run[0]+","+((run[1] == null) ? "" : run[1])+": "+e.getCause().getMessage());
+				if (!(e.getCause() instanceof IllegalArgumentException)) e.getCause().printStackTrace();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the batch file, and optionally the number of threads and max ticks per run
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: java ElevatorBatchRunner batchFile [threads] [maxTicks]");
+			return;
+		}
+		int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int maxTicks = (args.length > 2) ? Integer.parseInt(args[2]) : MAX_TICKS;
+		ElevatorBatchRunner runner = new ElevatorBatchRunner(maxTicks);
+		runner.readBatch(args[0]);
+		runner.runAll(threads);
+	}
+}
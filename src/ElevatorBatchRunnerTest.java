@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import statehash.StateHashWriter;
+import traffic.TrafficGenerator;
+
+class ElevatorBatchRunnerTest extends SimTestSupport {
+
+	/** Runs a batch file with the given runs, and gets the lines it prints. */
+	private List<String> runBatch(String lines, int threads) throws IOException {
+		Files.write(dir.resolve("Batch.csv"), ("SimConfig,PassCSV,LogFile\n"+lines).getBytes());
+		ElevatorBatchRunner runner = new ElevatorBatchRunner(Integer.MAX_VALUE);
+		runner.readBatch(file("Batch.csv"));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PrintStream stdout = System.out;
+		System.setOut(new PrintStream(out, true));
+		try {
+			runner.runAll(threads);
+		} finally {
+			System.setOut(stdout);
+		}
+		return List.of(out.toString().split("\\R"));
+	}
+
+	private byte[] stateHashes(String name) throws IOException {
+		return Files.readAllBytes(dir.resolve(name+StateHashWriter.EXTENSION));
+	}
+
+	@Test
+	void testParallelRunsAreIsolated() throws IOException {
+		String csv = file("Trace.csv");
+		TrafficGenerator gen = new TrafficGenerator(TrafficGenerator.LUNCH, 12, 3000, 8, 6);
+		gen.setWaitRange(20, 400);
+		gen.writeCsv(csv);
+		// batch runs do not log, so the state hashes show that every tick went the same
+		String config = config("Sim", building(12, 3, 8, 4, 2, 3)+"stateHash,TRUE\n");
+		String traffic = config("Gen", building(12, 3, 8, 4, 2, 3)+"stateHash,TRUE\ntraffic,POISSON,3000,8,6\n");
+		String seqRow = config+","+csv+","+ElevatorBatchRunner.results(run("Seq", config, csv));
+		String genRow = traffic+",,"+ElevatorBatchRunner.results(run("SeqGen", traffic, null));
+
+		List<String> rows = runBatch(config+","+csv+","+file("A.log")+"\n"+traffic+",-,"+file("G.log")+"\n"+
+		                             config+","+csv+","+file("B.log")+"\n", 3);
+		assertEquals(List.of(seqRow, genRow, seqRow), rows.subList(1, rows.size()));
+		byte[] hashes = stateHashes("Seq");
+		assertTrue(hashes.length > 1000);
+		assertArrayEquals(hashes, stateHashes("A"));
+		assertArrayEquals(hashes, stateHashes("B"));
+		assertArrayEquals(stateHashes("SeqGen"), stateHashes("G"));
+		assertArrayEquals(passData("Seq"), passData("A"));
+		assertArrayEquals(passData("Seq"), passData("B"));
+		assertArrayEquals(passData("SeqGen"), passData("G"));
+	}
+
+	@Test
+	void testMissingPassengerFileFails() throws IOException {
+		String config = config("Sim", building(6, 1, 8, 4, 2, 3));
+		String missing = file("Missing.csv");
+		ElevatorBatchRunner runner = new ElevatorBatchRunner(Integer.MAX_VALUE);
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> runner.runOne(new String[] {config, missing, file("Missing.log")}));
+		assertTrue(e.getMessage().contains(missing), e.getMessage());
+		assertEquals(List.of("SimConfig,PassCSV,"+ElevatorBatchRunner.RESULT_HEADER),
+				runBatch(config+","+missing+","+file("Missing.log")+"\n", 2));
+	}
+}
@@ -1,12 +1,32 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 import building.Building;
+import building.DispatchPolicy;
 import building.Floor;
-import building.Passengers;
+import eventlog.AsyncEventSink;
+import eventlog.BinaryEventSink;
+import eventlog.EventSink;
+import eventlog.FileEventSink;
 import myfileio.MyFileIO;
+import statehash.StateHashWriter;
+import trace.BinaryPassengerSource;
+import trace.BinaryTrace;
+import trace.CsvPassengerSource;
+import traffic.TrafficGenerator;
 
 /**
  * The Class ElevatorSimController.
@@ -63,6 +83,54 @@ public class ElevatorSimController {
 	
 	/** The end sim. */
 	private boolean endSim = false;
+	
+	/** When set, stepSim jumps straight to the next tick at which anything can happen. */
+	private boolean timeSkip = false;
+
+	/** When set, summaries of the wait time histograms are written at the end of the run. */
+	private boolean waitStats = false;
+
+	/** When set, waiting groups give up at the tick their wait runs out, not when an elevator finds them. */
+	private boolean giveUpExpiry = false;
+
+	/** When set, the PassData file lists all arrivals before the give ups. */
+	private boolean passDataOrdered = true;
+
+	/** When set, the log is written in the binary format - see BinaryLogRenderer. */
+	private boolean binaryLog = false;
+
+	/** When set, the log is written by a background thread. */
+	private boolean asyncLog = false;
+
+	/** The number of events the background log writer can fall behind by. */
+	private int asyncLogSize = AsyncEventSink.DEFAULT_SIZE;
+
+	/** What the background log writer does when it falls too far behind. */
+	private int asyncLogPolicy = AsyncEventSink.BLOCK;
+
+	/** The name of the dispatch policy - see DispatchPolicy.forName. */
+	private String dispatch = DispatchPolicy.DEFAULT;
+
+	/** The number of groups to read ahead of the simulation - 0 for the whole trace. See Building.setReadAhead. */
+	private int readAhead = 16;
+
+	/** The number of threads that update the elevators - 0 for one per core. See Building.setUpdateThreads. */
+	private int updateThreads = 1;
+
+	/** When set, the state after every tick is hashed - see StateHashCompare. */
+	private boolean stateHash = false;
+
+	/** The number of ticks between snapshots of the running simulation - 0 for none. */
+	private int snapshotEvery = 0;
+
+	/** The tick at or after which the next snapshot is taken. */
+	private int nextSnapshot;
+
+	/** The snapshot to carry on from instead of starting at tick 0 - null for none. */
+	private String restoreFrom;
+
+	/** The generator the passengers come from instead of the passenger file - null if there is none. */
+	private TrafficGenerator traffic;
 
 		
 	/**
@@ -75,17 +143,59 @@ public class ElevatorSimController {
 	 * @param gui the gui
 	 */
 	public ElevatorSimController(ElevatorSimulation gui) {
+		this(gui, SIM_CONFIG, null, null);
+	}
+	
+	/**
+	 * Instantiates a new elevator sim controller from the given configuration
+	 * file, optionally overriding the passenger file it selects and the log
+	 * file name. Used to run many simulations side by side without a gui.
+	 *
+	 * @param gui the gui, or null to run headless
+	 * @param simConfig the simulation configuration file
+	 * @param passCSV the passenger file to run, or null to use the one in simConfig
+	 * @param logfile the log file, or null to derive it from the passenger file
+	 */
+	public ElevatorSimController(ElevatorSimulation gui, String simConfig, String passCSV, String logfile) {
 		this.gui = gui;
 		fio = new MyFileIO();
-		configSimulation(SIM_CONFIG);
+		configSimulation(simConfig);
+		if (passCSV != null) {
+			testfile = passCSV;
+			traffic = null;
+		} else if (traffic != null) {
+			testfile = traffic.getName()+".csv";
+		}
 		NUM_FLOORS = numFloors;
 		NUM_ELEVATORS = numElevators;
-		logfile = testfile.replaceAll(".csv", ".log");
-		building = new Building(NUM_FLOORS,NUM_ELEVATORS,logfile);
+		if (logfile == null) {
+			logfile = BinaryTrace.isBinaryTrace(testfile) ? testfile.substring(0, testfile.length() - BinaryTrace.EXTENSION.length()) + ".log"
+			                                              : testfile.replaceAll(".csv", ".log");
+		}
+		this.logfile = logfile;
+		EventSink sink = binaryLog ? new BinaryEventSink(this.logfile.replaceAll(".log", BinaryEventSink.EXTENSION))
+		                           : new FileEventSink(this.logfile);
+		if (asyncLog) {
+			sink = new AsyncEventSink(sink, asyncLogSize, asyncLogPolicy);
+		}
+		building = new Building(NUM_FLOORS,NUM_ELEVATORS,this.logfile,sink);
+		building.setPassDataOrdered(passDataOrdered);
+		building.setWaitStats(waitStats);
+		building.setDispatchPolicy(DispatchPolicy.forName(dispatch));
+		building.setReadAhead(readAhead);
+		building.setGiveUpExpiry(giveUpExpiry);
+		if (stateHash) {
+			building.setStateHash(new StateHashWriter(this.logfile.replaceAll(".log", StateHashWriter.EXTENSION)));
+		}
 		
 		building.configElevators(capacity, floorTicks, doorTicks, passPerTick);
+		building.setUpdateThreads(updateThreads > 0 ? updateThreads : Runtime.getRuntime().availableProcessors());
 		
 		initializePassengerData(testfile);
+		nextSnapshot = snapshotEvery;
+		if (restoreFrom != null) {
+			restoreSnapshot(restoreFrom);
+		}
 		
 
 		
@@ -135,59 +245,173 @@ public class ElevatorSimController {
 			doorTicks = Integer.parseInt(values[1]);
 		} else if (values[0].equals("passPerTick")) {
 			passPerTick = Integer.parseInt(values[1]);
+		} else if (values[0].equals("timeSkip")) {
+			timeSkip = "TRUE".equalsIgnoreCase(values[1]);
+		} else if (values[0].equals("waitStats")) {
+			waitStats = "TRUE".equalsIgnoreCase(values[1]);
+		} else if (values[0].equals("giveUpExpiry")) {
+			giveUpExpiry = "TRUE".equalsIgnoreCase(values[1]);
+		} else if (values[0].equals("passDataOrder")) {
+			passDataOrdered = !"EVENT".equalsIgnoreCase(values[1]);
+		} else if (values[0].equals("logFormat")) {
+			binaryLog = "BINARY".equalsIgnoreCase(values[1]);
+		} else if (values[0].equals("asyncLog")) {
+			asyncLog = "TRUE".equalsIgnoreCase(values[1]);
+		} else if (values[0].equals("asyncLogSize")) {
+			asyncLogSize = Integer.parseInt(values[1]);
+		} else if (values[0].equals("asyncLogPolicy")) {
+			asyncLogPolicy = "DROP".equalsIgnoreCase(values[1]) ? AsyncEventSink.DROP : AsyncEventSink.BLOCK;
+		} else if (values[0].equals("dispatch")) {
+			dispatch = values[1].trim();
+		} else if (values[0].equals("readAhead")) {
+			readAhead = Integer.parseInt(values[1].trim());
+		} else if (values[0].equals("updateThreads")) {
+			updateThreads = Integer.parseInt(values[1].trim());
+		} else if (values[0].equals("stateHash")) {
+			stateHash = "TRUE".equalsIgnoreCase(values[1]);
+		} else if (values[0].equals("snapshotEvery")) {
+			snapshotEvery = Integer.parseInt(values[1]);
+		} else if (values[0].equals("restoreSnapshot")) {
+			restoreFrom = values[1];
+		} else if (values[0].equals("traffic")) {
+			// traffic,profile,numGroups,meanGap,seed - numFloors must come first
+			traffic = new TrafficGenerator(TrafficGenerator.parseProfile(values[1]), numFloors,
+					Long.parseLong(values[2]), Double.parseDouble(values[3]), Long.parseLong(values[4]));
 		}
 	}
 	
 	/**
-	 * Initialize passenger data. Reads the supplied filename,
-	 * and for each passenger group, identifies the pertinent information
-	 * and adds it to the passengers queue in Building...
+	 * Initialize passenger data. Attaches the supplied passenger file to the
+	 * building as a streaming source: the building reads the passenger groups
+	 * a few arrivals ahead of the simulation, instead of all of them up front.
+	 * Files with the binary trace extension are read as binary traces, which
+	 * must have been written for the number of floors of the building. When
+	 * the configuration names a traffic generator, the building is fed by it
+	 * instead and the file is not read.
 	 *
 	 * @param filename the filename
 	 */
 	private void initializePassengerData(String filename) {
-		boolean firstLine = true;
-		File passInput = fio.getFileHandle(filename);
-		try (BufferedReader br = fio.openBufferedReader(passInput)) {
-			String line;
-			while ((line = br.readLine())!= null) {
-				if (firstLine) {
-					firstLine = false;
-					continue;
-				}
-				parsePassengerData(line);
+		if (traffic != null) {
+			building.setPassengerSource(traffic);
+		} else if (BinaryTrace.isBinaryTrace(filename)) {
+			BinaryPassengerSource source = new BinaryPassengerSource(filename);
+			if (source.getNumFloors() != NUM_FLOORS) {
+				source.close();
+				throw new IllegalArgumentException(filename+" was written for "+source.getNumFloors()+
+						" floors, but the building has "+NUM_FLOORS);
 			}
-			fio.closeFile(br);
-		} catch (IOException e) { 
-			System.err.println("Error in reading file: "+filename);
-			e.printStackTrace();
+			building.setPassengerSource(source);
+		} else {
+			building.setPassengerSource(new CsvPassengerSource(filename));
 		}
 		if (PASSQ_DEBUG) building.dumpPassQ();
 	}	
 	
 	/**
-	 * Parses the line of passenger data into tokens, and 
-	 * passes those values to the building to be added to the
-	 * passenger queue
+	 * Gets the name of the snapshot file, derived from the log file.
 	 *
-	 * @param line the line of passenger input data
+	 * @return the snapshot file name
 	 */
-	private void parsePassengerData(String line) {
-		int time=0, numPass=0,fromFloor=0, toFloor=0;
-		boolean polite = true;
-		int wait = 1000;
-		String[] values = line.split(",");
-		for (int i = 0; i < values.length; i++) {
-			switch (i) {
-				case 0 : time      = Integer.parseInt(values[i]); break;
-				case 1 : numPass   = Integer.parseInt(values[i]); break;
-				case 2 : fromFloor   = Integer.parseInt(values[i]); break;
-				case 3 : toFloor  = Integer.parseInt(values[i]); break;
-				case 5 : wait      = Integer.parseInt(values[i]); break;
-				case 4 : polite = "TRUE".equalsIgnoreCase(values[i]); break;
-			}
+	public String getSnapshotFile() {
+		return logfile.replaceAll(".log", ".snap");
+	}
+	
+	/**
+	 * Save snapshot. Writes the complete state of the simulation at the current
+	 * tick. The snapshot is written to a temporary file first and then moved
+	 * into place, so a crash while saving never leaves a broken snapshot.
+	 *
+	 * @param filename the snapshot file
+	 */
+	public void saveSnapshot(String filename) {
+		File file = fio.getFileHandle(filename);
+		File tmp = fio.getFileHandle(filename+".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			building.writeSnapshot(out, stepCnt);
+		} catch (IOException e) {
+			System.err.println("Error in writing file: "+tmp.getPath());
+			e.printStackTrace();
+			return;
+		}
+		try {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Error in writing file: "+filename);
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Restore snapshot. Carries on the simulation from a snapshot written by
+	 * saveSnapshot, with the same configuration and passenger file. The
+	 * PassData file keeps its rows up to the snapshot; the log starts again
+	 * from the restored tick.
+	 *
+	 * @param filename the snapshot file
+	 * @throws UncheckedIOException if the file cannot be read, or is truncated
+	 *         or corrupt - the simulation is then left as it was
+	 */
+	public void restoreSnapshot(String filename) {
+		File file = fio.getFileHandle(filename);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			restore(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error in reading file: "+filename, e);
+		}
+	}
+	
+	/**
+	 * Take snapshot. Writes the complete state of the simulation at the current
+	 * tick to memory, for forking the run: any number of controllers can carry
+	 * on from it with restoreSnapshot, each on its own thread.
+	 *
+	 * @return the snapshot, or null if the PassData file could not be flushed
+	 */
+	public byte[] takeSnapshot() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			building.writeSnapshot(out, stepCnt);
+		} catch (IOException e) {
+			System.err.println("Error in writing snapshot at tick "+stepCnt);
+			e.printStackTrace();
+			return null;
 		}
-		building.addPassengersToQueue(time,numPass,fromFloor,toFloor,polite,wait);	
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Restore snapshot. Carries on the simulation from a snapshot taken by
+	 * takeSnapshot. The snapshot is only read, so it can be shared between
+	 * controllers.
+	 *
+	 * @param snapshot the snapshot
+	 * @throws UncheckedIOException if the snapshot is truncated or corrupt -
+	 *         the simulation is then left as it was
+	 */
+	public void restoreSnapshot(byte[] snapshot) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+			restore(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error in reading snapshot", e);
+		}
+	}
+	
+	/**
+	 * Restore. Reads the building back from a snapshot and moves the clock to
+	 * its tick. The elevators keep their state but take the capacity and
+	 * timings of this controller's configuration, and the dispatch policy -
+	 * which is not in the snapshot - stays the one this controller set, so a
+	 * run can be carried on under a different configuration.
+	 *
+	 * @param in the snapshot
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void restore(DataInput in) throws IOException {
+		stepCnt = building.readSnapshot(in);
+		building.reconfigElevators(capacity, floorTicks, doorTicks, passPerTick);
+		endSim = false;
+		nextSnapshot = stepCnt + snapshotEvery;
 	}
 	
 	/**
@@ -224,8 +448,23 @@ public class ElevatorSimController {
 	 * must implement......
 	 */
 	public void stepSim() {
+		stepSim(Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Step sim. When time skipping is enabled, the ticks in which nothing can
+	 * happen are skipped first, but never past maxTick. The log is the same
+	 * as stepping one tick at a time.
+	 *
+	 * @param maxTick the furthest tick this step may advance to
+	 */
+	public void stepSim(int maxTick) {
+		if (timeSkip && !endSim) {
+			stepCnt = building.skipIdleTicks(stepCnt, maxTick - 1);
+		}
 		stepCnt++;
 		if (building.endSim(stepCnt)) {
+			endSim = true;
 			if (gui != null) {
 				gui.endSimulation();
 			}
@@ -237,9 +476,51 @@ public class ElevatorSimController {
 			}
 			building.checkPassengerQueue(stepCnt);
 			building.updateElevator(stepCnt);
+			if (snapshotEvery > 0 && stepCnt >= nextSnapshot) {
+				saveSnapshot(getSnapshotFile());
+				nextSnapshot = stepCnt + snapshotEvery;
+			}
+		}
+	}
+	
+	/**
+	 * Run sim. Steps the simulation until it ends or maxTicks ticks have passed.
+	 *
+	 * @param maxTicks the maximum number of ticks to simulate
+	 */
+	public void runSim(int maxTicks) {
+		while (!endSim && stepCnt < maxTicks) {
+			stepSim(maxTicks);
 		}
 	}
 	
+	/**
+	 * Sets the time skip mode.
+	 *
+	 * @param timeSkip true to skip the ticks in which nothing can happen
+	 */
+	public void setTimeSkip(boolean timeSkip) {
+		this.timeSkip = timeSkip;
+	}
+	
+	/**
+	 * Checks if the simulation has ended.
+	 *
+	 * @return true, once the building has detected the end of the simulation
+	 */
+	public boolean isEndSim() {
+		return endSim;
+	}
+	
+	/**
+	 * Gets the step cnt.
+	 *
+	 * @return the current tick of the simulation
+	 */
+	public int getStepCnt() {
+		return stepCnt;
+	}
+	
 	/**
 	 * Gets the building. ONLY USED FOR JUNIT TESTING - YOUR GUI SHOULD NOT ACCESS THIS!.
 	 *
@@ -249,6 +530,15 @@ public class ElevatorSimController {
 		return building;
 	}
 
+	/**
+	 * Gets the passenger file the building is fed from.
+	 *
+	 * @return the passenger file, or null when the traffic is generated
+	 */
+	String getPassengerFile() {
+		return (traffic != null) ? null : testfile;
+	}
+
 	/**
 	 * Gets the test name
 	 * @return string test name
@@ -274,6 +564,24 @@ public class ElevatorSimController {
 		return building.getElevatorsFirstIndex().getPassengers();
 	}
 	
+	/**
+	 * Gets the current floor of one of the elevators
+	 * @param car the index of the elevator
+	 * @return floor number
+	 */
+	public int getCurrentFloor(int car) {
+		return building.getElevator(car).getCurrFloor();
+	}
+	
+	/**
+	 * Get num of passengers on one of the elevators
+	 * @param car the index of the elevator
+	 * @return passenger number (integer)
+	 */
+	public int getNumPassengersOnElevator(int car) {
+		return building.getElevator(car).getPassengers();
+	}
+	
 	/**
 	 * Returns the specified floor object at certain index from building getter
 	 * @return specified Floor object
@@ -37,7 +37,7 @@ public class ElevatorSimulation extends Application {
 	
 	private Timeline timeline;
 	private Text t;
-	private Text displayPassengers = new Text("");
+	private Text[] displayPassengers;
 
 	/** Local copies of the states for tracking purposes */
 	private final int STOP = Elevator.STOP;
@@ -50,7 +50,7 @@ public class ElevatorSimulation extends Application {
 
 	private Pane pane = new Pane();
 	
-	private Rectangle elevatorDisplay = new Rectangle(25, 700, 170, 100);
+	private Rectangle[] elevatorDisplay;
 	private Button log;
 	private ArrayList<Passengers> passengerList = new ArrayList<>();
 	private ArrayList<Ellipse> passDisplayList = new ArrayList<>();
@@ -65,6 +65,15 @@ public class ElevatorSimulation extends Application {
 		NUM_ELEVATORS = controller.getNumElevators();
 		currFloor = controller.getCurrentFloor();
 		
+		// the elevators share the shaft area side by side
+		elevatorDisplay = new Rectangle[NUM_ELEVATORS];
+		displayPassengers = new Text[NUM_ELEVATORS];
+		double width = 170.0 / NUM_ELEVATORS;
+		for (int i = 0; i < NUM_ELEVATORS; i++) {
+			elevatorDisplay[i] = new Rectangle(25 + i*width, 700, width - (NUM_ELEVATORS > 1 ? 4 : 0), 100);
+			displayPassengers[i] = new Text("");
+		}
+		
 		initTimeline();
 		
 		
@@ -97,8 +106,10 @@ public class ElevatorSimulation extends Application {
 		addFloorsDisplay();
 		builidngTop();
 		
-		elevatorDisplay.setFill(Color.CADETBLUE);
-		pane.getChildren().add(elevatorDisplay);
+		for (Rectangle car : elevatorDisplay) {
+			car.setFill(Color.CADETBLUE);
+			pane.getChildren().add(car);
+		}
 
 		primaryStage.setTitle("Elevator Simulation - "+ controller.getTestName());
 		primaryStage.setScene(scene); // Place the scene in the stage
@@ -221,22 +232,26 @@ public class ElevatorSimulation extends Application {
 	 * position according to elevator positioning
 	 */
 	private void updateNumPassengerDisplay() {
-		passengers = controller.getNumPassengersOnElevator();
-		pane.getChildren().remove(displayPassengers);
-		
-		displayPassengers.setText(""+passengers);
-		displayPassengers.setFont(new Font(32));
-		
-		displayPassengers.setX(elevatorDisplay.getX()+75);
-		displayPassengers.setY(elevatorDisplay.getY()+60);
-		pane.getChildren().add(displayPassengers);
+		for (int i = 0; i < NUM_ELEVATORS; i++) {
+			passengers = controller.getNumPassengersOnElevator(i);
+			pane.getChildren().remove(displayPassengers[i]);
+			
+			displayPassengers[i].setText(""+passengers);
+			displayPassengers[i].setFont(new Font(NUM_ELEVATORS > 2 ? 20 : 32));
+			
+			displayPassengers[i].setX(elevatorDisplay[i].getX()+elevatorDisplay[i].getWidth()/2-10);
+			displayPassengers[i].setY(elevatorDisplay[i].getY()+60);
+			pane.getChildren().add(displayPassengers[i]);
+		}
 	}
 	
 	/**
 	 * uses a simple formula to calculate the new position of elevator based on current floor
 	 */
 	private void moveElevator() {
-		elevatorDisplay.setY(800-((controller.getCurrentFloor()+1)*100));
+		for (int i = 0; i < NUM_ELEVATORS; i++) {
+			elevatorDisplay[i].setY(800-((controller.getCurrentFloor(i)+1)*100));
+		}
 	}
 	
 	/**
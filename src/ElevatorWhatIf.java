@@ -0,0 +1,157 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The Class ElevatorWhatIf. Answers "what if the elevators had been different
+ * from this tick on" without rerunning the day: the base run is simulated
+ * once up to the fork tick and snapshotted in memory, then every variant
+ * configuration carries on from that snapshot on its own worker thread,
+ * alongside the base run itself. The variants keep the base run's floors,
+ * elevators and passengers, but take their capacity, floor, door and
+ * boarding ticks, and their dispatch policy, from their own configuration
+ * file.
+ *
+ * Each run writes its own log and PassData file next to the passenger file
+ * (or the base configuration), named after it and the run's configuration.
+ * The PassData rows up to the fork are copied from the base run. One summary
+ * row is printed per run, base run first, with the same results as
+ * ElevatorBatchRunner.
+ *
+ * Usage: java ElevatorWhatIf baseConfig passCSV|- forkTick variantConfig...
+ */
+public class ElevatorWhatIf {
+
+	/**  The maximum number of ticks for a run that never ends. */
+	private static final int MAX_TICKS = 1000000;
+
+	/** The header of the summary rows. */
+	private static final String SUMMARY_HEADER = "SimConfig,ForkTick,"+ElevatorBatchRunner.RESULT_HEADER;
+
+	/** The base configuration. */
+	private final String baseConfig;
+
+	/** The passenger file, or null to use the one in the configurations. */
+	private final String passCSV;
+
+	/** The variant configurations. */
+	private ArrayList<String> variants = new ArrayList<String>();
+
+	/** The max ticks. */
+	private final int maxTicks;
+
+	/**
+	 * Instantiates a new what-if evaluation.
+	 *
+	 * @param baseConfig the configuration of the base run
+	 * @param passCSV the passenger file, or null to use the one in the configurations
+	 * @param maxTicks the maximum number of ticks to simulate per run
+	 */
+	public ElevatorWhatIf(String baseConfig, String passCSV, int maxTicks) {
+		this.baseConfig = baseConfig;
+		this.passCSV = passCSV;
+		this.maxTicks = maxTicks;
+	}
+
+	/**
+	 * Adds a variant to carry on from the fork under.
+	 *
+	 * @param simConfig the configuration of the variant
+	 */
+	public void addVariant(String simConfig) {
+		variants.add(simConfig);
+	}
+
+	/**
+	 * Log file. Names the log of a run - the PassData file and any snapshots
+	 * are named after it.
+	 *
+	 * @param simConfig the configuration of the run
+	 * @param fork the number of the variant, or 0 for the base run
+	 * @return the log file
+	 */
+	private String logFile(String simConfig, int fork) {
+		File from = new File((passCSV != null) ? passCSV : baseConfig);
+		String name = ElevatorBatchRunner.baseName(from.getPath()) + "-" + ElevatorBatchRunner.baseName(simConfig) +
+		              ((fork == 0) ? "" : "-" + fork) + ".log";
+		return new File(from.getParentFile(), name).getPath();
+	}
+
+	/**
+	 * Run. Simulates the base run up to the fork tick, then finishes it and
+	 * every variant side by side on a pool of worker threads.
+	 *
+	 * @param forkTick the tick to fork at
+	 * @param threads the number of worker threads
+	 * @return the summary rows, base run first and then the variants in the order they were added
+	 */
+	public ArrayList<String> run(int forkTick, int threads) {
+		ArrayList<String> rows = new ArrayList<String>();
+		ElevatorSimController base = new ElevatorSimController(null, baseConfig, passCSV, logFile(baseConfig, 0));
+		base.runSim(forkTick);
+		if (base.isEndSim()) {
+			System.err.println("The base run ends at tick "+base.getStepCnt()+", before the fork at tick "+forkTick);
+			rows.add(baseConfig+","+base.getStepCnt()+","+ElevatorBatchRunner.finish(base));
+			return rows;
+		}
+		int tick = base.getStepCnt();
+		byte[] snapshot = base.takeSnapshot();
+		if (snapshot == null) return rows;
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<String>> results = new ArrayList<Future<String>>();
+		results.add(pool.submit(() -> {
+			base.runSim(maxTicks);
+			return ElevatorBatchRunner.finish(base);
+		}));
+		for (int i = 0; i < variants.size(); i++) {
+			String simConfig = variants.get(i);
+			String logfile = logFile(simConfig, i + 1);
+			results.add(pool.submit(() -> {
+				ElevatorSimController c = new ElevatorSimController(null, simConfig, passCSV, logfile);
+				c.restoreSnapshot(snapshot);
+				c.runSim(maxTicks);
+				return ElevatorBatchRunner.finish(c);
+			}));
+		}
+		for (int i = 0; i < results.size(); i++) {
+			String simConfig = (i == 0) ? baseConfig : variants.get(i - 1);
+			try {
+				rows.add(simConfig+","+tick+","+results.get(i).get());
+			} catch (ExecutionException e) {
+				System.err.println("Run failed: "+simConfig);
+				e.getCause().printStackTrace();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		pool.shutdown();
+		return rows;
+	}
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the base configuration, the passenger file (or - for the one in
+	 *             the configurations), the fork tick and the variant configurations
+	 */
+	public static void main(String[] args) {
+		if (args.length < 4) {
+			System.err.println("Usage: java ElevatorWhatIf baseConfig passCSV|- forkTick variantConfig...");
+			return;
+		}
+		ElevatorWhatIf whatIf = new ElevatorWhatIf(args[0], args[1].equals("-") ? null : args[1], MAX_TICKS);
+		for (int i = 3; i < args.length; i++) {
+			whatIf.addVariant(args[i]);
+		}
+		ArrayList<String> rows = whatIf.run(Integer.parseInt(args[2]), Runtime.getRuntime().availableProcessors());
+		System.out.println(SUMMARY_HEADER);
+		for (String row : rows) {
+			System.out.println(row);
+		}
+	}
+}
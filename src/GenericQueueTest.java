@@ -0,0 +1,139 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+import genericqueue.GenericQueue;
+
+class GenericQueueTest {
+
+	private static List<String> contents(GenericQueue<String> q) {
+		List<String> list = new ArrayList<>();
+		for (ListIterator<String> it = q.getListIterator(); it.hasNext();) {
+			list.add(it.next());
+		}
+		return list;
+	}
+
+	/** A ring of 4 whose head has moved on 2 slots, holding a, b, c - so c sits in slot 0. */
+	private static GenericQueue<String> wrapped() {
+		GenericQueue<String> q = new GenericQueue<>(4, true);
+		for (String s : new String[] {"x", "y"}) q.add(s);
+		for (int i = 0; i < 2; i++) q.remove();
+		q.add("a");
+		q.add("b");
+		q.add("c");
+		return q;
+	}
+
+	@Test
+	void testEmptyRing() {
+		GenericQueue<String> q = new GenericQueue<>(3, true);
+		assertTrue(q.isEmpty());
+		assertEquals(0, q.size());
+		assertNull(q.poll());
+		assertNull(q.peek());
+		assertNull(q.peek(0));
+		assertFalse(q.remove("a"));
+		assertThrows(NoSuchElementException.class, () -> q.remove());
+		assertThrows(NoSuchElementException.class, () -> q.element());
+		assertFalse(q.getListIterator().hasNext());
+		assertEquals("queue: []", q.toString());
+	}
+
+	@Test
+	void testWrapAround() {
+		GenericQueue<String> q = wrapped();
+		assertEquals(3, q.size());
+		assertEquals("a", q.peek());
+		assertEquals("b", q.peek(1));
+		assertEquals("c", q.peek(2));
+		assertNull(q.peek(3));
+		assertEquals(List.of("a", "b", "c"), contents(q));
+		assertEquals("a", q.poll());
+		assertEquals("b", q.remove());
+		assertEquals("c", q.element());
+		assertEquals("c", q.poll());
+		assertTrue(q.isEmpty());
+	}
+
+	@Test
+	void testIterationAfterWrap() {
+		GenericQueue<String> q = wrapped();
+		q.add("d");
+		ListIterator<String> it = q.getListIterator();
+		assertFalse(it.hasPrevious());
+		assertEquals(List.of("a", "b", "c", "d"), contents(q));
+		assertEquals("a", it.next());
+		assertEquals("b", it.next());
+		assertEquals(2, it.nextIndex());
+		assertEquals("b", it.previous());
+		assertEquals(0, it.previousIndex());
+		assertThrows(UnsupportedOperationException.class, () -> it.remove());
+		assertEquals("queue: [a,b,c,d]", q.toString());
+	}
+
+	@Test
+	void testRemoveFromMiddleOfWrappedRing() {
+		GenericQueue<String> q = wrapped();
+		q.add("d");
+		// b sits in the last slot of the array, so c and d move back across the wrap
+		assertTrue(q.remove("b"));
+		assertEquals(List.of("a", "c", "d"), contents(q));
+		q.add("e");
+		assertEquals(List.of("a", "c", "d", "e"), contents(q));
+		assertTrue(q.remove("e"));
+		assertTrue(q.remove("a"));
+		assertEquals(List.of("c", "d"), contents(q));
+		assertEquals("c", q.poll());
+		assertEquals("d", q.poll());
+		assertNull(q.poll());
+	}
+
+	@Test
+	void testRemoveIsByIdentity() {
+		GenericQueue<String> q = new GenericQueue<>(4, true);
+		String first = new String("same"), second = new String("same");
+		q.add(first);
+		q.add(second);
+		assertFalse(q.remove(new String("same")));
+		assertTrue(q.remove(second));
+		assertEquals(1, q.size());
+		assertTrue(q.peek() == first);
+		assertFalse(q.remove(second));
+	}
+
+	@Test
+	void testFullRingGrows() {
+		GenericQueue<String> q = wrapped();
+		q.add("d");
+		assertEquals(4, q.size());
+		// the ring is full and wrapped - it doubles and keeps the order
+		assertTrue(q.offer("e"));
+		assertTrue(q.add("f"));
+		assertEquals(List.of("a", "b", "c", "d", "e", "f"), contents(q));
+		for (String s : new String[] {"a", "b", "c", "d", "e", "f"}) {
+			assertEquals(s, q.poll());
+		}
+		assertTrue(q.isEmpty());
+	}
+
+	@Test
+	void testFullLinkedListIsBounded() {
+		GenericQueue<String> q = new GenericQueue<>(2);
+		q.add("a");
+		assertTrue(q.offer("b"));
+		assertFalse(q.offer("c"));
+		assertThrows(IllegalStateException.class, () -> q.add("c"));
+		assertTrue(q.remove("a"));
+		assertEquals(List.of("b"), contents(q));
+	}
+}
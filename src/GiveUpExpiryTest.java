@@ -0,0 +1,139 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import building.GiveUpWheel;
+import building.Passengers;
+import traffic.TrafficGenerator;
+
+class GiveUpExpiryTest extends SimTestSupport {
+
+	private String settings(int cars, String extra) {
+		return building(16, cars, 8, 4, 2, 3)+"stateHash,TRUE\ngiveUpExpiry,TRUE\n"+extra;
+	}
+
+	private ElevatorSimController controller(String name, int cars, String passCSV, String extra) throws IOException {
+		return controller(name, config(name, settings(cars, extra)), passCSV);
+	}
+
+	private ElevatorSimController run(String name, int cars, String passCSV, String extra) throws IOException {
+		return run(name, config(name, settings(cars, extra)), passCSV);
+	}
+
+	private int highestFloor(ElevatorSimController c) {
+		int highest = 0;
+		while (!c.isEndSim()) {
+			c.stepSim();
+			highest = Math.max(highest, c.getCurrentFloor(0));
+		}
+		return highest;
+	}
+
+	@Test
+	void testGivesUpAtItsTick() throws IOException {
+		Path csv = dir.resolve("Late.csv");
+		Files.write(csv, "Time,NumPass,FromFloor,ToFloor,Polite,Wait\n1,1,1,2,TRUE,1000\n3,1,15,1,TRUE,5\n".getBytes());
+		ElevatorSimController c = controller("Expiry", 1, csv.toString(), "");
+		while (c.getBuilding().getGroupsGaveUp() == 0) {
+			c.stepSim();
+		}
+		assertEquals(3 + 5 + 1, c.getStepCnt());
+		// the call is withdrawn, so the elevator never goes up to look for the group
+		assertEquals(1, highestFloor(c));
+		assertEquals(1, c.getBuilding().getGroupsArrived());
+
+		ElevatorSimController off = controller("NoExpiry", 1, csv.toString(), "giveUpExpiry,FALSE\n");
+		assertEquals(14, highestFloor(off));
+		assertEquals(1, off.getBuilding().getGroupsGaveUp());
+	}
+
+	@Test
+	void testTimeSkipAndThreadsMatch() throws IOException {
+		String csv = file("Trace.csv");
+		TrafficGenerator gen = new TrafficGenerator(TrafficGenerator.POISSON, 16, 2000, 6, 12);
+		gen.setWaitRange(20, 200);
+		gen.writeCsv(csv);
+		ElevatorSimController seq = run("Seq", 4, csv, "");
+		assertTrue(seq.getBuilding().getGroupsGaveUp() > 0);
+		assertEquals(2000, seq.getBuilding().getGroupsArrived() + seq.getBuilding().getGroupsGaveUp());
+		assertSameRun("Seq", seq, "Skip", run("Skip", 4, csv, "timeSkip,TRUE\n"));
+		assertSameRun("Seq", seq, "Par", run("Par", 4, csv, "timeSkip,TRUE\nupdateThreads,3\n"));
+	}
+
+	@Test
+	void testWheelFiresEveryTickOnce() {
+		Random rnd = new Random(7);
+		GiveUpWheel wheel = new GiveUpWheel(4, 0);
+		int[] due = new int[3000];
+		for (int id = 0; id < due.length; id++) {
+			// a few deadlines beyond what the levels reach, to go through the overflow list
+			int far = (id % 100 == 0) ? 1 << 25 : (id % 10 == 0) ? 1 << 20 : 5000;
+			due[id] = 1 + rnd.nextInt(far);
+			wheel.add(new Passengers(id, 0, 1, 1, 2, true, 0), due[id]);
+		}
+		int[] fired = new int[due.length];
+		int now = 0;
+		while (wheel.size() > 0) {
+			int next = wheel.nextTick();
+			assertTrue(next > now);
+			int to = now + 1 + rnd.nextInt(rnd.nextBoolean() ? 50 : 1 << 22);
+			ArrayList<Passengers> out = wheel.advance(to);
+			for (Passengers p : out) {
+				assertTrue(due[p.getId()] > now && due[p.getId()] <= to, "group "+p.getId()+" fired late or early");
+				assertTrue(next <= due[p.getId()]);
+				fired[p.getId()]++;
+			}
+			now = to;
+		}
+		for (int id = 0; id < due.length; id++) {
+			assertEquals(1, fired[id]);
+		}
+	}
+
+	@Test
+	void testRemovedGroupsNeverFire() {
+		Random rnd = new Random(3);
+		GiveUpWheel wheel = new GiveUpWheel(4, 0);
+		Passengers[] groups = new Passengers[2000];
+		int[] due = new int[groups.length];
+		for (int id = 0; id < groups.length; id++) {
+			int far = (id % 100 == 0) ? 1 << 25 : (id % 10 == 0) ? 1 << 20 : 300;
+			due[id] = 1 + rnd.nextInt(far);
+			groups[id] = new Passengers(id, 0, 1, 1, 2, true, 0);
+			wheel.add(groups[id], due[id]);
+		}
+		// every third group boards - half of them now, the others just before their tick,
+		// once the wheel has moved them down
+		int left = groups.length;
+		for (int id = 0; id < groups.length; id += 6) {
+			assertTrue(wheel.remove(groups[id]));
+			left--;
+		}
+		int now = 0;
+		int[] fired = new int[groups.length];
+		while (wheel.size() > 0) {
+			for (int id = 3; id < groups.length; id += 6) {
+				if (now >= due[id] - 2100 && wheel.remove(groups[id])) left--;
+			}
+			int to = now + 1 + rnd.nextInt(2000);
+			for (Passengers p : wheel.advance(to)) {
+				fired[p.getId()]++;
+				left--;
+			}
+			now = to;
+			assertEquals(left, wheel.size());
+		}
+		for (int id = 0; id < groups.length; id++) {
+			assertEquals(id % 3 == 0 ? 0 : 1, fired[id], "group "+id);
+			assertFalse(wheel.remove(groups[id]));
+		}
+	}
+}
@@ -0,0 +1,88 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+import building.Building;
+import traffic.TrafficGenerator;
+
+class HallCallTest extends SimTestSupport {
+
+	private ElevatorSimController controller(String name, int cars, String extra) throws IOException {
+		return controller(name, config(name, building(20, cars, 10, 5, 2, 3)+"traffic,POISSON,2000,20,3\nstateHash,TRUE\n"+extra), null);
+	}
+
+	private Building run(String name, int cars) throws IOException {
+		ElevatorSimController c = controller(name, cars, "");
+		c.runSim(Integer.MAX_VALUE);
+		assertTrue(c.isEndSim());
+		Building b = c.getBuilding();
+		assertEquals(2000, b.getGroupsArrived() + b.getGroupsGaveUp());
+		return b;
+	}
+
+	@Test
+	void testMoreElevatorsServeFaster() throws IOException {
+		double wait = run("Cars1", 1).getAvgWaitToBoard();
+		for (int cars : new int[] {2, 4, 8}) {
+			Building b = run("Cars"+cars, cars);
+			assertTrue(b.getAvgWaitToBoard() < wait, cars+" cars: "+b.getAvgWaitToBoard()+" vs "+wait);
+			wait = b.getAvgWaitToBoard();
+		}
+	}
+
+	@Test
+	void testUpPeakServedFasterWithMoreCars() throws IOException {
+		// most groups wait in the lobby, whose up call only one car loads at a time
+		double wait = Double.MAX_VALUE;
+		int arrived = 0;
+		for (int cars : new int[] {1, 2, 4, 8}) {
+			String name = "Peak"+cars;
+			Building b = run(name, config(name, building(20, cars, 8, 4, 2, 3)+"traffic,UP_PEAK,2000,15,3\ntimeSkip,TRUE\n"), null).getBuilding();
+			assertTrue(b.getAvgWaitToBoard() < wait, cars+" cars: "+b.getAvgWaitToBoard()+" vs "+wait);
+			assertTrue(b.getGroupsArrived() >= arrived, cars+" cars: "+b.getGroupsArrived()+" vs "+arrived);
+			wait = b.getAvgWaitToBoard();
+			arrived = b.getGroupsArrived();
+		}
+	}
+
+	@Test
+	void testSingleElevatorMatchesGoldenLog() throws IOException {
+		// the log of the single elevator from before there was a dispatcher - an empty
+		// elevator only turns back early when another one can take its calls
+		String config = config("OneCar", building(8, 1, 6, 4, 2, 3));
+		run("OneCar", config, "test_data/OneCarLunch.csv");
+		assertEquals(Files.readAllLines(Paths.get("test_data/OneCarLunch.log")), log("OneCar"));
+	}
+
+	@Test
+	void testSingleElevatorTurnsBackFromGivenUpCalls() throws IOException {
+		// the groups it was heading for give up on the way, so it turns back for the others
+		String csv = file("Trace.csv");
+		TrafficGenerator gen = new TrafficGenerator(TrafficGenerator.POISSON, 10, 300, 27, 12);
+		gen.setPoliteShare(0.5);
+		gen.setWaitRange(20, 300);
+		gen.writeCsv(csv);
+		Building b = run("Expiry", config("Expiry", building(10, 1, 6, 4, 2, 3)+"giveUpExpiry,TRUE\n"), csv).getBuilding();
+		assertEquals(300, b.getGroupsArrived() + b.getGroupsGaveUp());
+	}
+
+	@Test
+	void testEveryElevatorServesCalls() throws IOException {
+		ElevatorSimController c = controller("Four", 4, "");
+		int[] highest = new int[4];
+		while (!c.isEndSim()) {
+			c.stepSim();
+			for (int i = 0; i < 4; i++) {
+				highest[i] = Math.max(highest[i], c.getCurrentFloor(i));
+			}
+		}
+		for (int i = 0; i < 4; i++) {
+			assertTrue(highest[i] > 0, "elevator "+i+" never left the ground floor");
+		}
+	}
+}
@@ -0,0 +1,41 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import traffic.TrafficGenerator;
+
+class ParallelUpdateTest extends SimTestSupport {
+
+	private ElevatorSimController run(String name, int cars, int threads, String passCSV, String extra) throws IOException {
+		return run(name, config(name, building(16, cars, 8, 4, 2, 3)+"stateHash,TRUE\nupdateThreads,"+threads+"\n"+extra), passCSV);
+	}
+
+	@Test
+	void testTwoPhasesMatchSequential() throws IOException {
+		String traffic = "traffic,POISSON,3000,6,11\n";
+		ElevatorSimController seq = run("Seq", 6, 1, null, traffic);
+		assertTrue(seq.getBuilding().getGroupsArrived() > 0);
+		for (int threads : new int[] {2, 4, 6, 16}) {
+			assertSameRun("Seq", seq, "Par"+threads, run("Par"+threads, 6, threads, null, traffic));
+		}
+	}
+
+	@Test
+	void testGiveUpsAndTimeSkip() throws IOException {
+		String csv = file("Trace.csv");
+		TrafficGenerator gen = new TrafficGenerator(TrafficGenerator.POISSON, 16, 3000, 6, 8);
+		gen.setWaitRange(20, 200);
+		gen.writeCsv(csv);
+		ElevatorSimController seq = run("Seq", 4, 1, csv, "timeSkip,TRUE\n");
+		assertTrue(seq.getBuilding().getGroupsGaveUp() > 0);
+		assertSameRun("Seq", seq, "Par", run("Par", 4, 3, csv, "timeSkip,TRUE\n"));
+	}
+
+	@Test
+	void testSingleElevatorIgnoresThreads() throws IOException {
+		String traffic = "traffic,POISSON,1000,40,11\n";
+		assertSameRun("Seq", run("Seq", 1, 1, null, traffic), "Par", run("Par", 1, 4, null, traffic));
+	}
+}
@@ -0,0 +1,137 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import building.Building;
+
+/**
+ * The Class SimTestSupport. What the simulation tests share: a directory for
+ * the configs, traces, logs and PassData files of a test, which JUnit removes
+ * after each test, and helpers to write a config, run it to the end and
+ * check that two runs came out the same.
+ */
+abstract class SimTestSupport {
+
+	/** The directory the files of a test are written to. */
+	@TempDir
+	Path dir;
+
+	/**
+	 * The config lines of a building.
+	 *
+	 * @param numFloors the num floors
+	 * @param numElevators the num elevators
+	 * @param capacity the capacity
+	 * @param floorTicks the floor ticks
+	 * @param doorTicks the door ticks
+	 * @param passPerTick the pass per tick
+	 * @return the lines
+	 */
+	static String building(int numFloors, int numElevators, int capacity, int floorTicks, int doorTicks, int passPerTick) {
+		return "numFloors,"+numFloors+"\nnumElevators,"+numElevators+"\ncapacity,"+capacity+"\nfloorTicks,"+floorTicks+
+		       "\ndoorTicks,"+doorTicks+"\npassPerTick,"+passPerTick+"\n";
+	}
+
+	/**
+	 * Gets the path of a file in the directory.
+	 *
+	 * @param name the name of the file
+	 * @return the path
+	 */
+	String file(String name) {
+		return dir.resolve(name).toString();
+	}
+
+	/**
+	 * Writes a config file, named name+"Config.csv".
+	 *
+	 * @param name the name of the config
+	 * @param lines the config lines
+	 * @return the path of the config file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	String config(String name, String lines) throws IOException {
+		Path config = dir.resolve(name+"Config.csv");
+		Files.write(config, lines.getBytes());
+		return config.toString();
+	}
+
+	/**
+	 * Builds a controller that logs to name+".log" and writes name+"PassData.csv".
+	 *
+	 * @param name the name of the run
+	 * @param config the config file
+	 * @param passCSV the passenger file, or null for the one in the config
+	 * @return the controller
+	 */
+	ElevatorSimController controller(String name, String config, String passCSV) {
+		return new ElevatorSimController(null, config, passCSV, file(name+".log"));
+	}
+
+	/**
+	 * Runs a simulation to the end with logging on, and closes its files.
+	 *
+	 * @param name the name of the run
+	 * @param config the config file
+	 * @param passCSV the passenger file, or null for the one in the config
+	 * @return the controller
+	 */
+	ElevatorSimController run(String name, String config, String passCSV) {
+		ElevatorSimController c = controller(name, config, passCSV);
+		c.enableLogging();
+		c.runSim(Integer.MAX_VALUE);
+		assertTrue(c.isEndSim());
+		ElevatorBatchRunner.finish(c);
+		return c;
+	}
+
+	/**
+	 * Gets the lines of a run's log.
+	 *
+	 * @param name the name of the run
+	 * @return the lines
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	List<String> log(String name) throws IOException {
+		return Files.readAllLines(dir.resolve(name+".log"));
+	}
+
+	/**
+	 * Gets a run's PassData file.
+	 *
+	 * @param name the name of the run
+	 * @return the bytes of the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	byte[] passData(String name) throws IOException {
+		return Files.readAllBytes(dir.resolve(name+"PassData.csv"));
+	}
+
+	/**
+	 * Asserts that two finished runs have the same state hashes, totals,
+	 * board waits, log and PassData.
+	 *
+	 * @param a the name of the first run
+	 * @param ca the first run
+	 * @param b the name of the second run
+	 * @param cb the second run
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void assertSameRun(String a, ElevatorSimController ca, String b, ElevatorSimController cb) throws IOException {
+		Building ba = ca.getBuilding(), bb = cb.getBuilding();
+		assertEquals(ca.getStepCnt(), cb.getStepCnt());
+		assertEquals(ba.getStateDigest(), bb.getStateDigest());
+		assertEquals(ba.getGroupsArrived(), bb.getGroupsArrived());
+		assertEquals(ba.getGroupsGaveUp(), bb.getGroupsGaveUp());
+		assertEquals(ba.getBoardWaitHistogram().getSummary(), bb.getBoardWaitHistogram().getSummary());
+		assertEquals(log(a), log(b));
+		assertArrayEquals(passData(a), passData(b));
+	}
+}
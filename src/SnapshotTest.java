@@ -0,0 +1,152 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import building.Building;
+import trace.BinaryTrace;
+import traffic.TrafficGenerator;
+
+class SnapshotTest extends SimTestSupport {
+
+	/** The building most of the cases run in. */
+	private static final String ONE_CAR = building(10, 1, 10, 5, 2, 3)+"stateHash,TRUE\n";
+
+	/** The number of passengers on board when checkRestore took its snapshot. */
+	private int onBoard;
+
+	private List<String> logAfter(String name, int tick) throws IOException {
+		List<String> lines = log(name);
+		lines.removeIf(l -> l.contains("CONFIG") || Integer.parseInt(l.replaceAll(".*Time=(\\d+).*", "$1")) <= tick);
+		return lines;
+	}
+
+	private Building checkRestore(String passCSV, String settings) throws IOException {
+		String cfg = config("Run", settings);
+		ElevatorSimController whole = controller("Whole", cfg, passCSV);
+		whole.enableLogging();
+		whole.runSim(Integer.MAX_VALUE);
+		Building wb = whole.getBuilding();
+
+		// stop part way, with groups waiting, on board and giving up
+		ElevatorSimController first = controller("Part", cfg, passCSV);
+		first.runSim(whole.getStepCnt() / 2);
+		int tick = first.getStepCnt();
+		onBoard = 0;
+		for (int i = 0; i < first.getNumElevators(); i++) {
+			onBoard += first.getNumPassengersOnElevator(i);
+		}
+		String snap = file("Saved.snap");
+		first.saveSnapshot(snap);
+		// as if it had crashed some time after the snapshot
+		first.runSim(tick + 2000);
+		first.disableLogging();
+
+		// carry on in a new controller, into the same PassData file and into a fresh one
+		for (String name : new String[] {"Part", "Fork"}) {
+			ElevatorSimController rest = controller(name, cfg, passCSV);
+			rest.restoreSnapshot(snap);
+			assertEquals(tick, rest.getStepCnt());
+			rest.enableLogging();
+			rest.runSim(Integer.MAX_VALUE);
+			Building rb = rest.getBuilding();
+			assertEquals(whole.getStepCnt(), rest.getStepCnt());
+			assertArrayEquals(passData("Whole"), passData(name));
+			assertEquals(logAfter("Whole", tick), logAfter(name, tick));
+			assertEquals(wb.getStateDigest(), rb.getStateDigest());
+			assertEquals(wb.getGroupsArrived(), rb.getGroupsArrived());
+			assertEquals(wb.getGroupsGaveUp(), rb.getGroupsGaveUp());
+			assertEquals(wb.getBoardWaitHistogram().getSummary(), rb.getBoardWaitHistogram().getSummary());
+			assertEquals(wb.getTotalHistogram().getSummary(), rb.getTotalHistogram().getSummary());
+		}
+		assertTrue(wb.getGroupsArrived() > 0);
+		return wb;
+	}
+
+	@Test
+	void testRestoreTraffic() throws IOException {
+		checkRestore(null, ONE_CAR+"traffic,POISSON,4000,60,3\nsnapshotEvery,10000\n");
+		assertTrue(Files.size(dir.resolve("Whole.snap")) > 0);
+	}
+
+	@Test
+	void testRestoreCsvWithTimeSkip() throws IOException {
+		String csv = file("Trace.csv");
+		TrafficGenerator gen = new TrafficGenerator(TrafficGenerator.UP_PEAK, 10, 3000, 90, 8);
+		gen.setWaitRange(30, 300);
+		gen.writeCsv(csv);
+		assertTrue(checkRestore(csv, ONE_CAR+"timeSkip,TRUE\n").getGroupsGaveUp() > 0);
+	}
+
+	@Test
+	void testRestoreBinaryTraceEventOrder() throws IOException {
+		String csv = file("Trace.csv");
+		String trace = file("Trace"+BinaryTrace.EXTENSION);
+		TrafficGenerator gen = new TrafficGenerator(TrafficGenerator.DOWN_PEAK, 10, 3000, 70, 4);
+		gen.setWaitRange(30, 300);
+		gen.writeCsv(csv);
+		BinaryTrace.convert(csv, trace, 10);
+		assertTrue(checkRestore(trace, ONE_CAR+"passDataOrder,EVENT\n").getGroupsGaveUp() > 0);
+	}
+
+	@Test
+	void testRestoreSeveralElevators() throws IOException {
+		// each call is assigned to one of the elevators, and the assignments are in the snapshot
+		checkRestore(null, building(20, 3, 10, 5, 2, 3)+"traffic,POISSON,2000,20,3\nstateHash,TRUE\ntimeSkip,TRUE\n");
+	}
+
+	@Test
+	void testRestoreRebuildsGiveUpWheel() throws IOException {
+		// the wheel is not in the snapshot - it is rebuilt from the groups waiting
+		Building wb = checkRestore(null, building(16, 2, 8, 4, 2, 3)+"traffic,POISSON,1500,8,4\nstateHash,TRUE\ngiveUpExpiry,TRUE\n");
+		assertTrue(wb.getGroupsGaveUp() > 0);
+	}
+
+	@Test
+	void testRestoreTallBuilding() throws IOException {
+		// floors above 64 - the stops and riders of each elevator are restored for every floor
+		checkRestore(null, building(150, 4, 12, 1, 2, 3)+"traffic,POISSON,1500,8,9\nstateHash,TRUE\ntimeSkip,TRUE\n");
+		assertTrue(onBoard > 0);
+	}
+
+	@Test
+	void testBadSnapshotChangesNothing() throws IOException {
+		String cfg = config("Run", ONE_CAR+"traffic,POISSON,3000,60,3\n");
+		ElevatorSimController whole = run("Whole", cfg, null);
+
+		ElevatorSimController first = controller("First", cfg, null);
+		first.runSim(whole.getStepCnt() / 2);
+		byte[] snap = first.takeSnapshot();
+		String saved = file("Saved.snap");
+		first.saveSnapshot(saved);
+		first.disableLogging();
+		byte[] corrupt = snap.clone();
+		corrupt[snap.length / 2] ^= 1;
+
+		// a run at another tick is left as it was by every bad snapshot
+		ElevatorSimController c = controller("Rest", cfg, null);
+		c.enableLogging();
+		c.runSim(whole.getStepCnt() / 4);
+		long digest = c.getBuilding().getStateDigest();
+		int arrived = c.getBuilding().getGroupsArrived();
+		for (byte[] bad : new byte[][] {Arrays.copyOf(snap, snap.length - 1), Arrays.copyOf(snap, 40), corrupt}) {
+			assertThrows(UncheckedIOException.class, () -> c.restoreSnapshot(bad));
+			Files.write(dir.resolve("Saved.snap"), bad);
+			assertThrows(UncheckedIOException.class, () -> c.restoreSnapshot(saved));
+			assertEquals(whole.getStepCnt() / 4, c.getStepCnt());
+			assertEquals(digest, c.getBuilding().getStateDigest());
+			assertEquals(arrived, c.getBuilding().getGroupsArrived());
+		}
+		c.runSim(Integer.MAX_VALUE);
+		ElevatorBatchRunner.finish(c);
+		assertSameRun("Whole", whole, "Rest", c);
+	}
+}
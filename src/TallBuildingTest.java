@@ -0,0 +1,31 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import building.Building;
+
+class TallBuildingTest extends SimTestSupport {
+
+	private ElevatorSimController controller(String name) throws IOException {
+		return controller(name, config(name, building(150, 4, 12, 1, 2, 3)+"traffic,POISSON,1500,8,9\nstateHash,TRUE\ntimeSkip,TRUE\n"), null);
+	}
+
+	@Test
+	void testServesFloorsAbove64() throws IOException {
+		ElevatorSimController c = controller("Tall");
+		int highest = 0;
+		while (!c.isEndSim()) {
+			c.stepSim();
+			for (int i = 0; i < 4; i++) {
+				highest = Math.max(highest, c.getCurrentFloor(i));
+			}
+		}
+		Building b = c.getBuilding();
+		assertTrue(highest > 128, "highest floor reached "+highest);
+		assertEquals(1500, b.getGroupsArrived() + b.getGroupsGaveUp());
+		assertTrue(b.getGroupsArrived() > b.getGroupsGaveUp());
+	}
+}
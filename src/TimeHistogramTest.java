@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import stats.TimeHistogram;
+
+class TimeHistogramTest {
+
+	@Test
+	void testExactBelowTwoSubBuckets() {
+		TimeHistogram h = new TimeHistogram("Exact");
+		for (int time = 155; time >= 56; time--) {
+			h.record(time, 1);
+		}
+		for (int p = 1; p <= 100; p++) {
+			assertEquals(55 + p, h.getPercentile(p), "P"+p);
+		}
+		assertEquals(105.5, h.getMean());
+	}
+
+	@Test
+	void testLargeTimesWithinOnePercent() {
+		for (int time : new int[] {257, 1000, 4099, 65537, 1000003, 123456789, 2000000000}) {
+			TimeHistogram h = new TimeHistogram("Large");
+			h.record(time, 1);
+			h.record(Integer.MAX_VALUE, 1);
+			long p50 = h.getPercentile(50);
+			assertTrue(p50 >= time && p50 - time <= time / 128, time+" read as "+p50);
+			assertEquals(Integer.MAX_VALUE, h.getPercentile(100));
+		}
+	}
+
+	@Test
+	void testWeights() {
+		TimeHistogram h = new TimeHistogram("Weighted");
+		h.record(10, 3);
+		h.record(20, 1);
+		assertEquals(4, h.getCount());
+		assertEquals(12.5, h.getMean());
+		assertEquals(10, h.getPercentile(50));
+		assertEquals(10, h.getPercentile(75));
+		assertEquals(20, h.getPercentile(75.1));
+		assertEquals("Weighted,4,12.50,10,10,20,20,20,20", h.getSummary());
+	}
+
+	@Test
+	void testEnds() {
+		TimeHistogram h = new TimeHistogram("Ends");
+		assertEquals(0, h.getPercentile(50));
+		h.record(300, 2);
+		h.record(700, 5);
+		h.record(-4, 1);
+		assertEquals(0, h.getPercentile(0));
+		assertEquals(0, h.getPercentile(-5));
+		assertEquals(700, h.getPercentile(50));
+		assertEquals(700, h.getPercentile(100));
+		assertEquals(700, h.getPercentile(150));
+		h.reset();
+		h.record(301, 1);
+		// the top of the bucket is capped to the largest time, and the bottom to the smallest
+		assertEquals(301, h.getPercentile(0));
+		assertEquals(301, h.getPercentile(100));
+	}
+}
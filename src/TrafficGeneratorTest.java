@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import traffic.TrafficGenerator;
+
+class TrafficGeneratorTest extends SimTestSupport {
+
+	private long[] digest(TrafficGenerator gen) {
+		long h = 17, n = 0;
+		while (gen.next()) {
+			h = h * 31 + gen.getTime();
+			h = h * 31 + gen.getNumPass();
+			h = h * 31 + gen.getFromFloor() * 1000 + gen.getToFloor();
+			h = h * 31 + (gen.isPolite() ? 1 : 0);
+			h = h * 31 + gen.getWait();
+			n++;
+		}
+		return new long[] {n, h};
+	}
+
+	@Test
+	void testSameSeedSameTraffic() {
+		long[] a = digest(new TrafficGenerator(TrafficGenerator.LUNCH, 12, 10000, 50, 99));
+		long[] b = digest(new TrafficGenerator(TrafficGenerator.LUNCH, 12, 10000, 50, 99));
+		long[] c = digest(new TrafficGenerator(TrafficGenerator.LUNCH, 12, 10000, 50, 100));
+		assertArrayEquals(a, b);
+		assertEquals(10000, a[0]);
+		assertTrue(a[1] != c[1]);
+	}
+
+	@Test
+	void testUpPeakGroups() {
+		TrafficGenerator gen = new TrafficGenerator(TrafficGenerator.UP_PEAK, 10, 20000, 30, 1);
+		gen.setGroupSizes(0, 1, 1);
+		gen.setPoliteShare(0.25);
+		gen.setWaitRange(100, 200);
+		int prevTime = 0, fromLobby = 0, polite = 0;
+		while (gen.next()) {
+			assertTrue(gen.getTime() >= prevTime);
+			assertTrue(gen.getNumPass() == 2 || gen.getNumPass() == 3);
+			assertTrue(gen.getFromFloor() >= 1 && gen.getFromFloor() <= 10);
+			assertTrue(gen.getToFloor() >= 1 && gen.getToFloor() <= 10);
+			assertTrue(gen.getFromFloor() != gen.getToFloor());
+			assertTrue(gen.getWait() >= 100 && gen.getWait() <= 200);
+			if (gen.getFromFloor() == 1) fromLobby++;
+			if (gen.isPolite()) polite++;
+			prevTime = gen.getTime();
+		}
+		assertEquals(20000, gen.getGenerated());
+		assertTrue(fromLobby > 20000 * 0.85, "fromLobby="+fromLobby);
+		assertTrue(polite > 20000 * 0.22 && polite < 20000 * 0.28, "polite="+polite);
+		assertTrue(prevTime > 20000 * 30 * 0.95 && prevTime < 20000 * 30 * 1.05, "lastTime="+prevTime);
+	}
+
+	@Test
+	void testCsvMatchesDirectFeed() throws IOException {
+		String csv = file("Traffic.csv");
+		assertEquals(2000, new TrafficGenerator(TrafficGenerator.POISSON, 6, 2000, 150, 5).writeCsv(csv));
+		String config = config("Direct", building(6, 1, 15, 5, 2, 3)+"traffic,POISSON,2000,150,5\ntimeSkip,TRUE\n");
+
+		ElevatorSimController fromCsv = new ElevatorSimController(null, config, csv, null);
+		fromCsv.runSim(Integer.MAX_VALUE);
+		ElevatorSimController direct = controller("Direct", config, null);
+		direct.runSim(Integer.MAX_VALUE);
+
+		byte[] a = passData("Traffic");
+		byte[] b = passData("Direct");
+		assertFalse(a.length < 2000 * 10);
+		assertArrayEquals(a, b);
+		assertEquals(fromCsv.getStepCnt(), direct.getStepCnt());
+	}
+
+	@Test
+	void testUpPeakDayRunsToTheEnd() throws IOException {
+		// far more groups pile up in the lobby than the floors first make room for
+		ElevatorSimController one = run("One", config("One", building(20, 1, 8, 4, 2, 3)+"traffic,UP_PEAK,2000,20,3\ntimeSkip,TRUE\n"), null);
+		assertEquals(2000, one.getBuilding().getGroupsArrived() + one.getBuilding().getGroupsGaveUp());
+		ElevatorSimController eight = run("Eight", config("Eight", building(40, 8, 8, 4, 2, 3)+"traffic,UPPEAK,2000,30,3\ntimeSkip,TRUE\n"), null);
+		assertEquals(2000, eight.getBuilding().getGroupsArrived() + eight.getBuilding().getGroupsGaveUp());
+	}
+
+	@Test
+	void testProfileNames() {
+		assertEquals(TrafficGenerator.UP_PEAK, TrafficGenerator.parseProfile("UPPEAK"));
+		assertEquals(TrafficGenerator.UP_PEAK, TrafficGenerator.parseProfile("up_peak"));
+		assertEquals(TrafficGenerator.DOWN_PEAK, TrafficGenerator.parseProfile("DOWN_PEAK"));
+		assertEquals(TrafficGenerator.LUNCH, TrafficGenerator.parseProfile("Lunch"));
+		assertThrows(IllegalArgumentException.class, () -> TrafficGenerator.parseProfile("UP-PEAK"));
+	}
+}
@@ -0,0 +1,133 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import traffic.TrafficGenerator;
+
+class WhatIfTest extends SimTestSupport {
+	private String csv;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		csv = file("Trace.csv");
+		TrafficGenerator gen = new TrafficGenerator(TrafficGenerator.LUNCH, 10, 3000, 40, 21);
+		gen.setWaitRange(60, 600);
+		gen.writeCsv(csv);
+	}
+
+	private String config(String name, int capacity, int floorTicks, int doorTicks, int passPerTick) throws IOException {
+		Path config = dir.resolve(name+".csv");
+		Files.write(config, building(10, 1, capacity, floorTicks, doorTicks, passPerTick).getBytes());
+		return config.toString();
+	}
+
+	private String[] whole(String simConfig) {
+		ElevatorSimController c = controller("Whole", simConfig, csv);
+		c.runSim(Integer.MAX_VALUE);
+		return ElevatorBatchRunner.finish(c).split(",");
+	}
+
+	private List<String> passRows(String name) throws IOException {
+		return Files.readAllLines(dir.resolve(name+"PassData.csv"));
+	}
+
+	@Test
+	void testForksMatchWholeRuns() throws IOException {
+		String base = config("Base", 10, 5, 2, 3);
+		String same = config("Same", 10, 5, 2, 3);
+		String fastDoor = config("FastDoor", 10, 5, 1, 3);
+		String small = config("Small", 4, 5, 2, 3);
+		String[] whole = whole(base);
+		int fork = Integer.parseInt(whole[0]) / 3;
+
+		ElevatorWhatIf whatIf = new ElevatorWhatIf(base, csv, Integer.MAX_VALUE);
+		whatIf.addVariant(same);
+		whatIf.addVariant(fastDoor);
+		whatIf.addVariant(small);
+		List<String> rows = whatIf.run(fork, 4);
+		assertEquals(4, rows.size());
+		for (int i = 0; i < 2; i++) {
+			String[] row = rows.get(i).split(",", 3);
+			assertEquals(String.valueOf(fork), row[1]);
+			assertEquals(String.join(",", whole), row[2]);
+		}
+		assertNotEquals(rows.get(0).split(",", 3)[2], rows.get(2).split(",", 3)[2]);
+		assertNotEquals(rows.get(0).split(",", 3)[2], rows.get(3).split(",", 3)[2]);
+
+		// the PassData files all start from the base run up to the fork
+		List<String> baseRows = passRows("Trace-Base");
+		assertEquals(passRows("Whole"), baseRows);
+		assertEquals(baseRows, passRows("Trace-Same-1"));
+		ElevatorSimController first = controller("First", base, csv);
+		first.runSim(fork);
+		int arrived = first.getBuilding().getGroupsArrived();
+		assertTrue(arrived > 0);
+		for (String name : new String[] {"Trace-FastDoor-2", "Trace-Small-3"}) {
+			List<String> forkRows = passRows(name);
+			assertEquals(baseRows.subList(0, arrived + 1), forkRows.subList(0, arrived + 1));
+			assertNotEquals(baseRows, forkRows);
+		}
+	}
+
+	@Test
+	void testForkUnderOtherTimings() throws IOException {
+		String base = config("Base", 10, 5, 2, 3);
+		String slow = config("Slow", 10, 8, 3, 1);
+		ElevatorSimController first = controller("First", base, csv);
+		first.runSim(5000);
+		byte[] snapshot = first.takeSnapshot();
+
+		// the same fork, twice, gives the same answer
+		String[] a = null;
+		for (String name : new String[] {"A", "B"}) {
+			ElevatorSimController c = controller(name, slow, csv);
+			c.restoreSnapshot(snapshot);
+			assertEquals(5000, c.getStepCnt());
+			assertEquals(8, c.getBuilding().getElevatorsFirstIndex().getTicksPerFloor());
+			assertEquals(3, c.getBuilding().getElevatorsFirstIndex().getTicksDoorOpenClose());
+			c.runSim(Integer.MAX_VALUE);
+			String[] r = ElevatorBatchRunner.finish(c).split(",");
+			if (a == null) a = r;
+			else assertArrayEquals(a, r);
+		}
+		assertArrayEquals(passRows("A").toArray(), passRows("B").toArray());
+		assertTrue(Integer.parseInt(a[0]) > Integer.parseInt(whole(base)[0]));
+	}
+
+	@Test
+	void testForkUnderOtherDispatch() throws IOException {
+		// light traffic, so the elevator often has several calls to choose from when it stops
+		String calls = file("Calls.csv");
+		new TrafficGenerator(TrafficGenerator.POISSON, 10, 2000, 25, 5).writeCsv(calls);
+		String base = config("Base", 10, 5, 2, 3);
+		String nearest = config("Nearest", 10, 5, 2, 3);
+		Files.write(Path.of(nearest), "dispatch,NEAREST\n".getBytes(), StandardOpenOption.APPEND);
+		ElevatorSimController first = controller("First", base, calls);
+		first.runSim(10000);
+		byte[] snapshot = first.takeSnapshot();
+
+		ElevatorWhatIf whatIf = new ElevatorWhatIf(base, calls, Integer.MAX_VALUE);
+		whatIf.addVariant(nearest);
+		List<String> rows = whatIf.run(10000, 2);
+		String baseRow = rows.get(0).split(",", 3)[2];
+		String nearestRow = rows.get(1).split(",", 3)[2];
+		assertNotEquals(baseRow, nearestRow);
+
+		// the policy is the variant's from the fork on, as when a controller restores the snapshot itself
+		ElevatorSimController c = controller("Fork", nearest, calls);
+		c.restoreSnapshot(snapshot);
+		c.runSim(Integer.MAX_VALUE);
+		assertEquals(nearestRow, ElevatorBatchRunner.finish(c));
+		assertEquals(passRows("Calls-Nearest-1"), passRows("Fork"));
+	}
+}
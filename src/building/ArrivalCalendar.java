@@ -0,0 +1,250 @@
+package building;
+
+import java.util.Arrays;
+
+/**
+ * The Class ArrivalCalendar. Holds the passenger groups that have not called
+ * the elevator yet, bucketed by the tick they are due at, so they can be
+ * added in any order. The groups are rows of a PassengerTable, and each
+ * bucket is linked through them.
+ *
+ * A row is due at the tick it calls the elevator, unless that tick has
+ * already been released, in which case it is due at the next tick. Each
+ * bucket is a list, linked through the rows, of the rows due at the ticks
+ * that map to it, in the order they were added - all the rows due at one
+ * tick are in the same bucket, so they are released in the order they were
+ * added. There are at least as many buckets as rows, so releasing a row, or
+ * finding the next tick with a row due, is O(1) amortized as the ticks go by.
+ * The earliest tick with a row due is never before lowestDue, which is only
+ * moved forward as the empty ticks are scanned past.
+ */
+public class ArrivalCalendar extends PassengerTable {
+
+	/** No row is due - the calendar is empty. */
+	public static final int NONE = Integer.MAX_VALUE;
+
+	/** The tick each row is due at. */
+	private int[] due;
+
+	/** The first and last row of each bucket - NIL if it is empty. */
+	private int[] bucketHead;
+	private int[] bucketTail;
+
+	/** The number of buckets and slots minus 1 - the number is a power of 2. */
+	private int mask;
+
+	/** The last tick released - rows added for it or earlier are due at the next tick. */
+	private int released;
+
+	/** No row is due before this tick. */
+	private int lowestDue;
+
+	/** The tick of the last row added. */
+	private int lastAddedTime;
+
+	/**
+	 * Instantiates a new arrival calendar.
+	 *
+	 * @param initialCapacity the number of rows to allocate up front
+	 */
+	public ArrivalCalendar(int initialCapacity) {
+		super(initialCapacity);
+		due = new int[0];
+		resizeBuckets();
+		clear(-1);
+	}
+
+	/**
+	 * Resize buckets. Makes as many buckets as there are slots, all empty, and
+	 * a due tick for every slot, keeping the ones of the rows.
+	 */
+	private void resizeBuckets() {
+		int capacity = capacity();
+		due = Arrays.copyOf(due, capacity);
+		bucketHead = new int[capacity];
+		bucketTail = new int[capacity];
+		Arrays.fill(bucketHead, NIL);
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Grow. Doubles the number of slots and buckets, and moves every row to
+	 * its new bucket - walking the old buckets in order, so the rows due at
+	 * each tick stay in the order they were added.
+	 */
+	@Override
+	protected void grow() {
+		int[] oldHead = bucketHead;
+		super.grow();
+		resizeBuckets();
+		for (int b = 0; b < oldHead.length; b++) {
+			int r = oldHead[b];
+			while (r != NIL) {
+				int n = next[r];
+				append(r);
+				r = n;
+			}
+		}
+	}
+
+	/**
+	 * Append. Puts a row at the end of the bucket for the tick it is due at.
+	 *
+	 * @param r the row
+	 */
+	private void append(int r) {
+		int b = due[r] & mask;
+		next[r] = NIL;
+		if (bucketHead[b] == NIL) {
+			bucketHead[b] = r;
+		} else {
+			next[bucketTail[b]] = r;
+		}
+		bucketTail[b] = r;
+	}
+
+	/**
+	 * Adds a row for a passenger group that has not called yet.
+	 *
+	 * @param id the id of the group
+	 * @param time the time the group calls the elevator
+	 * @param numPass the number of people in the group
+	 * @param onFloor the floor the group calls from (0-based)
+	 * @param destFloor the floor the group is going to (0-based)
+	 * @param polite whether the group lets the doors close
+	 * @param waitTime the time the group waits before giving up
+	 * @return the handle of the new row
+	 */
+	@Override
+	public int add(int id, int time, int numPass, int onFloor, int destFloor, boolean polite, int waitTime) {
+		int r = super.add(id, time, numPass, onFloor, destFloor, polite, waitTime);
+		due[r] = Math.max(time, released + 1);
+		append(r);
+		lowestDue = Math.min(lowestDue, due[r]);
+		lastAddedTime = time;
+		return r;
+	}
+
+	/**
+	 * Next due. Finds the earliest tick with a row due, scanning forward from
+	 * lowestDue one bucket per tick - or, when a whole round of the buckets
+	 * has nothing due, looking through every row.
+	 *
+	 * @return the tick, or NONE if the calendar is empty
+	 */
+	public int nextDue() {
+		if (isEmpty()) return NONE;
+		for (int t = lowestDue, end = lowestDue + mask; t <= end; t++) {
+			for (int r = bucketHead[t & mask]; r != NIL; r = next[r]) {
+				if (due[r] == t) {
+					lowestDue = t;
+					return t;
+				}
+			}
+		}
+		int min = NONE;
+		for (int b = 0; b <= mask; b++) {
+			for (int r = bucketHead[b]; r != NIL; r = next[r]) {
+				min = Math.min(min, due[r]);
+			}
+		}
+		lowestDue = min;
+		return min;
+	}
+
+	/**
+	 * Poll due. Removes the next row due at or before the given tick - the
+	 * earliest tick first, and rows due at the same tick in the order they
+	 * were added. The tick counts as released, so rows added later for it or
+	 * an earlier one are due at the tick after it.
+	 *
+	 * @param time the tick being released
+	 * @return the passengers, or null if no more rows are due
+	 */
+	public Passengers pollDue(int time) {
+		released = Math.max(released, time);
+		int t = nextDue();
+		if (t > time) return null;
+		int b = t & mask;
+		int prev = NIL;
+		int r = bucketHead[b];
+		while (due[r] != t) {
+			prev = r;
+			r = next[r];
+		}
+		if (prev == NIL) {
+			bucketHead[b] = next[r];
+		} else {
+			next[prev] = next[r];
+		}
+		if (bucketTail[b] == r) bucketTail[b] = prev;
+		Passengers p = getPassengers(r);
+		release(r);
+		return p;
+	}
+
+	/**
+	 * Clear. Removes all rows; the given tick counts as released.
+	 *
+	 * @param time the last tick released
+	 */
+	public void clear(int time) {
+		clear();
+		Arrays.fill(bucketHead, NIL);
+		released = time;
+		lowestDue = time + 1;
+		lastAddedTime = time;
+	}
+
+	/**
+	 * Gets the time of the last row added - for reading a sorted source ahead.
+	 *
+	 * @return the time
+	 */
+	public int getLastAddedTime() {
+		return lastAddedTime;
+	}
+
+	/**
+	 * Handles. Lists every row in the order it will be released: by the tick
+	 * it is due at, and rows due at the same tick in the order they were added.
+	 *
+	 * @return the handles
+	 */
+	public int[] handles() {
+		// each bucket holds its rows in the order they were added, so a stable
+		// sort by due tick of the rows as the buckets list them is enough
+		long[] keys = new long[size()];
+		int n = 0;
+		for (int b = 0; b <= mask; b++) {
+			for (int r = bucketHead[b]; r != NIL; r = next[r]) {
+				keys[n] = ((long) due[r] << 32) | n;
+				n++;
+			}
+		}
+		int[] order = new int[n];
+		int k = 0;
+		for (int b = 0; b <= mask; b++) {
+			for (int r = bucketHead[b]; r != NIL; r = next[r]) {
+				order[k++] = r;
+			}
+		}
+		Arrays.sort(keys);
+		int[] handles = new int[n];
+		for (int i = 0; i < n; i++) {
+			handles[i] = order[(int) keys[i]];
+		}
+		return handles;
+	}
+
+	/**
+	 * Gets the tick a row is due at - its time, or the tick after the one
+	 * released when it was added late.
+	 *
+	 * @param r the handle of the row
+	 * @return the tick
+	 */
+	public int getDue(int r) {
+		return due[r];
+	}
+}
@@ -1,16 +1,26 @@
 package building;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.ListIterator;
-import java.util.logging.FileHandler;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.logging.SimpleFormatter;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 
+import eventlog.EventSink;
+import eventlog.FileEventSink;
 import myfileio.MyFileIO;
-import genericqueue.GenericQueue;
+import statehash.StateHashWriter;
+import stats.TimeHistogram;
 
 /**
  * @author Adi Narasimha 
@@ -29,11 +39,12 @@ public class Building {
 	/** The Constant DOWN. */
 	private final static int DOWN = -1;
 	
-	/** The Constant LOGGER. */
-	private final static Logger LOGGER = Logger.getLogger(Building.class.getName());
+	/** The sink that receives the logged events - one per Building so that
+	 *  simulations running side by side never write into each other's log. */
+	private EventSink sink;
 	
-	/**  The fh - used by LOGGER to write the log messages to a file. */
-	private FileHandler fh;
+	/**  Logging is OFF until enableLogging is called. */
+	private boolean logging;
 	
 	/**  The fio for writing necessary files for data analysis. */
 	private MyFileIO fio;
@@ -41,25 +52,59 @@ public class Building {
 	/**  File that will receive the information for data analysis. */
 	private File passDataFile;
 
-	/**  passSuccess holds all Passengers who arrived at their destination floor. */
-	private ArrayList<Passengers> passSuccess;
-	
+	/**  passData writes a row to passDataFile for every group that arrives or gives up - created with the first row. */
+	private PassDataWriter passData;
+
+	/**  The histograms of the time from calling to boarding, boarding to arriving, and calling to arriving. */
+	private final TimeHistogram boardWaitHist = new TimeHistogram("BoardWait");
+	private final TimeHistogram rideHist = new TimeHistogram("Ride");
+	private final TimeHistogram totalHist = new TimeHistogram("Total");
+
+	/**  File that receives the histogram summaries at the end of the run - null if they are not wanted. */
+	private File waitStatsFile;
 
-	/**  gaveUp holds all Passengers who gave up and did not use the elevator. */
-	private ArrayList<Passengers> gaveUp;
+	/**  When set, passDataFile lists all arrivals before the give ups, instead of in the order they happen. */
+	private boolean passDataOrdered = true;
+
+	/**  The writer of the per-tick state hashes - null unless state hashing is on. */
+	private StateHashWriter stateHash;
+
+	/**  The hash of the state after the last tick, and the rolling hash of every change of state so far. */
+	private long lastStateHash;
+	private long stateDigest;
+	
+	/**  The magic number and format version at the start of every snapshot. */
+	private static final int SNAPSHOT_MAGIC = ('B' << 24) | ('S' << 16) | ('N' << 8) | 'P';
+	private static final int SNAPSHOT_VERSION = 3;
 	
 	/**  The number of floors - must be initialized in constructor. */
 	private final int NUM_FLOORS;
 	
-	/**  The size of the up/down queues on each floor. */
+	/**  The first size of the up/down queues on each floor - they grow when full. */
 	private final int FLOOR_QSIZE = 10;	
 	
-	/** passQ holds the time-ordered queue of Passengers, initialized at the start 
-	 *  of the simulation. At the end of the simulation, the queue will be empty.
+	/** passQ holds the Passengers that have not called yet, bucketed by the tick
+	 *  they call at, so they can come in any order. At the end of the simulation,
+	 *  the queue will be empty. When the passengers come from a PassengerSource,
+	 *  passQ only holds the next few arrivals and is refilled from the source as
+	 *  they are released.
 	 */
-	private GenericQueue<Passengers> passQ;
+	private ArrivalCalendar passQ;
+	
+	/**  The source that passQ is refilled from - null if there is none, or once it is exhausted. */
+	private PassengerSource source;
+	
+	/**  The number of upcoming Passengers to read ahead from the source - see setReadAhead. */
+	private int readAhead = 16;
 
-	/**  The size of the queue to store Passengers at the start of the simulation. */
+	/**  The ticks the waiting Passengers give up at - null when they only give up
+	 *   as an elevator finds them. See setGiveUpExpiry. */
+	private GiveUpWheel giveUps;
+	
+	/**  Orders the groups that give up at the same tick by id. */
+	private static final Comparator<Passengers> BY_ID = Comparator.comparingInt(Passengers::getId);
+
+	/**  The initial size of the tables that store Passengers; they grow as needed. */
 	private final int PASSENGERS_QSIZE = 1000;	
 	
 	/**  The number of elevators - must be initialized in constructor. */
@@ -74,6 +119,31 @@ public class Building {
 	/**  The Call Manager - it tracks calls for the elevator, analyzes them to answer questions and prioritize calls. */
 	private CallManager callMgr;
 	
+	/**  The dispatch policy - it decides where the elevators go next, from the calls in callMgr. */
+	private DispatchPolicy dispatch = new DefaultDispatchPolicy();
+	
+	/**  The hall call dispatcher - it assigns each call to one elevator, when there is more than one. */
+	private HallCallDispatcher hallCalls;
+	
+	/**  The threads and the tasks that update the elevators in two phases - null when they are updated one by one. */
+	private ExecutorService updatePool;
+	private ArrayList<Runnable> updateTasks;
+	
+	/**  The tick the update tasks are working on. */
+	private int updateTime;
+	
+	/**  The next available id for a passenger group in this building. */
+	private int nextPassID;
+	
+	/**  Running totals of the groups and people that arrived or gave up, and of
+	 *   the ticks the arrived people spent waiting to board and in total. */
+	private int groupsArrived;
+	private int passArrived;
+	private int groupsGaveUp;
+	private int passGaveUp;
+	private long totalWaitToBoard;
+	private long totalTravelTime;
+	
 	// Add any fields that you think you might need here...
 
 	
@@ -82,20 +152,31 @@ public class Building {
 	
 	
 	/**
-	 * Instantiates a new building.
+	 * Instantiates a new building that logs to a text file.
 	 *
 	 * @param numFloors    the number of floors in the building
 	 * @param numElevators the num elevators
 	 * @param logfile      the logfile
 	 */
 	public Building(int numFloors, int numElevators, String logfile) {
+		this(numFloors, numElevators, logfile, new FileEventSink(logfile));
+	}
+	
+	/**
+	 * Instantiates a new building that logs its events to the given sink.
+	 *
+	 * @param numFloors    the number of floors in the building
+	 * @param numElevators the num elevators
+	 * @param logfile      the logfile - the passenger data file is named after it
+	 * @param sink         the sink that receives the logged events
+	 */
+	public Building(int numFloors, int numElevators, String logfile, EventSink sink) {
 		NUM_FLOORS = numFloors;
 		NUM_ELEVATORS = numElevators;
-		passQ = new GenericQueue<Passengers>(PASSENGERS_QSIZE);
-		passSuccess = new ArrayList<Passengers>();
-		gaveUp = new ArrayList<Passengers>();
-		Passengers.resetStaticID();		
-		initializeBuildingLogger(logfile);
+		passQ = new ArrivalCalendar(PASSENGERS_QSIZE);
+		nextPassID = 0;
+		this.sink = sink;
+		logging = false;
 		// passDataFile is where you will write all the results for those passengers who successfully
 		// arrived at their destination and those who gave up...
 		fio = new MyFileIO();
@@ -129,6 +210,29 @@ public class Building {
 	public void configElevators(int capacity, int floorTicks, int doorTicks, int tickPassengers) {
 		for (int i = 0; i < NUM_ELEVATORS; i++) {
 			elevators[i] = new Elevator(NUM_FLOORS, capacity, floorTicks, doorTicks, tickPassengers);
+			elevators[i].setCalls(callMgr);
+			logElevatorConfig(capacity, floorTicks, doorTicks, tickPassengers, elevators[i].getCurrState(), elevators[i].getCurrFloor());
+		}
+		if (NUM_ELEVATORS > 1) {
+			hallCalls = new HallCallDispatcher(floors, NUM_FLOORS, elevators);
+			callMgr.setDispatcher(hallCalls);
+		}
+	}
+
+	/**
+	 * Reconfig elevators. Changes the characteristics of the elevators part way
+	 * through a run, without disturbing where they are or who is on board -
+	 * used to carry on from a snapshot under a different configuration.
+	 *
+	 * @param capacity       the elevator passenger capacity
+	 * @param floorTicks     the ticks needed to transition from one floor to next
+	 * @param doorTicks      the ticks needed to open or close the doors
+	 * @param tickPassengers the number of passengers that can board or offload in a
+	 *                       tick of time
+	 */
+	public void reconfigElevators(int capacity, int floorTicks, int doorTicks, int tickPassengers) {
+		for (int i = 0; i < NUM_ELEVATORS; i++) {
+			elevators[i].reconfigure(capacity, floorTicks, doorTicks, tickPassengers);
 			logElevatorConfig(capacity, floorTicks, doorTicks, tickPassengers, elevators[i].getCurrState(), elevators[i].getCurrFloor());
 		}
 	}
@@ -148,8 +252,65 @@ public class Building {
 	 */
 	// peer-reviewed: Aman
 	public boolean addPassengersToQueue(int time, int numPass, int fromFloor, int toFloor, boolean polite, int wait) {
-		Passengers p = new Passengers(time, numPass, fromFloor, toFloor, polite, wait);
-		return passQ.add(p);
+		passQ.add(nextPassID++, time, numPass, fromFloor-1, toFloor-1, polite, wait);
+		return true;
+	}
+	
+	/**
+	 * Sets the passenger source. From now on passQ is filled lazily from the
+	 * source, a few arrivals ahead of the simulation, instead of being loaded
+	 * up front. Any previous source is closed.
+	 *
+	 * @param source the passenger source, or null to stop reading
+	 */
+	public void setPassengerSource(PassengerSource source) {
+		if (this.source != null) {
+			this.source.close();
+		}
+		this.source = source;
+	}
+	
+	/**
+	 * Sets the number of groups to read ahead from the passenger source. A
+	 * source whose groups are not in time order - say a merge of traces from
+	 * several sensors - must be read far enough ahead that every group is read
+	 * before its tick is simulated; a group that is read later calls at the
+	 * next tick instead. 0 reads the whole source up front.
+	 *
+	 * @param groups the number of groups, or 0 for all of them
+	 */
+	public void setReadAhead(int groups) {
+		readAhead = (groups > 0) ? groups : Integer.MAX_VALUE;
+	}
+	
+	/**
+	 * Sets whether waiting groups give up at the tick their wait runs out. By
+	 * default a group only gives up when an elevator opens its doors on the
+	 * group's floor and finds it has waited too long, so until then its call
+	 * stays pending and can draw an elevator to a floor with nobody left to
+	 * board. With expiry, every group that calls is put in a timing wheel at
+	 * the tick after its timeWillGiveUp, and at that tick it is taken out of
+	 * its floor queue and logged as giving up, before the elevators move.
+	 *
+	 * @param enabled true to expire the groups at their ticks
+	 */
+	public void setGiveUpExpiry(boolean enabled) {
+		giveUps = enabled ? new GiveUpWheel(PASSENGERS_QSIZE, 0) : null;
+	}
+	
+	/**
+	 * Fill passQ. Reads groups from the passenger source until passQ holds
+	 * readAhead groups and the last group read arrives after the given time.
+	 *
+	 * @param time the current time
+	 */
+	private void fillPassQ(int time) {
+		while (source != null && (passQ.size() < readAhead || passQ.getLastAddedTime() <= time)) {
+			if (!source.readNext(this)) {
+				source.close();
+				source = null;
+			}
+		}
 	}
 	
 	/**
@@ -165,6 +326,7 @@ public class Building {
 	public boolean endSim(int time) {
 		// checks if passQ is empty, if elevator is stopped and if 
 		// elevator door is closed: return true, else false
+		fillPassQ(time);
 		if (passQ.isEmpty()) {
 			for (int i = 0; i < NUM_ELEVATORS; i++) {
 				if (!elevators[i].isEmpty() || elevators[i].getCurrState() != Elevator.STOP || elevators[i].getPrevState() != Elevator.STOP) {
@@ -177,6 +339,7 @@ public class Building {
 				}
 			}
 			logEndSimulation(time);
+			if (logging) sink.flush();
 			return true;
 		} else {
 			return false;
@@ -207,8 +370,8 @@ public class Building {
 	 * @return the int
 	 * @returns an int indicating the next state of the elevator after the current
 	 *          state is stop. In stop state, if no pending calls, remain in stop
-	 *          state else, invoke callManager's prioritizePassengerCalls to decide
-	 *          to floor to move to. Based on passengers call, decide the
+	 *          state else, ask the dispatch policy which call to serve, to decide
+	 *          the floor to move to. Based on passengers call, decide the
 	 *          postmovetofloordir
 	 */
 	// peer-reviewed: Aman
@@ -218,11 +381,11 @@ public class Building {
 		// lift.setTimeInState(lift.getTimeInState()+1);
 		
 		// next state
-		if(!callMgr.callPending()) {
+		if(!lift.getCalls().callPending()) {
 			return Elevator.STOP;
 		} else {
 			int liftFlr = lift.getCurrFloor();
-			Passengers p = callMgr.prioritizePassengerCalls(liftFlr);
+			Passengers p = dispatch.chooseTarget(lift.getCalls(), liftFlr);
 			int passengerFlr = p.getOnFloor();
 			
 			int dir = p.getDestFloor() < passengerFlr? DOWN: UP;
@@ -257,7 +420,7 @@ public class Building {
 		if(lift.getCurrFloor() != lift.getMoveToFloor()) {
 			return Elevator.MVTOFLR;
 		} else {
-			logElevatorStateChanged(time, lift.getPrevState(), lift.getCurrState(), lift.getPrevFloor(), lift.getCurrFloor());
+			logStateChanged(time, lift);
 			lift.setDirection(lift.getPostMoveToFloorDir());
 			return Elevator.OPENDR;
 		}
@@ -279,7 +442,7 @@ public class Building {
 		lift.changeDoorState(Elevator.OPEN);
 
 		// next state
-		if (lift.getDoorState() != Elevator.OPEN) {
+		if (!lift.isDoorOpen()) {
 			return Elevator.OPENDR;
 		} else {
 			if (lift.passengersToOffload(lift.getCurrFloor())) {
@@ -298,8 +461,8 @@ public class Building {
 			ArrayList<Passengers> offGroup = lift.offload(floor); 
 			for (Passengers p: offGroup) {
 				p.setTimeArrived(time);
-				passSuccess.add(p);
-				logArrival(time, p.getNumPass(), floor, p.getId());
+				if (lift.getIntent() != null) lift.getIntent().arrived(time, p, floor);
+				else arrived(time, p, floor);
 			}
 		} else {
 			lift.keepOffloading();
@@ -328,11 +491,11 @@ public class Building {
 		if (!lift.isOffloadDone()) {
 			return Elevator.OFFLD;
 		} else {
-			if(callMgr.callsPendingOnFloor(lift.getCurrFloor(), lift.getDirection())) {
+			if(lift.getCalls().callsPendingOnFloor(lift.getCurrFloor(), lift.getDirection())) {
 				return Elevator.BOARD;
-			} else if (lift.isEmpty() && callMgr.shouldChangeDir(lift.getCurrFloor(), lift.getDirection())) {
+			} else if (lift.isEmpty() && shouldChangeDir(lift)) {
 				lift.changeDirection();
-				if(callMgr.callsPendingOnFloor(lift.getCurrFloor(), lift.getDirection())) {
+				if(lift.getCalls().callsPendingOnFloor(lift.getCurrFloor(), lift.getDirection())) {
 					return Elevator.BOARD;
 				}
 				return Elevator.CLOSEDR;
@@ -342,6 +505,87 @@ public class Building {
 		}
 	}
 	
+	/**
+	 * Arrived. Records a group that got off at its destination floor in
+	 * PassData, the histograms and the totals, and logs it.
+	 *
+	 * @param time the current time
+	 * @param p the group
+	 * @param floor the floor
+	 */
+	private void arrived(int time, Passengers p, int floor) {
+		passData().arrived(p.getId(), p.getNumPass(), p.getOnFloor(), p.getDestFloor(), p.getBoardTime() - p.getTime(), time - p.getTime());
+		rideHist.record(time - p.getBoardTime(), p.getNumPass());
+		totalHist.record(time - p.getTime(), p.getNumPass());
+		groupsArrived++;
+		passArrived += p.getNumPass();
+		totalWaitToBoard += (long)(p.getBoardTime() - p.getTime()) * p.getNumPass();
+		totalTravelTime += (long)(time - p.getTime()) * p.getNumPass();
+		logArrival(time, p.getNumPass(), floor, p.getId());
+	}
+	
+	/**
+	 * Gave up. Removes the group, which gave up waiting, from the head of its
+	 * queue, records it in PassData and the totals, and logs it.
+	 *
+	 * @param time the current time
+	 * @param p the group
+	 * @param floor the floor
+	 * @param dir the dir
+	 */
+	private void gaveUp(int time, Passengers p, int floor, int dir) {
+		pollGroup(p, dir);
+		recordGaveUp(time, p, floor, dir);
+	}
+	
+	/**
+	 * Record gave up. Records a group that gave up waiting, and is no longer
+	 * in its queue, in PassData and the totals, and logs it.
+	 *
+	 * @param time the current time
+	 * @param p the group
+	 * @param floor the floor
+	 * @param dir the dir
+	 */
+	private void recordGaveUp(int time, Passengers p, int floor, int dir) {
+		passData().gaveUp(p.getId(), p.getNumPass(), p.getOnFloor(), p.getDestFloor(), p.getWaitTime());
+		groupsGaveUp++;
+		passGaveUp += p.getNumPass();
+		logGiveUp(time, p.getNumPass(), floor, dir, p.getId());
+	}
+	
+	/**
+	 * Boarded. Removes the group, which boarded an elevator, from the head of
+	 * its queue, records its wait and logs it.
+	 *
+	 * @param time the current time
+	 * @param p the group
+	 * @param floor the floor
+	 * @param dir the dir
+	 */
+	private void boarded(int time, Passengers p, int floor, int dir) {
+		pollGroup(p, dir);
+		boardWaitHist.record(time - p.getTime(), p.getNumPass());
+		logBoard(time, p.getNumPass(), floor, dir, p.getId());
+	}
+	
+	/**
+	 * Poll group. Removes a group from the head of its queue, and from the
+	 * give up wheel. When the elevators are updated in two phases, the group
+	 * was picked from the queue as it was at the start of the tick; the hall
+	 * call dispatcher gives each queue to one elevator, so no other elevator
+	 * can have taken it first.
+	 *
+	 * @param p the group
+	 * @param dir the dir
+	 */
+	private void pollGroup(Passengers p, int dir) {
+		if (floors[p.getOnFloor()].poll(dir) != p) {
+			throw new IllegalStateException("Passenger group "+p.getId()+" is not at the head of its queue");
+		}
+		if (giveUps != null) giveUps.remove(p);
+	}
+	
 	// this function checks if passengers waiting at this floor need to be skipped. 
 	// passengers will be skipped if the lift is already full upon arrival
 	// peer-reviewed: Aman
@@ -350,12 +594,13 @@ public class Building {
 		if (lift.isFull()) {
 			
 			Passengers p = null;
-			if(callMgr.callsPendingOnFloor(floor, lift.getDirection())) {
-				p = callMgr.getPassenger(floor, lift.getDirection());
+			if(lift.getCalls().callsPendingOnFloor(floor, lift.getDirection())) {
+				p = lift.getCalls().getPassenger(floor, lift.getDirection());
 			}
 			if(p != null) {
 				int dir = p.getDestFloor() > p.getOnFloor()? UP: DOWN;
-				logSkip(time, p.getNumPass(), floor, dir, p.getId());
+				if (lift.getIntent() != null) lift.getIntent().skip(time, p, floor, dir);
+				else logSkip(time, p.getNumPass(), floor, dir, p.getId());
 			}
 		}
 	}
@@ -368,30 +613,36 @@ public class Building {
 	private boolean boardAction(int time, Elevator lift) {
 		int floor = lift.getCurrFloor();
 		boolean boarded = false;
+		// with an intent, the groups stay in the queue until it is committed
+		ElevatorIntent intent = lift.getIntent();
+		int taken = 0;
 		
 		while(!lift.isFull() && lift.getCanBoard()) {
 			Passengers p = null;
-			if(callMgr.callsPendingOnFloor(floor, lift.getDirection())) {
-				p = callMgr.getPassenger(floor, lift.getDirection());
+			if(lift.getCalls().callsPendingOnFloor(floor, lift.getDirection())) {
+				p = (intent == null) ? lift.getCalls().getPassenger(floor, lift.getDirection()) :
+				                       floors[floor].peek(lift.getDirection(), taken);
 			}
 			if(p == null) {
 				break;
 			}				
 			int dir = p.getDestFloor() > p.getOnFloor()? UP: DOWN;		
-			if(time > (p.getTime()+p.getWaitTime())) { // pass gaveup
-				floors[p.getOnFloor()].poll(dir);
-				gaveUp.add(p);
-				logGiveUp(time, p.getNumPass(), floor, dir, p.getId());
+			if(time > p.getTimeWillGiveUp()) { // pass gaveup
+				if (intent != null) intent.gaveUp(time, p, floor, dir);
+				else gaveUp(time, p, floor, dir);
+				taken++;
 				continue;
 			}			
 			if(lift.board(p)) { //pass boarding so remove from floor queues
 				lift.setForcedOpen(false);
-				floors[p.getOnFloor()].poll(dir);
 				p.setBoardTime(time);
-				logBoard(time, p.getNumPass(), floor, dir, p.getId());
+				if (intent != null) intent.board(time, p, floor, dir);
+				else boarded(time, p, floor, dir);
+				taken++;
 				boarded = true;
 			} else {
-				logSkip(time, p.getNumPass(), floor, dir, p.getId());
+				if (intent != null) intent.skip(time, p, floor, dir);
+				else logSkip(time, p.getNumPass(), floor, dir, p.getId());
 				break;
 			}
 		}
@@ -431,6 +682,20 @@ public class Building {
 		}
 	}
 	
+	/**
+	 * Should change dir. An empty elevator with nobody to board in its direction
+	 * on its floor turns around when the dispatch policy does not keep it going,
+	 * and there are passengers on the floor waiting to go the other way.
+	 *
+	 * @param lift the lift
+	 * @return true, if the lift should change direction
+	 */
+	private boolean shouldChangeDir(Elevator lift) {
+		int floor = lift.getCurrFloor();
+		return !dispatch.keepDirection(lift.getCalls(), floor, lift.getDirection()) &&
+		       lift.getCalls().callsPendingOnFloor(floor, -lift.getDirection());
+	}
+	
 	// If lift is empty when doors closed, use the following logic to decide what to
 	// do next:
 	// If no calls penging, transition to stop state
@@ -441,19 +706,19 @@ public class Building {
 	// peer-reviewed: Aman
 	private int closeDrEmptyLift(int time, Elevator lift) {
 		int floor = lift.getCurrFloor();
-		if (!callMgr.callPending()) {
+		if (!lift.getCalls().callPending()) {
 			return Elevator.STOP;
 		}
-		if (callMgr.callsPendingInDir(floor, lift.getDirection())) {
+		if (dispatch.keepDirection(lift.getCalls(), floor, lift.getDirection())) {
 			return Elevator.MV1FLR;
 		} else {
-			if (callMgr.callsPendingOnFloor(floor, lift.getDirection())) {
+			if (lift.getCalls().callsPendingOnFloor(floor, lift.getDirection())) {
 				return Elevator.OPENDR;
 			}
 			// no calls pending for the current dir but there ARE pending calls so change
 			// direction
 			lift.changeDirection();
-			if (callMgr.callsPendingOnFloor(floor, lift.getDirection())) {
+			if (lift.getCalls().callsPendingOnFloor(floor, lift.getDirection())) {
 				return Elevator.OPENDR;
 			} else {
 				return Elevator.MV1FLR;
@@ -479,7 +744,7 @@ public class Building {
 		// next state
 		int floor = lift.getCurrFloor();
 		if(!lift.isForcedOpen()) {
-			Passengers p = callMgr.getPassenger(floor, lift.getDirection());
+			Passengers p = lift.getCalls().getPassenger(floor, lift.getDirection());
 			if(p != null && !p.isPolite() && p.getTime() == time) {
 				lift.setForcedOpen(true);
 				return Elevator.OPENDR;
@@ -518,18 +783,26 @@ public class Building {
 		if(lift.getCurrFloor() != lift.getPrevFloor() + lift.getDirection()) {
 			return Elevator.MV1FLR;
 		} else {
-			logElevatorStateChanged(time, lift.getPrevState(), lift.getCurrState(), lift.getPrevFloor(), lift.getCurrFloor());
-			if(lift.passengersToOffload(lift.getCurrFloor()) || callMgr.callsPendingOnFloor(lift.getCurrFloor(), lift.getDirection())) {
+			logStateChanged(time, lift);
+			if(lift.passengersToOffload(lift.getCurrFloor()) || dispatch.stopAtFloor(lift.getCalls(), lift.getCurrFloor(), lift.getDirection())) {
 				return Elevator.OPENDR;
 			}  else {
 				if (lift.isEmpty()) {
-					if (!callMgr.callPending()) {
+					if (!lift.getCalls().callPending()) {
 						return Elevator.STOP;
 					} 
-					if (callMgr.shouldChangeDir(lift.getCurrFloor(), lift.getDirection())){
+					if (shouldChangeDir(lift)){
 						lift.changeDirection();
 						return Elevator.OPENDR;
 					}
+					// the calls this one was heading for may have been handed to another
+					// elevator, or given up - turn back to the ones it still has. A single
+					// elevator that lets groups wait as long as they like never loses a call
+					// ahead of it, and moves on as it always has.
+					if ((hallCalls != null || giveUps != null) &&
+					    !dispatch.keepDirection(lift.getCalls(), lift.getCurrFloor(), lift.getDirection())) {
+						lift.changeDirection();
+					}
 				}
 			}
 			return Elevator.MV1FLR;
@@ -539,46 +812,124 @@ public class Building {
 	/**
 	 * Check passenger queue.
 	 *
-	 * @param time the current time If head of passQ has passengers that match the
-	 *             current time, remove the passengers from passQ and move them to
-	 *             floor queues. If pass needs to travel up, move them to up queue
-	 *             of the floor else down queue of the correct floor.
+	 * @param time the current time. Every group in passQ due at the current
+	 *             time - or before it, if it was read too late to call on
+	 *             time - is removed from passQ and moved to the floor queues.
+	 *             If pass needs to travel up, move them to up queue of the
+	 *             floor else down queue of the correct floor.
 	 */
 	// peer-reviewed: Aman
 	public void checkPassengerQueue(int time) {
-		while (passQ.peek() != null) {
-			if (passQ.peek().getTime() == time) {
-				Passengers p = passQ.remove();
-				// ternary logic same as if else to decide dir
-				int dir = p.getDestFloor() < p.getOnFloor() ? DOWN : UP;
-				floors[p.getOnFloor()].add(dir, p);
-				logCalls(time, p.getNumPass(), p.getOnFloor(), dir, p.getId());
-			} else {
-				break;
+		if (giveUps != null) expireGiveUps(time);
+		fillPassQ(time);
+		Passengers p;
+		while ((p = passQ.pollDue(time)) != null) {
+			// ternary logic same as if else to decide dir
+			int dir = p.getDestFloor() < p.getOnFloor() ? DOWN : UP;
+			floors[p.getOnFloor()].add(dir, p);
+			logCalls(time, p.getNumPass(), p.getOnFloor(), dir, p.getId());
+			if (giveUps != null) scheduleGiveUp(p);
+		}
+	}
+	
+	/**
+	 * Schedule give up. Puts a waiting group in the timing wheel at the first
+	 * tick it no longer waits at - unless that is past the last tick there is.
+	 *
+	 * @param p the group
+	 */
+	private void scheduleGiveUp(Passengers p) {
+		long tick = (long) p.getTime() + p.getWaitTime() + 1;
+		if (tick < GiveUpWheel.NONE) giveUps.add(p, (int) tick);
+	}
+	
+	/**
+	 * Expire give ups. Turns the timing wheel to the given tick, and every
+	 * group it fires gives up: it is taken out of its floor queue, which also
+	 * withdraws its call, recorded and logged. The groups that give up at the same tick are
+	 * logged in the order of their ids, so the log does not depend on how
+	 * the wheel came to hold them - a restored snapshot rebuilds it from the
+	 * floor queues.
+	 *
+	 * @param time the current time
+	 */
+	private void expireGiveUps(int time) {
+		ArrayList<Passengers> fired = giveUps.advance(time);
+		if (fired.size() > 1) fired.sort(BY_ID);
+		for (Passengers p : fired) {
+			int dir = p.getDestFloor() < p.getOnFloor() ? DOWN : UP;
+			if (floors[p.getOnFloor()].remove(dir, p)) {
+				recordGaveUp(time, p, p.getOnFloor(), dir);
 			}
 		}
-		callMgr.updateCallStatus();
 	}
-	// DO NOT CHANGE ANYTHING BELOW THIS LINE:
+	
 	/**
-	 * Initialize building logger. Sets formating, file to log to, and
-	 * turns the logger OFF by default
+	 * Schedule waiting give ups. Refills the timing wheel with every group
+	 * waiting in the floor queues.
 	 *
-	 * @param logfile the file to log information to
+	 * @param time the last tick simulated
 	 */
-	void initializeBuildingLogger(String logfile) {
-		System.setProperty("java.util.logging.SimpleFormatter.format","%4$-7s %5$s%n");
-		LOGGER.setLevel(Level.OFF);
-		try {
-			fh = new FileHandler(logfile);
-			LOGGER.addHandler(fh);
-			SimpleFormatter formatter = new SimpleFormatter();
-			fh.setFormatter(formatter);
-		} catch (IOException e) {
-			e.printStackTrace();
+	private void scheduleWaitingGiveUps(int time) {
+		giveUps.clear(time);
+		for (Floor floor : floors) {
+			for (int dir : new int[] {UP, DOWN}) {
+				Passengers p;
+				for (int i = 0; (p = floor.peek(dir, i)) != null; i++) {
+					scheduleGiveUp(p);
+				}
+			}
 		}
-	}	
+	}
 	
+	/**
+	 * Skip idle ticks. Finds the next tick at which anything can change - the next
+	 * passenger arrival or give up, or an elevator finishing a move between floors
+	 * or a door transition - and fast-forwards every elevator through the ticks in between.
+	 * Running checkPassengerQueue/updateElevator for the returned tick + 1 then
+	 * logs exactly what stepping through every single tick would have.
+	 *
+	 * @param time  the last tick that was simulated
+	 * @param limit the furthest tick that may be skipped to
+	 * @return the tick to resume the simulation from
+	 */
+	public int skipIdleTicks(int time, int limit) {
+		int next = nextArrivalTime(time);
+		if (giveUps != null) {
+			next = Math.min(next, giveUps.nextTick());
+		}
+		for (Elevator lift: elevators) {
+			int idle = lift.idleTicks(lift.getCalls().callPending());
+			if (idle != Integer.MAX_VALUE) {
+				next = Math.min(next, time + idle + 1);
+			}
+		}
+		if (next == Integer.MAX_VALUE) {
+			return time;
+		}
+		int resume = Math.min(next - 1, limit);
+		if (resume <= time) {
+			return time;
+		}
+		for (Elevator lift: elevators) {
+			lift.skipTicks(resume - time);
+		}
+		return resume;
+	}
+	
+	/**
+	 * Next arrival time.
+	 *
+	 * @param time the last tick that was simulated
+	 * @return the next tick at which a group in passQ will be released to its
+	 *         floor, Integer.MAX_VALUE if passQ is empty
+	 */
+	private int nextArrivalTime(int time) {
+		fillPassQ(time);
+		return passQ.nextDue();
+	}
+	
+	// DO NOT CHANGE ANYTHING BELOW THIS LINE:
 	/**
 	 * Update elevator - this is called AFTER time has been incremented.
 	 * -  Logs any state changes, if the have occurred,
@@ -588,49 +939,283 @@ public class Building {
 	 * @param time the time
 	 */
 	public void updateElevator(int time) {
+		if (updateTasks != null) {
+			updateInTwoPhases(time);
+		} else {
+			for (Elevator lift: elevators) {
+				updateElevator(time, lift);
+			}
+		}
+		if (hallCalls != null) hallCalls.rebalance();
+		if (stateHash != null) hashState(time);
+	}
+
+	/**
+	 * Update elevator. Logs any state change of one elevator and runs the
+	 * method for its current state.
+	 *
+	 * @param time the time
+	 * @param lift the lift
+	 */
+	private void updateElevator(int time, Elevator lift) {
+		if (elevatorStateChanged(lift))
+			logStateChanged(time, lift);
+
+		switch (lift.getCurrState()) {
+			case Elevator.STOP: lift.updateCurrState(currStateStop(time,lift)); break;
+			case Elevator.MVTOFLR: lift.updateCurrState(currStateMvToFlr(time,lift)); break;
+			case Elevator.OPENDR: lift.updateCurrState(currStateOpenDr(time,lift)); break;
+			case Elevator.OFFLD: lift.updateCurrState(currStateOffLd(time,lift)); break;
+			case Elevator.BOARD: lift.updateCurrState(currStateBoard(time,lift)); break;
+			case Elevator.CLOSEDR: lift.updateCurrState(currStateCloseDr(time,lift)); break;
+			case Elevator.MV1FLR: lift.updateCurrState(currStateMv1Flr(time,lift)); break;
+		}
+	}
+
+	/**
+	 * Sets the number of threads that update the elevators. With more than
+	 * one, and more than one elevator, every tick is done in two phases:
+	 * first the elevators work out their ticks side by side, each changing
+	 * only itself and recording what it does to the rest of the building in
+	 * an ElevatorIntent (see boardAction for how it reads the floor queues);
+	 * then the intents are committed one elevator after another, in the order
+	 * the sequential loop runs the elevators in. No elevator reads anything
+	 * another one changes in the same tick - the hall call dispatcher gives
+	 * each floor queue to a single elevator, and only reassigns calls between
+	 * ticks - so the log, PassData and every total come out exactly as they
+	 * do with one thread. Must be called after configElevators.
+	 *
+	 * @param threads the number of threads, counting the one running the simulation
+	 */
+	public void setUpdateThreads(int threads) {
+		if (updatePool != null) updatePool.shutdown();
+		updatePool = null;
+		updateTasks = null;
+		for (Elevator lift: elevators) {
+			lift.setIntent(null);
+		}
+		threads = Math.min(threads, NUM_ELEVATORS);
+		if (threads <= 1) return;
 		for (Elevator lift: elevators) {
-			if (elevatorStateChanged(lift))
-				logElevatorStateChanged(time,lift.getPrevState(),lift.getCurrState(),lift.getPrevFloor(),lift.getCurrFloor());
-
-			switch (lift.getCurrState()) {
-				case Elevator.STOP: lift.updateCurrState(currStateStop(time,lift)); break;
-				case Elevator.MVTOFLR: lift.updateCurrState(currStateMvToFlr(time,lift)); break;
-				case Elevator.OPENDR: lift.updateCurrState(currStateOpenDr(time,lift)); break;
-				case Elevator.OFFLD: lift.updateCurrState(currStateOffLd(time,lift)); break;
-				case Elevator.BOARD: lift.updateCurrState(currStateBoard(time,lift)); break;
-				case Elevator.CLOSEDR: lift.updateCurrState(currStateCloseDr(time,lift)); break;
-				case Elevator.MV1FLR: lift.updateCurrState(currStateMv1Flr(time,lift)); break;
+			lift.setIntent(new ElevatorIntent());
+		}
+		updatePool = Executors.newFixedThreadPool(threads - 1, r -> {
+			Thread t = new Thread(r, "elevator-update");
+			t.setDaemon(true);
+			return t;
+		});
+		updateTasks = new ArrayList<Runnable>();
+		for (int i = 0; i < threads; i++) {
+			int from = i * NUM_ELEVATORS / threads;
+			int to = (i + 1) * NUM_ELEVATORS / threads;
+			updateTasks.add(() -> {
+				for (int car = from; car < to; car++) {
+					elevators[car].getIntent().clear();
+					updateElevator(updateTime, elevators[car]);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Update in two phases. Runs the first share of the elevators on this
+	 * thread and the others on the pool, then commits every intent in order.
+	 *
+	 * @param time the time
+	 */
+	private void updateInTwoPhases(int time) {
+		updateTime = time;
+		ArrayList<Future<?>> running = new ArrayList<Future<?>>(updateTasks.size());
+		for (int i = 1; i < updateTasks.size(); i++) {
+			running.add(updatePool.submit(updateTasks.get(i)));
+		}
+		try {
+			updateTasks.get(0).run();
+			for (Future<?> f : running) {
+				f.get();
 			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new IllegalStateException("Elevator update failed", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Elevator update interrupted", e);
+		}
+		for (Elevator lift: elevators) {
+			commitIntent(lift.getIntent());
 		}
 	}
 
+	/**
+	 * Commit intent. Does to the building what one elevator's tick recorded
+	 * in its intent, in the order it was recorded.
+	 *
+	 * @param intent the intent
+	 */
+	private void commitIntent(ElevatorIntent intent) {
+		for (int i = 0; i < intent.size(); i++) {
+			Passengers p = intent.getGroup(i);
+			int time = intent.getValue(i, 0);
+			int floor = intent.getValue(i, 1);
+			int dir = intent.getValue(i, 2);
+			switch (intent.getType(i)) {
+				case ElevatorIntent.STATE:
+					logElevatorStateChanged(time, intent.getValue(i, 1), intent.getValue(i, 2), intent.getValue(i, 3), intent.getValue(i, 4));
+					break;
+				case ElevatorIntent.ARRIVED: arrived(time, p, floor); break;
+				case ElevatorIntent.GAVEUP: gaveUp(time, p, floor, dir); break;
+				case ElevatorIntent.BOARD: boarded(time, p, floor, dir); break;
+				case ElevatorIntent.SKIP: logSkip(time, p.getNumPass(), floor, dir, p.getId()); break;
+			}
+		}
+	}
+
+	/**
+	 * Sets the writer of the per-tick state hashes. From now on the state after
+	 * every tick is folded into the rolling hash and recorded.
+	 *
+	 * @param stateHash the writer, or null to stop hashing
+	 */
+	public void setStateHash(StateHashWriter stateHash) {
+		this.stateHash = stateHash;
+	}
+
+	/**
+	 * Hash state. Hashes the state of every elevator - state, floor, direction,
+	 * doors and passengers - and the sizes of all the floor queues. When the
+	 * hash differs from the last tick's, it and the tick are folded into the
+	 * rolling hash, which is recorded. The queue sizes come as one hash kept by
+	 * the call manager, so a tick costs the same however many floors there are.
+	 *
+	 * @param time the tick that was just simulated
+	 */
+	private void hashState(int time) {
+		long h = callMgr.getQueueHash();
+		for (Elevator lift: elevators) {
+			h = StateHashWriter.mix(h ^ ((long) lift.getCurrState() << 56 ^ (long) (lift.getDirection() & 3) << 54 ^
+			                             (long) lift.getDoorState() << 40 ^ (long) lift.getPassengers() << 24 ^ lift.getCurrFloor()));
+		}
+		if (h == lastStateHash) return;
+		lastStateHash = h;
+		stateDigest = StateHashWriter.mix(stateDigest ^ h ^ ((long) time << 32));
+		stateHash.record(time, stateDigest);
+	}
+
+	/**
+	 * Gets the state digest - the rolling hash of every change of state
+	 * while state hashing was on.
+	 *
+	 * @return the state digest
+	 */
+	public long getStateDigest() {
+		return stateDigest;
+	}
+
 	
 	
 	/**
-	 * Process passenger data. Do NOT change this - it simply dumps the 
-	 * collected passenger data for successful arrivals and give ups. These are
-	 * assumed to be ArrayLists...
+	 * Pass data. Gets the writer for passDataFile, creating the file on first use.
+	 *
+	 * @return the pass data writer
+	 */
+	private PassDataWriter passData() {
+		if (passData == null) {
+			passData = new PassDataWriter(passDataFile, passDataOrdered);
+		}
+		return passData;
+	}
+
+	/**
+	 * Sets the dispatch policy - see DispatchPolicy. The policy can be changed
+	 * at any tick, for example after restoring a snapshot.
+	 *
+	 * @param dispatch the dispatch policy
+	 */
+	public void setDispatchPolicy(DispatchPolicy dispatch) {
+		this.dispatch = dispatch;
+	}
+
+	/**
+	 * Sets the order of the rows in passDataFile. Must be called before the
+	 * first group arrives or gives up.
+	 *
+	 * @param ordered true to list all arrivals before the give ups (the
+	 *                default), false to list the rows in the order they happen
+	 */
+	public void setPassDataOrdered(boolean ordered) {
+		passDataOrdered = ordered;
+	}
+
+	/**
+	 * Process passenger data. The rows for the successful arrivals and give
+	 * ups have been written to passDataFile as they happened; this finishes
+	 * the file. Later calls do nothing.
 	 */
 	public void processPassengerData() {
-		
+		passData().finish();
+		if (stateHash != null) stateHash.close();
+		if (waitStatsFile != null) {
+			writeWaitStats();
+		}
+	}
+
+	/**
+	 * Sets whether the histogram summaries are written at the end of the run,
+	 * to a WaitStats csv named after the log file.
+	 *
+	 * @param enabled true to write the summaries
+	 */
+	public void setWaitStats(boolean enabled) {
+		waitStatsFile = enabled ? fio.getFileHandle(passDataFile.getPath().replaceAll("PassData.csv", "WaitStats.csv")) : null;
+	}
+
+	/**
+	 * Write the summaries of the board wait, ride and total time histograms.
+	 * Written once - later calls do nothing.
+	 */
+	private void writeWaitStats() {
 		try {
-			BufferedWriter out = fio.openBufferedWriter(passDataFile);
-			out.write("ID,Number,From,To,WaitToBoard,TotalTime\n");
-			for (Passengers p : passSuccess) {
-				String str = p.getId()+","+p.getNumPass()+","+(p.getOnFloor()+1)+","+(p.getDestFloor()+1)+","+
-				             (p.getBoardTime() - p.getTime())+","+(p.getTimeArrived() - p.getTime())+"\n";
-				out.write(str);
-			}
-			for (Passengers p : gaveUp) {
-				String str = p.getId()+","+p.getNumPass()+","+(p.getOnFloor()+1)+","+(p.getDestFloor()+1)+","+
-				             p.getWaitTime()+",-1\n";
-				out.write(str);
+			BufferedWriter out = fio.openBufferedWriter(waitStatsFile);
+			out.write(TimeHistogram.getSummaryHeader()+"\n");
+			for (TimeHistogram h : new TimeHistogram[] {boardWaitHist, rideHist, totalHist}) {
+				out.write(h.getSummary()+"\n");
 			}
 			fio.closeFile(out);
-		} 
+		}
 		catch (IOException e) {
 			e.printStackTrace();
 		}
+		waitStatsFile = null;
+	}
+
+	/**
+	 * Gets the histogram of the time from calling to boarding, weighted by the
+	 * number of passengers. It is updated as passengers board.
+	 *
+	 * @return the board wait histogram
+	 */
+	public TimeHistogram getBoardWaitHistogram() {
+		return boardWaitHist;
+	}
+
+	/**
+	 * Gets the histogram of the time from boarding to arriving, weighted by
+	 * the number of passengers. It is updated as passengers arrive.
+	 *
+	 * @return the ride histogram
+	 */
+	public TimeHistogram getRideHistogram() {
+		return rideHist;
+	}
+
+	/**
+	 * Gets the histogram of the time from calling to arriving, weighted by the
+	 * number of passengers. It is updated as passengers arrive.
+	 *
+	 * @return the total time histogram
+	 */
+	public TimeHistogram getTotalHistogram() {
+		return totalHist;
 	}
 
 	/**
@@ -638,7 +1223,7 @@ public class Building {
 	 * For testing, logging must be enabled BEFORE the run starts.
 	 */
 	public void enableLogging() {
-		LOGGER.setLevel(Level.INFO);
+		logging = true;
 		for (Elevator el:elevators)
 			logElevatorConfig(el.getCapacity(),el.getTicksPerFloor(), el.getTicksDoorOpenClose(), el.getPassPerTick(), el.getCurrState(), el.getCurrFloor());
 	}
@@ -649,46 +1234,183 @@ public class Building {
 	 * @param time the time
 	 */
 	public void closeLogs(int time) {
-		if (LOGGER.getLevel() == Level.INFO) {
+		if (logging) {
 			logEndSimulation(time);
-			fh.flush();
-			fh.close();
+			sink.flush();
 		}
+		// always release the file, even if logging was never enabled
+		sink.close();
+		if (updatePool != null) setUpdateThreads(1);
+		// the run may go on, so only push out the rows written so far
+		if (passData != null) passData.flush();
+		if (stateHash != null) stateHash.flush();
 	}
 	
 	/**
-	 * Prints the state.
+	 * Write snapshot. Writes the complete state of the simulation after the
+	 * given tick: the groups read ahead in passQ and how far the passenger
+	 * source has read, the floor queues, every elevator, which elevator each
+	 * call is assigned to, the running totals and histograms, the state hash
+	 * and the PassData rows so far. readSnapshot
+	 * restores it into a building of the same size, in this or another process.
+	 * The calls the call manager tracks are rebuilt from the floor queues.
 	 *
-	 * @param state the state
-	 * @return the string
+	 * The state is framed by its length and a CRC32, so that readSnapshot can
+	 * check the whole snapshot before it changes anything.
+	 *
+	 * @param out the output
+	 * @param time the last tick that was simulated
+	 * @throws IOException Signals that an I/O exception has occurred.
 	 */
-	private String printState(int state) {
-		String str = "";
-		
-		switch (state) {
-			case Elevator.STOP: 		str =  "STOP   "; break;
-			case Elevator.MVTOFLR: 		str =  "MVTOFLR"; break;
-			case Elevator.OPENDR:   	str =  "OPENDR "; break;
-			case Elevator.CLOSEDR:		str =  "CLOSEDR"; break;
-			case Elevator.BOARD:		str =  "BOARD  "; break;
-			case Elevator.OFFLD:		str =  "OFFLD  "; break;
-			case Elevator.MV1FLR:		str =  "MV1FLR "; break;
-			default:					str =  "UNDEF  "; break;
+	public void writeSnapshot(DataOutput out, int time) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream state = new DataOutputStream(bytes)) {
+			writeState(state, time);
 		}
-		return(str);
+		byte[] body = bytes.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		out.writeInt(SNAPSHOT_MAGIC);
+		out.writeInt(SNAPSHOT_VERSION);
+		out.writeInt(body.length);
+		out.write(body);
+		out.writeLong(crc.getValue());
 	}
-	
+
+	/**
+	 * Write state. Writes the state of a snapshot, inside its frame.
+	 *
+	 * @param out the output
+	 * @param time the last tick that was simulated
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeState(DataOutput out, int time) throws IOException {
+		out.writeInt(time);
+		out.writeInt(NUM_FLOORS);
+		out.writeInt(NUM_ELEVATORS);
+		out.writeBoolean(source != null);
+		out.writeInt(nextPassID);
+		out.writeInt(groupsArrived);
+		out.writeInt(passArrived);
+		out.writeInt(groupsGaveUp);
+		out.writeInt(passGaveUp);
+		out.writeLong(totalWaitToBoard);
+		out.writeLong(totalTravelTime);
+		out.writeLong(lastStateHash);
+		out.writeLong(stateDigest);
+		for (TimeHistogram h : new TimeHistogram[] {boardWaitHist, rideHist, totalHist}) {
+			h.write(out);
+		}
+		out.writeInt(passQ.size());
+		for (int h : passQ.handles()) {
+			passQ.getPassengers(h).write(out);
+		}
+		if (source != null) source.checkpoint(out);
+		for (Floor floor : floors) {
+			floor.writeState(out);
+		}
+		for (Elevator lift : elevators) {
+			lift.writeState(out);
+		}
+		if (hallCalls != null) hallCalls.writeState(out);
+		out.writeBoolean(passData != null);
+		if (passData != null) passData.checkpoint(out);
+	}
+
+	/**
+	 * Read snapshot. Restores the state written by writeSnapshot. The building
+	 * must have the same number of floors and elevators, its elevators must be
+	 * configured, and its passenger source - if the snapshot has one - must
+	 * read the same input as the snapshotted one. The configuration of the
+	 * elevators is restored too. The log carries on from the restored tick.
+	 *
+	 * The whole snapshot is read and checked against its length and CRC32, and
+	 * against this building, before any state is changed - so a truncated or
+	 * corrupt snapshot throws and leaves the building as it was.
+	 *
+	 * @param in the input
+	 * @return the last tick that was simulated before the snapshot
+	 * @throws IOException if the snapshot cannot be read, or is truncated or corrupt
+	 * @throws IllegalArgumentException if the snapshot is not for this building
+	 */
+	public int readSnapshot(DataInput in) throws IOException {
+		if (in.readInt() != SNAPSHOT_MAGIC) throw new IllegalArgumentException("Not a building snapshot");
+		int version = in.readInt();
+		if (version != SNAPSHOT_VERSION) throw new IllegalArgumentException("Unsupported snapshot version "+version);
+		int length = in.readInt();
+		if (length < 0) throw new IOException("Corrupt snapshot: bad length "+length);
+		byte[] body = new byte[length];
+		in.readFully(body);
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		if (in.readLong() != crc.getValue()) throw new IOException("Corrupt snapshot: checksum does not match");
+		try (DataInputStream state = new DataInputStream(new ByteArrayInputStream(body))) {
+			return readState(state);
+		}
+	}
+
+	/**
+	 * Read state. Restores the state of a snapshot that has been checked. The
+	 * size of the building and the passenger source are checked first.
+	 *
+	 * @param in the state
+	 * @return the last tick that was simulated before the snapshot
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private int readState(DataInput in) throws IOException {
+		int time = in.readInt();
+		int numFloors = in.readInt();
+		int numElevators = in.readInt();
+		if (numFloors != NUM_FLOORS || numElevators != NUM_ELEVATORS) {
+			throw new IllegalArgumentException("Snapshot is for "+numFloors+" floors and "+numElevators+" elevators, not "+
+			                                   NUM_FLOORS+" and "+NUM_ELEVATORS);
+		}
+		boolean hasSource = in.readBoolean();
+		if (hasSource && source == null) throw new IllegalStateException("Snapshot needs a passenger source to carry on reading");
+		nextPassID = in.readInt();
+		groupsArrived = in.readInt();
+		passArrived = in.readInt();
+		groupsGaveUp = in.readInt();
+		passGaveUp = in.readInt();
+		totalWaitToBoard = in.readLong();
+		totalTravelTime = in.readLong();
+		lastStateHash = in.readLong();
+		stateDigest = in.readLong();
+		for (TimeHistogram h : new TimeHistogram[] {boardWaitHist, rideHist, totalHist}) {
+			h.read(in);
+		}
+		passQ.clear(time);
+		for (int n = in.readInt(); n > 0; n--) {
+			passQ.add(Passengers.read(in));
+		}
+		if (hasSource) {
+			source.restore(in);
+		} else {
+			setPassengerSource(null);
+		}
+		for (Floor floor : floors) {
+			while (floor.poll(UP) != null);
+			while (floor.poll(DOWN) != null);
+			floor.readState(in);
+		}
+		for (Elevator lift : elevators) {
+			lift.readState(in);
+		}
+		if (hallCalls != null) hallCalls.readState(in);
+		if (giveUps != null) scheduleWaitingGiveUps(time);
+		if (passData != null) passData.finish();
+		passData = in.readBoolean() ? new PassDataWriter(passDataFile, in) : null;
+		return time;
+	}
+
 	/**
 	 * Dump passQ contents. Debug hook to view the contents of the passenger queue...
+	 * With a passenger source, only the groups read ahead so far are shown.
 	 */
 	public void dumpPassQ() {
-		ListIterator<Passengers> passengers = passQ.getListIterator();
-		if (passengers != null) {
-			System.out.println("Passengers Queue:");
-			while (passengers.hasNext()) {
-				Passengers p = passengers.next();
-				System.out.println(p);
-			}
+		System.out.println("Passengers Queue:");
+		for (int h : passQ.handles()) {
+			System.out.println(passQ.getPassengers(h));
 		}
 	}
 
@@ -703,10 +1425,25 @@ public class Building {
 	 * @param floor the floor
 	 */
 	private void logElevatorConfig(int capacity, int ticksPerFloor, int ticksDoorOpenClose, int passPerTick, int state, int floor) {
-		LOGGER.info("CONFIG:   Capacity="+capacity+"   Ticks-Floor="+ticksPerFloor+"   Ticks-Door="+ticksDoorOpenClose+
-				    "   Ticks-Passengers="+passPerTick+"   CurrState=" + (printState(state))+"   CurrFloor="+(floor+1));
+		if (logging) sink.config(capacity, ticksPerFloor, ticksDoorOpenClose, passPerTick, state, floor);
 	}
 		
+	/**
+	 * Log state changed. Logs the state change of an elevator, or records it
+	 * in the elevator's intent.
+	 *
+	 * @param time the time
+	 * @param lift the lift
+	 */
+	private void logStateChanged(int time, Elevator lift) {
+		if (!logging) return;
+		if (lift.getIntent() != null) {
+			lift.getIntent().stateChanged(time, lift.getPrevState(), lift.getCurrState(), lift.getPrevFloor(), lift.getCurrFloor());
+		} else {
+			logElevatorStateChanged(time, lift.getPrevState(), lift.getCurrState(), lift.getPrevFloor(), lift.getCurrFloor());
+		}
+	}
+	
 	/**
 	 * Log elevator state changed.
 	 *
@@ -717,8 +1454,7 @@ public class Building {
 	 * @param currFloor the curr floor
 	 */
 	private void logElevatorStateChanged(int time, int prevState, int currState, int prevFloor, int currFloor) {
-		LOGGER.info("Time="+time+"   Prev State: " + printState(prevState) + "   Curr State: "+printState(currState)
-		+"   PrevFloor: "+(prevFloor+1) + "   CurrFloor: " + (currFloor+1));
+		if (logging) sink.stateChanged(time, prevState, currState, prevFloor, currFloor);
 	}
 	
 	/**
@@ -730,8 +1466,7 @@ public class Building {
 	 * @param id the id
 	 */
 	private void logArrival(int time, int numPass, int floor,int id) {
-		LOGGER.info("Time="+time+"   Arrived="+numPass+" Floor="+ (floor+1)
-		+" passID=" + id);						
+		if (logging) sink.arrived(time, numPass, floor, id);
 	}
 	
 	/**
@@ -744,8 +1479,7 @@ public class Building {
 	 * @param id the id
 	 */
 	private void logCalls(int time, int numPass, int floor, int dir, int id) {
-		LOGGER.info("Time="+time+"   Called="+numPass+" Floor="+ (floor +1)
-				+" Dir="+((dir>0)?"Up":"Down")+"   passID=" + id);
+		if (logging) sink.called(time, numPass, floor, dir, id);
 	}
 	
 	/**
@@ -758,8 +1492,7 @@ public class Building {
 	 * @param id the id
 	 */
 	private void logGiveUp(int time, int numPass, int floor, int dir, int id) {
-		LOGGER.info("Time="+time+"   GaveUp="+numPass+" Floor="+ (floor+1) 
-				+" Dir="+((dir>0)?"Up":"Down")+"   passID=" + id);				
+		if (logging) sink.gaveUp(time, numPass, floor, dir, id);
 	}
 
 	/**
@@ -772,8 +1505,7 @@ public class Building {
 	 * @param id the id
 	 */
 	private void logSkip(int time, int numPass, int floor, int dir, int id) {
-		LOGGER.info("Time="+time+"   Skip="+numPass+" Floor="+ (floor+1) 
-				+" Dir="+((dir>0)?"Up":"Down")+"   passID=" + id);				
+		if (logging) sink.skip(time, numPass, floor, dir, id);
 	}
 	
 	/**
@@ -786,8 +1518,7 @@ public class Building {
 	 * @param id the id
 	 */
 	private void logBoard(int time, int numPass, int floor, int dir, int id) {
-		LOGGER.info("Time="+time+"   Board="+numPass+" Floor="+ (floor+1) 
-				+" Dir="+((dir>0)?"Up":"Down")+"   passID=" + id);				
+		if (logging) sink.board(time, numPass, floor, dir, id);
 	}
 	
 	/**
@@ -796,9 +1527,63 @@ public class Building {
 	 * @param time the time
 	 */
 	private void logEndSimulation(int time) {
-		LOGGER.info("Time="+time+"   Detected End of Simulation");
+		if (logging) sink.endSimulation(time);
 	}
 	
+	/**
+	 * Gets the groups arrived.
+	 *
+	 * @return the number of passenger groups that reached their destination
+	 */
+	public int getGroupsArrived() {
+		return groupsArrived;
+	}
+
+	/**
+	 * Gets the pass arrived.
+	 *
+	 * @return the number of people that reached their destination
+	 */
+	public int getPassArrived() {
+		return passArrived;
+	}
+
+	/**
+	 * Gets the groups gave up.
+	 *
+	 * @return the number of passenger groups that gave up waiting
+	 */
+	public int getGroupsGaveUp() {
+		return groupsGaveUp;
+	}
+
+	/**
+	 * Gets the pass gave up.
+	 *
+	 * @return the number of people that gave up waiting
+	 */
+	public int getPassGaveUp() {
+		return passGaveUp;
+	}
+
+	/**
+	 * Gets the average wait to board.
+	 *
+	 * @return the average ticks an arrived person waited for the elevator
+	 */
+	public double getAvgWaitToBoard() {
+		return (passArrived == 0) ? 0 : (double)totalWaitToBoard / passArrived;
+	}
+
+	/**
+	 * Gets the average travel time.
+	 *
+	 * @return the average ticks from calling the elevator to arriving, per person
+	 */
+	public double getAvgTravelTime() {
+		return (passArrived == 0) ? 0 : (double)totalTravelTime / passArrived;
+	}
+
 	/**
 	 * Gets the elevators first index.
 	 *
@@ -808,6 +1593,16 @@ public class Building {
 		return elevators[0];
 	}
 
+	/**
+	 * Gets an elevator.
+	 *
+	 * @param i the index of the elevator
+	 * @return the elevator
+	 */
+	public Elevator getElevator(int i) {
+		return elevators[i];
+	}
+
 	/**
 	 * Sets the elevators.
 	 *
@@ -1,10 +1,26 @@
 package building;
 
+import java.util.Arrays;
+import java.util.BitSet;
+
 /**
  * @author Andrew Jacobsen and Adi Narasimha
  * The Class CallManager. This class models all of the calls on each floor,
  * and then provides methods that allow the building to determine what needs
  * to happen (ie, state transitions).
+ * 
+ * The calls are indexed incrementally: every Floor tells the CallManager when
+ * a passenger group joins or leaves one of its queues, so no query has to walk
+ * the floors. Bitsets of the floors with up, down and any calls answer the
+ * "lowest/highest call" and "any call above/below" questions with word-level
+ * scans, and Fenwick trees over the queue sizes give the up/down counts on
+ * either side of a floor in O(log NUM_FLOORS).
+ * 
+ * With more than one elevator, every elevator also has a CallManager of its
+ * own - a view holding only the calls the HallCallDispatcher has assigned to
+ * it - so each elevator asks about, and serves, its own calls only. The views
+ * are not told about the queues by the floors but by the dispatcher, which
+ * hands a floor's call in a direction over to a view as a whole.
  */
 public class CallManager {
 	
@@ -20,20 +36,32 @@ public class CallManager {
 	/** The Constant DOWN. */
 	private final static int DOWN = -1;
 	
-	/** The up calls array indicates whether or not there is a up call on each floor. */
-	private boolean[] upCalls;
+	/** The up calls bitset indicates whether or not there is a up call on each floor. */
+	private BitSet upCalls;
+	
+	/** The down calls bitset indicates whether or not there is a down call on each floor. */
+	private BitSet downCalls;
+	
+	/** The any calls bitset indicates whether or not there is any call on each floor. */
+	private BitSet anyCalls;
 	
-	/** The down calls array indicates whether or not there is a down call on each floor. */
-	private boolean[] downCalls;
+	/** The up queue sizes of each floor, as a Fenwick tree (1-based). */
+	private int[] upTree;
 	
-	/** The up call pending - true if any up calls exist */
-	private boolean upCallPending;
+	/** The down queue sizes of each floor, as a Fenwick tree (1-based). */
+	private int[] downTree;
 	
-	/** The down call pending - true if any down calls exit */
-	private boolean downCallPending;
+	/** The number of passenger groups waiting to go up, over all floors. */
+	private int numUp;
 	
+	/** The number of passenger groups waiting to go down, over all floors. */
+	private int numDown;
 	
-	//TODO: Add any additional fields here..
+	/** The sum of the queue keys of every waiting group - a hash of all the queue sizes. */
+	private long queueHash;
+	
+	/** The dispatcher to tell about every call - null with a single elevator, and in the views. */
+	private HallCallDispatcher dispatcher;
 	
 	/**
 	 * Instantiates a new call manager.
@@ -43,109 +71,214 @@ public class CallManager {
 	 */
 	// peer-reviewed: Aman
 	public CallManager(Floor[] floors, int numFloors) {
+		this(floors, numFloors, false);
+	}
+	
+	/**
+	 * Instantiates a new call manager, or the empty view of the calls assigned to
+	 * one elevator. A view is filled by claim and callAdded.
+	 *
+	 * @param floors the floors
+	 * @param numFloors the num floors
+	 * @param view true for a view, which the floors do not report to
+	 */
+	CallManager(Floor[] floors, int numFloors, boolean view) {
 		this.floors = floors;
 		NUM_FLOORS = numFloors;
-		upCalls = new boolean[NUM_FLOORS];
-		downCalls = new boolean[NUM_FLOORS];
-		upCallPending = false;
-		downCallPending = false;
-		
-		//TODO: Initialize any added fields here
+		upCalls = new BitSet(NUM_FLOORS);
+		downCalls = new BitSet(NUM_FLOORS);
+		anyCalls = new BitSet(NUM_FLOORS);
+		upTree = new int[NUM_FLOORS+1];
+		downTree = new int[NUM_FLOORS+1];
+		if (!view) {
+			for (int i = 0; i < NUM_FLOORS; i++) {
+				floors[i].setCallManager(this, i);
+			}
+			updateCallStatus();
+		}
 	}
 	
 	/**
-	 * Update call status. This is an optional method that could be used to compute
-	 * the values of all up and down call fields statically once per tick (to be
-	 * more efficient, could only update when there has been a change to the floor queues -
-	 * either passengers being added or being removed. The alternative is to dynamically
-	 * recalculate the values of specific fields when needed.
+	 * Sets the dispatcher that assigns every call reported to this call manager
+	 * to one of the elevators.
+	 *
+	 * @param dispatcher the dispatcher, or null for none
+	 */
+	void setDispatcher(HallCallDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+	
+	/**
+	 * Update call status. Rebuilds the whole call index from the floor queues.
+	 * The index is kept up to date by callAdded/callRemoved as the queues
+	 * change, so this is only needed when the queues were filled some other way.
 	 */
 	// peer-reviewed: Aman
 	protected void updateCallStatus() {
-		//TODO: Write this method if you choose to implement it...
-		upCallPending = false;
-		downCallPending = false;
+		clearCalls();
 		for(int i = 0; i < NUM_FLOORS; i++) {
-			if(floors[i].empty(UP)) {
-				upCalls[i] = false;
-			}
-			else {
-				upCalls[i] = true;
-				upCallPending = true;
+			for (int n = floors[i].size(UP); n > 0; n--) {
+				callAdded(i, UP);
 			}
-			if(floors[i].empty(DOWN)) {
-				downCalls[i] = false;
-			}
-			else {
-				downCalls[i] = true;
-				downCallPending = true;
+			for (int n = floors[i].size(DOWN); n > 0; n--) {
+				callAdded(i, DOWN);
 			}
 		}
 	}
 	
 	/**
-	 * Prioritize other floors.
+	 * Clear calls. Forgets every call.
+	 */
+	void clearCalls() {
+		upCalls.clear();
+		downCalls.clear();
+		anyCalls.clear();
+		Arrays.fill(upTree, 0);
+		Arrays.fill(downTree, 0);
+		numUp = 0;
+		numDown = 0;
+		queueHash = 0;
+	}
+	
+	/**
+	 * Call added. A passenger group joined the queue of the floor in the given direction.
 	 *
 	 * @param floor the floor
-	 * @return the passengers
+	 * @param dir the dir
 	 */
-	// peer-reviewed: Aman
-	protected Passengers prioritizeOtherFloors(int floor) {
-		// added by Adi
-		int lowestUp = 0;
-		int highestDown = 0;
-		for(int i = 0; i < NUM_FLOORS; i++) {
-			if (!floors[i].empty(UP)) {
-				lowestUp = i;
-				break;
-			}
+	void callAdded(int floor, int dir) {
+		if (dir == UP) {
+			numUp++;
+			upCalls.set(floor);
+			treeAdd(upTree, floor, 1);
+		} else {
+			numDown++;
+			downCalls.set(floor);
+			treeAdd(downTree, floor, 1);
 		}
-
-		for(int i = NUM_FLOORS-1; i >= 0; i--) {
-			if (!floors[i].empty(DOWN)) {
-				highestDown = i;
-				break;
-			}
+		anyCalls.set(floor);
+		queueHash += queueKey(floor, dir);
+		if (dispatcher != null) dispatcher.callAdded(floor, dir);
+	}
+	
+	/**
+	 * Call removed. A passenger group left the queue of the floor in the given direction.
+	 *
+	 * @param floor the floor
+	 * @param dir the dir
+	 */
+	void callRemoved(int floor, int dir) {
+		if (dir == UP) {
+			numUp--;
+			treeAdd(upTree, floor, -1);
+			if (floors[floor].empty(UP)) upCalls.clear(floor);
+		} else {
+			numDown--;
+			treeAdd(downTree, floor, -1);
+			if (floors[floor].empty(DOWN)) downCalls.clear(floor);
+		}
+		if (!upCalls.get(floor) && !downCalls.get(floor)) anyCalls.clear(floor);
+		queueHash -= queueKey(floor, dir);
+		if (dispatcher != null) dispatcher.callRemoved(floor, dir);
+	}
+	
+	/**
+	 * Claim. Adds every group waiting in the queue of the floor in the given
+	 * direction to a view - the call has been assigned to its elevator.
+	 *
+	 * @param floor the floor
+	 * @param dir the dir
+	 */
+	void claim(int floor, int dir) {
+		for (int n = floors[floor].size(dir); n > 0; n--) {
+			callAdded(floor, dir);
 		}
-		if(getNumUp() > getNumDown()) {
-			return floors[lowestUp].peek(UP);
-		} else if(getNumUp() < getNumDown()){
-			return floors[highestDown].peek(DOWN);
+	}
+	
+	/**
+	 * Release. Removes every group waiting in the queue of the floor in the
+	 * given direction from a view - the call has been assigned to another
+	 * elevator.
+	 *
+	 * @param floor the floor
+	 * @param dir the dir
+	 */
+	void release(int floor, int dir) {
+		int n = floors[floor].size(dir);
+		if (dir == UP) {
+			numUp -= n;
+			treeAdd(upTree, floor, -n);
+			upCalls.clear(floor);
 		} else {
-			if (Math.abs(floor-lowestUp) <= Math.abs(highestDown-floor)) {
-				return floors[lowestUp].peek(UP);
-			} else  {
-				return floors[highestDown].peek(DOWN);
-			}
+			numDown -= n;
+			treeAdd(downTree, floor, -n);
+			downCalls.clear(floor);
 		}
+		if (!upCalls.get(floor) && !downCalls.get(floor)) anyCalls.clear(floor);
+		queueHash -= n * queueKey(floor, dir);
+	}
+	
+	/**
+	 * Queue key. Gets the random-looking key a group adds to queueHash while it
+	 * waits in the queue of the floor in the given direction.
+	 *
+	 * @param floor the floor
+	 * @param dir the dir
+	 * @return the key
+	 */
+	private static long queueKey(int floor, int dir) {
+		return mix((2L * floor + (dir == UP ? 1 : 2)) * 0x9e3779b97f4a7c15L);
 	}
 
 	/**
-	 * Prioritize passenger calls from STOP STATE
+	 * Mix. Scrambles the bits of a long so that every input bit affects every
+	 * output bit (the splitmix64 finalizer, as the state hash uses).
+	 *
+	 * @param z the value
+	 * @return the mixed value
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Gets the hash of the sizes of all the floor queues. It is kept up to date
+	 * as groups join and leave the queues, so it costs nothing to read.
 	 *
+	 * @return the queue hash
+	 */
+	long getQueueHash() {
+		return queueHash;
+	}
+	
+	/**
+	 * Tree add. Adds delta to the count of the floor in a Fenwick tree.
+	 *
+	 * @param tree the tree
 	 * @param floor the floor
-	 * @return the passengers
+	 * @param delta the delta
 	 */
-	// peer-reviewed: Aman
-	protected Passengers prioritizePassengerCalls(int floor) {
-		//TODO: Write this method based upon prioritization from STOP...
-		// modified by Adi
-		if(upCalls[floor] && !downCalls[floor]) {
-			return floors[floor].peek(UP);
-		}
-		if(!upCalls[floor] && downCalls[floor]) {
-			return floors[floor].peek(DOWN);
+	private void treeAdd(int[] tree, int floor, int delta) {
+		for (int i = floor+1; i <= NUM_FLOORS; i += i & -i) {
+			tree[i] += delta;
 		}
-		if(upCalls[floor] && downCalls[floor]) {
-			if(getNumUp(floor) >= getNumDown(floor)) {
-				return floors[floor].peek(UP);
-			} else if(getNumUp(floor) < getNumDown(floor)) {
-				return floors[floor].peek(DOWN);
-			}
-				
+	}
+	
+	/**
+	 * Tree sum. Sums the counts of floors 0 through floor in a Fenwick tree.
+	 *
+	 * @param tree the tree
+	 * @param floor the floor, -1 for an empty sum
+	 * @return the sum
+	 */
+	private int treeSum(int[] tree, int floor) {
+		int sum = 0;
+		for (int i = floor+1; i > 0; i -= i & -i) {
+			sum += tree[i];
 		}
-		
-		return prioritizeOtherFloors(floor);
+		return sum;
 	}
 	
 	/**
@@ -153,12 +286,12 @@ public class CallManager {
 	 *
 	 * @param floor the floor
 	 * @param dir the dir
-	 * @return the passengers
+	 * @return the passengers, or null if there are none - or they are not in this view
 	 */
 	//added by adi
 	// peer-reviewed: Aman
 	protected Passengers getPassenger(int floor, int dir) {
-		return floors[floor].peek(dir);
+		return callsPendingOnFloor(floor, dir) ? floors[floor].peek(dir) : null;
 	}
 
 	//TODO: Write any additional methods here. Things that you might consider:
@@ -177,40 +310,13 @@ public class CallManager {
 	 */
 	// peer-reviewed: Aman
 	protected boolean callPending() {
-		if(upCallPending || downCallPending) {
-			return true;
-		}
-		return false;
+		return numUp + numDown > 0;
 	}
 	// peer-reviewed: Aman
 	protected boolean callsPendingOnFloor(int currFloor, int direction) {
-		if(floors[currFloor].empty(direction)) {
-			return false;
-		}
-		return true;
+		return (direction == UP) ? upCalls.get(currFloor) : downCalls.get(currFloor);
 	}
 
-	//added by adi
-	//after you offload passengers, there are no calls in the same direction on currFloor
-	/**
-	 * Should change dir.
-	 *
-	 * @param currFloor the curr floor
-	 * @param direction the direction
-	 * @return true, if successful
-	 */
-	//if there are no calls in the same dir 
-	// peer-reviewed: Aman
-	protected boolean shouldChangeDir(int currFloor, int direction) {
-		if (callsPendingInDir(currFloor, direction)) {
-			return false;
-		} else if (callsPendingOnFloor(currFloor, direction*-1)) {
-			return true;
-		}
-		return false;
-	}
-
-	
 	/**
 	 * Calls pending in dir.
 	 *
@@ -222,19 +328,9 @@ public class CallManager {
 	// peer-reviewed: Aman
 	protected boolean callsPendingInDir(int currFloor, int direction) {
 		if(direction == UP) {
-			for(int i = currFloor+1; i < NUM_FLOORS; i++) {
-				if (!floors[i].empty(UP) || !floors[i].empty(DOWN)) {
-					return true;
-				}
-			}
-		} else {
-			for(int i = currFloor-1; i >= 0; i--) {
-				if (!floors[i].empty(UP) || !floors[i].empty(DOWN)) {
-					return true;
-				}
-			}
+			return anyCalls.nextSetBit(currFloor+1) >= 0;
 		}
-		return false;	
+		return currFloor > 0 && anyCalls.previousSetBit(currFloor-1) >= 0;
 	}
 	
 	/**
@@ -244,12 +340,7 @@ public class CallManager {
 	 */
 	// peer-reviewed: Aman
 	protected int numCallPending() {
-		int calls = 0;
-		for(int i = 0; i < NUM_FLOORS; i++) {
-			calls += floors[i].size(UP);
-			calls += floors[i].size(DOWN);
-		}
-		return calls;
+		return numUp + numDown;
 	}
 	
 	/**
@@ -260,71 +351,116 @@ public class CallManager {
 	 */
 	// peer-reviewed: Aman
 	protected int numCallPending(int floor) {
-		int callsOnFloor = 0;
-		callsOnFloor += floors[floor].size(UP);
-		callsOnFloor += floors[floor].size(DOWN);
-		return callsOnFloor;
+		return numCalls(floor, UP) + numCalls(floor, DOWN);
 	}
 	
 	
 	
 	/**
-	 * Gets the num up.
+	 * Gets the number of groups waiting to go in the given direction, over all floors.
 	 *
-	 * @return the num up
+	 * @param dir the dir
+	 * @return the number of calls
 	 */
-	// peer-reviewed: Aman
-	private int getNumUp() {
-		int numUp = 0;
-		for(int i = 0; i < NUM_FLOORS; i++) {
-			numUp += floors[i].size(UP);
-		}
-		return numUp;
+	int numCalls(int dir) {
+		return (dir == UP) ? numUp : numDown;
 	}
 	
 	/**
-	 * Gets the num down.
+	 * Gets the number of groups waiting in the queue of the floor in the given direction.
 	 *
-	 * @return the num down
+	 * @param floor the floor
+	 * @param dir the dir
+	 * @return the queue size
 	 */
-	// peer-reviewed: Aman
-	private int getNumDown() {
-		int numDown = 0;
-		for(int i = NUM_FLOORS-1; i >= 0; i--) {
-			numDown += floors[i].size(DOWN);
-		}
-		return numDown;
+	int numCalls(int floor, int dir) {
+		return callsPendingOnFloor(floor, dir) ? floors[floor].size(dir) : 0;
 	}
 	
 	/**
-	 * Gets the num up.
+	 * Gets the number of groups waiting to go up on the floors above the floor.
 	 *
 	 * @param floor the floor
-	 * @return the num up
+	 * @return the num up above
 	 */
-	// peer-reviewed: Aman
-	private int getNumUp(int floor) {
-		int numUp = 0;
-		for(int i = floor+1; i < NUM_FLOORS; i++) {
-			numUp += floors[i].size(UP);
-		}
-		return numUp;
+	int numUpAbove(int floor) {
+		return numUp - treeSum(upTree, floor);
 	}
 	
 	/**
-	 * Gets the num down.
+	 * Gets the number of groups waiting to go down on the floors below the floor.
 	 *
 	 * @param floor the floor
-	 * @return the num down
+	 * @return the num down below
 	 */
-	// peer-reviewed: Aman
-	private int getNumDown(int floor) {
-		int numDown = 0;
-		for(int i = floor-1; i >= 0; i--) {
-			numDown += floors[i].size(DOWN);
-		}
-		return numDown;
+	int numDownBelow(int floor) {
+		return treeSum(downTree, floor-1);
 	}
 	
-
+	/**
+	 * Gets the lowest floor with a call in the given direction.
+	 *
+	 * @param dir the dir
+	 * @return the floor, or -1 if there is none
+	 */
+	int lowestCall(int dir) {
+		return ((dir == UP) ? upCalls : downCalls).nextSetBit(0);
+	}
+	
+	/**
+	 * Gets the highest floor with a call in the given direction.
+	 *
+	 * @param dir the dir
+	 * @return the floor, or -1 if there is none
+	 */
+	int highestCall(int dir) {
+		return ((dir == UP) ? upCalls : downCalls).previousSetBit(NUM_FLOORS-1);
+	}
+	
+	/**
+	 * Gets the next floor, from the floor up, with a call in the given direction.
+	 *
+	 * @param dir the dir
+	 * @param floor the floor
+	 * @return the floor, or -1 if there is none
+	 */
+	int nextCall(int dir, int floor) {
+		return ((dir == UP) ? upCalls : downCalls).nextSetBit(floor);
+	}
+	
+	/**
+	 * Gets the farthest floor with a call in either direction that an elevator
+	 * travelling in the given direction could reach - the highest going up,
+	 * the lowest going down.
+	 *
+	 * @param dir the dir
+	 * @return the floor, or -1 if there is none
+	 */
+	int farthestCall(int dir) {
+		return (dir == UP) ? anyCalls.previousSetBit(NUM_FLOORS-1) : anyCalls.nextSetBit(0);
+	}
+	
+	/**
+	 * Gets the number of floors with a call in either direction.
+	 *
+	 * @return the number of floors
+	 */
+	int numCallFloors() {
+		return anyCalls.cardinality();
+	}
+	
+	/**
+	 * Gets the floor with a call in either direction nearest to the floor - the
+	 * lower of the two on a tie.
+	 *
+	 * @param floor the floor
+	 * @return the nearest floor with a call, or -1 if there is none
+	 */
+	int nearestCall(int floor) {
+		int below = anyCalls.previousSetBit(floor);
+		int above = anyCalls.nextSetBit(floor);
+		if (below < 0) return above;
+		if (above < 0 || floor - below <= above - floor) return below;
+		return above;
+	}
 }
@@ -0,0 +1,67 @@
+package building;
+
+/**
+ * The Class DefaultDispatchPolicy. The original dispatch rules, as they were
+ * in CallManager. From STOP, a call on the elevator's own floor comes first
+ * (up if it has at least as many groups waiting above as down below);
+ * otherwise the direction with more groups waiting wins - the lowest up call
+ * or the highest down call, whichever is nearer on a tie. An empty elevator
+ * keeps its direction while there are calls on any floor ahead of it, and a
+ * moving elevator stops for every call in its direction.
+ */
+public class DefaultDispatchPolicy implements DispatchPolicy {
+
+	/** The Constant UP. */
+	private final static int UP = 1;
+
+	/** The Constant DOWN. */
+	private final static int DOWN = -1;
+
+	@Override
+	public Passengers chooseTarget(CallManager calls, int floor) {
+		boolean upCall = calls.callsPendingOnFloor(floor, UP);
+		boolean downCall = calls.callsPendingOnFloor(floor, DOWN);
+		if (upCall && !downCall) {
+			return calls.getPassenger(floor, UP);
+		}
+		if (!upCall && downCall) {
+			return calls.getPassenger(floor, DOWN);
+		}
+		if (upCall && downCall) {
+			return calls.getPassenger(floor, (calls.numUpAbove(floor) >= calls.numDownBelow(floor)) ? UP : DOWN);
+		}
+		return prioritizeOtherFloors(calls, floor);
+	}
+
+	/**
+	 * Prioritize other floors. Picks a call when there is none on the
+	 * elevator's own floor.
+	 *
+	 * @param calls the calls
+	 * @param floor the floor
+	 * @return the passengers
+	 */
+	protected Passengers prioritizeOtherFloors(CallManager calls, int floor) {
+		int lowestUp = Math.max(0, calls.lowestCall(UP));
+		int highestDown = Math.max(0, calls.highestCall(DOWN));
+		if (calls.numCalls(UP) > calls.numCalls(DOWN)) {
+			return calls.getPassenger(lowestUp, UP);
+		} else if (calls.numCalls(UP) < calls.numCalls(DOWN)) {
+			return calls.getPassenger(highestDown, DOWN);
+		} else if (Math.abs(floor-lowestUp) <= Math.abs(highestDown-floor)) {
+			return calls.getPassenger(lowestUp, UP);
+		} else {
+			return calls.getPassenger(highestDown, DOWN);
+		}
+	}
+
+	@Override
+	public boolean keepDirection(CallManager calls, int floor, int dir) {
+		return calls.callsPendingInDir(floor, dir);
+	}
+
+	@Override
+	public boolean stopAtFloor(CallManager calls, int floor, int dir) {
+		return calls.callsPendingOnFloor(floor, dir);
+	}
+}
@@ -0,0 +1,71 @@
+package building;
+
+/**
+ * The Interface DispatchPolicy. Makes the decisions about where an elevator
+ * goes next, so that different dispatch rules can be swapped in without
+ * touching the elevator state machine in Building. Building asks the policy
+ * when an elevator in STOP has calls to serve, when an empty elevator has to
+ * decide whether to carry on in its direction, and when a moving elevator
+ * reaches a floor with passengers waiting to go its way.
+ *
+ * The hooks are called every tick an elevator decides something, so they
+ * must not allocate: they answer from the CallManager's index of the floor
+ * queues, and return one of the groups already in those queues. Policies
+ * keep no state of their own, so a snapshot of the building does not need
+ * to hold them.
+ */
+public interface DispatchPolicy {
+
+	/** The name of the default policy - the original dispatch rules. */
+	String DEFAULT = "DEFAULT";
+
+	/** The name of the nearest call policy. */
+	String NEAREST = "NEAREST";
+
+	/**
+	 * Choose target. Picks the call an elevator standing in STOP serves next -
+	 * it moves to that group's floor and then travels in its direction. Only
+	 * called when there is at least one call pending.
+	 *
+	 * @param calls the calls
+	 * @param floor the floor the elevator is on
+	 * @return the group to serve, from the head of one of the floor queues
+	 */
+	Passengers chooseTarget(CallManager calls, int floor);
+
+	/**
+	 * Keep direction. Decides whether an empty elevator at a floor carries on
+	 * in its direction - if not, it turns around once nobody on the floor is
+	 * waiting to go its way.
+	 *
+	 * @param calls the calls
+	 * @param floor the floor the elevator is on
+	 * @param dir the direction the elevator is travelling in
+	 * @return true to carry on in dir
+	 */
+	boolean keepDirection(CallManager calls, int floor, int dir);
+
+	/**
+	 * Stop at floor. Decides whether an elevator moving past a floor stops for
+	 * the passengers waiting there to go its way. It always stops for the
+	 * passengers on board who get off there.
+	 *
+	 * @param calls the calls
+	 * @param floor the floor the elevator has reached
+	 * @param dir the direction the elevator is travelling in
+	 * @return true to stop and open the doors
+	 */
+	boolean stopAtFloor(CallManager calls, int floor, int dir);
+
+	/**
+	 * For name. Gets the policy a configuration names.
+	 *
+	 * @param name the name, DEFAULT or NEAREST (in any case)
+	 * @return the policy
+	 */
+	static DispatchPolicy forName(String name) {
+		if (DEFAULT.equalsIgnoreCase(name)) return new DefaultDispatchPolicy();
+		if (NEAREST.equalsIgnoreCase(name)) return new NearestCallPolicy();
+		throw new IllegalArgumentException("Unknown dispatch policy: "+name);
+	}
+}
@@ -1,5 +1,10 @@
 package building;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 
 
 /**
@@ -45,7 +50,22 @@ public class Elevator {
 	
 	private int passengers;  	// the number of people in the elevator
 	
-	private ArrayList<Passengers>[] passByFloor;  // Passengers to exit on the corresponding floor
+	private BitSet stops;       // the floors the Passengers on board exit on
+	private int[] peopleTo;     // the number of people on board exiting on each floor
+
+	/** The groups on board, in one list per floor they exit on, in the order they boarded. The
+	 *  lists are linked through the slots a group is kept in, which are reused once it exits. */
+	private Passengers[] onBoard = new Passengers[16];
+	private int[] nextOnBoard = new int[16];
+	private int[] firstTo;      // the first slot of each floor's list - NIL if it is empty
+	private int[] lastTo;       // the last slot of each floor's list
+	private int freeSlot;       // the first free slot - NIL if every slot is in use
+
+	/** The groups handed back by the last offload - reused by the next one. */
+	private final ArrayList<Passengers> offGroup = new ArrayList<Passengers>();
+
+	/** The end of a list. */
+	private static final int NIL = -1;
 
 	private int moveToFloor;	// When exiting the STOP state, this is the floor to move to without
 	                            // stopping.
@@ -61,11 +81,18 @@ public class Elevator {
 	private boolean canBoard;
 	private boolean forcedOpen;
 	
-	public static int CLOSED = 0;
+	/** The calls this elevator serves - every call, unless a HallCallDispatcher assigns each call to one elevator. */
+	private CallManager calls;
 	
-	public static int MOVING = 1;
+	/** What this elevator's tick does to the rest of the building - null unless the elevators are updated in two phases. */
+	private ElevatorIntent intent;
 	
-	public static int OPEN = 2;
+	/** Door states - the doors are fully open once doorState reaches ticksDoorOpenClose */
+	public final static int CLOSED = 0;
+	
+	public final static int MOVING = 1;
+	
+	public final static int OPEN = 2;
 	
 
 	/**
@@ -78,16 +105,16 @@ public class Elevator {
 	 * @param passPerTick the pass per tick
 	 */
 	// peer-reviewed: Aman
-	@SuppressWarnings("unchecked")
 	public Elevator(int numFloors,int capacity, int floorTicks, int doorTicks, int passPerTick) {		
 		this.prevState = STOP;
 		this.currState = STOP;
 		this.timeInState = 0;
 		this.currFloor = 0;
-		passByFloor = new ArrayList[numFloors];
-		
-		for (int i = 0; i < numFloors; i++) 
-			passByFloor[i] = new ArrayList<Passengers>(); 
+		stops = new BitSet(numFloors);
+		peopleTo = new int[numFloors];
+		firstTo = new int[numFloors];
+		lastTo = new int[numFloors];
+		clearOnBoard();
 
 		//TODO: Finish this constructor, adding configuration initialiation and
 		//      initialization of any other private fields, etc.
@@ -96,7 +123,6 @@ public class Elevator {
 		ticksDoorOpenClose = doorTicks;
 		this.passPerTick = passPerTick;
 		doorState = CLOSED;
-		OPEN = doorTicks;
 		passengers = 0;
 		isBoarding = false;
 		timeNeeded = 0;
@@ -152,6 +178,46 @@ public class Elevator {
 		}
 	}
 
+	/**
+	 * Idle ticks. Counts the ticks, starting with the next one, in which this
+	 * elevator can neither log anything nor leave its current state: idle in STOP
+	 * with no calls pending, part way between two floors, or with the doors part
+	 * way open or closed. Only valid while no new passengers arrive.
+	 *
+	 * @param callPending whether there are any calls waiting on the floors
+	 * @return the number of ticks that can be skipped, Integer.MAX_VALUE if
+	 *         the elevator will stay idle until the next call
+	 */
+	protected int idleTicks(boolean callPending) {
+		if (prevState != currState || prevFloor != currFloor) {
+			return 0;
+		}
+		switch (currState) {
+			case STOP:    return callPending ? 0 : Integer.MAX_VALUE;
+			case MVTOFLR:
+			case MV1FLR:  return ticksPerFloor - 1 - (timeInState % ticksPerFloor);
+			case OPENDR:  return Math.max(0, ticksDoorOpenClose - doorState - 1);
+			case CLOSEDR: return Math.max(0, doorState - CLOSED - 1);
+			default:      return 0;
+		}
+	}
+	
+	/**
+	 * Skip ticks. Applies the given number of idle ticks (see idleTicks) at once,
+	 * leaving the elevator exactly as stepping through them one at a time would.
+	 *
+	 * @param ticks the number of ticks to skip
+	 */
+	protected void skipTicks(int ticks) {
+		switch (currState) {
+			case MVTOFLR:
+			case MV1FLR:  timeInState += ticks; break;
+			case OPENDR:  doorState += ticks; break;
+			case CLOSEDR: doorState -= ticks; break;
+			default:      break;
+		}
+	}
+
 	/**
 	 * Opens the door to the elevator
 	 */
@@ -187,7 +253,7 @@ public class Elevator {
 			return false;
 		}
 		totalBoarding += passBoarding;
-		passByFloor[p.getDestFloor()].add(p);
+		addOnBoard(p);
 		passengers += passBoarding;
 		
 		timeNeeded = (int)Math.ceil((totalBoarding*1.0)/passPerTick);
@@ -219,21 +285,26 @@ public class Elevator {
 	/**
 	 * @param floor, the current floor that passengers are offloading to
 	 * This takes passengers off the elevator and puts them on the floor
-	 * @return an array list of passengers that were offloaded
+	 * @return an array list of passengers that were offloaded, in the order they
+	 *         boarded - the list is reused by the next offload
 	 */
 	// peer-reviewed: Aman
 	protected ArrayList<Passengers> offload(int floor) {
 		isOffloadingDone = false;
 		isOffloading = true;
-		int passOffloading = 0;
-		ArrayList<Passengers> groups = passByFloor[floor];
-		ArrayList<Passengers> offGroup = new ArrayList<Passengers>(); 
-		for (Passengers p: groups) {
-			offGroup.add(p);
-			passOffloading += p.getNumPass();
-			
+		int passOffloading = peopleTo[floor];
+		offGroup.clear();
+		for (int slot = firstTo[floor]; slot != NIL;) {
+			int next = nextOnBoard[slot];
+			offGroup.add(onBoard[slot]);
+			onBoard[slot] = null;
+			nextOnBoard[slot] = freeSlot;
+			freeSlot = slot;
+			slot = next;
 		}
-		passByFloor[floor] = new ArrayList<Passengers>();
+		firstTo[floor] = NIL;
+		peopleTo[floor] = 0;
+		stops.clear(floor);
 		passengers -= passOffloading;
 		timeNeeded = (int)Math.ceil((passOffloading*1.0)/passPerTick);
 		
@@ -275,7 +346,7 @@ public class Elevator {
 	 */
 	// peer-reviewed: Aman
 	protected boolean passengersToOffload(int currentFloor) {
-		return !passByFloor[currentFloor].isEmpty();
+		return stops.get(currentFloor);
 	}
 	/**
 	 * @return whether the elevator is currently offloading
@@ -462,6 +533,13 @@ public class Elevator {
 	public int getDoorState() {
 		return doorState;
 	}
+	/**
+	 * 
+	 * @return true if the doors are fully open
+	 */
+	public boolean isDoorOpen() {
+		return doorState == ticksDoorOpenClose;
+	}
 	/**
 	 * Opens or closes the door based on what the current door state is
 	 * @param doorState
@@ -487,20 +565,6 @@ public class Elevator {
 	public void setPassengers(int passengers) {
 		this.passengers = passengers;
 	}
-	/**
-	 * 
-	 * @return The array of array lists of passengers sorted by what floor they get off on.
-	 */
-	public ArrayList<Passengers>[] getPassByFloor() {
-		return passByFloor;
-	}
-	/**
-	 * Sets teh array of array lists of passengers sorted by what floor they get off on
-	 * @param passByFloor
-	 */
-	public void setPassByFloor(ArrayList<Passengers>[] passByFloor) {
-		this.passByFloor = passByFloor;
-	}
 	/**
 	 * 
 	 * @return The floor to go to from stop state
@@ -535,12 +599,201 @@ public class Elevator {
 		return canBoard;
 	}
 
+	/**
+	 * Gets the calls this elevator serves.
+	 *
+	 * @return the call manager, or the elevator's view of the calls assigned to it
+	 */
+	CallManager getCalls() {
+		return calls;
+	}
 
+	/**
+	 * Sets the calls this elevator serves.
+	 *
+	 * @param calls the call manager, or the elevator's view of the calls assigned to it
+	 */
+	void setCalls(CallManager calls) {
+		this.calls = calls;
+	}
 
+	/**
+	 * Gets the intent this elevator records its tick's effects on the building in.
+	 *
+	 * @return the intent, or null if the effects happen straight away
+	 */
+	ElevatorIntent getIntent() {
+		return intent;
+	}
 
+	/**
+	 * Sets the intent this elevator records its tick's effects on the building in.
+	 *
+	 * @param intent the intent, or null for the effects to happen straight away
+	 */
+	void setIntent(ElevatorIntent intent) {
+		this.intent = intent;
+	}
 
+	/**
+	 * Gets the farthest floor a passenger on board is going to, in the given
+	 * direction - the highest going up, the lowest going down.
+	 *
+	 * @param dir the dir
+	 * @return the floor, or -1 if nobody is on board
+	 */
+	int farthestDestination(int dir) {
+		return (dir > 0) ? stops.previousSetBit(peopleTo.length - 1) : stops.nextSetBit(0);
+	}
 
+	/**
+	 * Gets the number of floors the passengers on board are going to.
+	 *
+	 * @return the number of floors
+	 */
+	int numDestinations() {
+		return stops.cardinality();
+	}
 
+	/**
+	 * Add on board. Puts a group at the end of the list for the floor it gets
+	 * off on, and counts its people there.
+	 *
+	 * @param p the group
+	 */
+	private void addOnBoard(Passengers p) {
+		if (freeSlot == NIL) {
+			int capacity = onBoard.length;
+			onBoard = Arrays.copyOf(onBoard, 2 * capacity);
+			nextOnBoard = Arrays.copyOf(nextOnBoard, 2 * capacity);
+			freeSlots(capacity);
+		}
+		int slot = freeSlot;
+		freeSlot = nextOnBoard[slot];
+		int floor = p.getDestFloor();
+		onBoard[slot] = p;
+		nextOnBoard[slot] = NIL;
+		if (firstTo[floor] == NIL) {
+			firstTo[floor] = slot;
+		} else {
+			nextOnBoard[lastTo[floor]] = slot;
+		}
+		lastTo[floor] = slot;
+		peopleTo[floor] += p.getNumPass();
+		stops.set(floor);
+	}
 
-	
+	/**
+	 * Free slots. Makes every slot from the given one up free.
+	 *
+	 * @param from the first slot
+	 */
+	private void freeSlots(int from) {
+		for (int i = from; i < nextOnBoard.length - 1; i++) {
+			nextOnBoard[i] = i + 1;
+		}
+		nextOnBoard[nextOnBoard.length - 1] = NIL;
+		freeSlot = from;
+	}
+
+	/**
+	 * Clear on board. Forgets every group on board.
+	 */
+	private void clearOnBoard() {
+		Arrays.fill(onBoard, null);
+		Arrays.fill(firstTo, NIL);
+		Arrays.fill(peopleTo, 0);
+		stops.clear();
+		freeSlots(0);
+	}
+
+	/**
+	 * Reconfigure. Changes the characteristics of an elevator that is already
+	 * running, keeping its state and the passengers on board. A move, door or
+	 * boarding already under way carries on with the new timings from where
+	 * it is, and doors that are fully open stay fully open.
+	 *
+	 * @param capacity the capacity
+	 * @param floorTicks the floor ticks
+	 * @param doorTicks the door ticks
+	 * @param passPerTick the pass per tick
+	 */
+	void reconfigure(int capacity, int floorTicks, int doorTicks, int passPerTick) {
+		doorState = (doorState == ticksDoorOpenClose) ? doorTicks : Math.min(doorState, doorTicks);
+		this.capacity = capacity;
+		ticksPerFloor = floorTicks;
+		ticksDoorOpenClose = doorTicks;
+		this.passPerTick = passPerTick;
+	}
+
+	/**
+	 * Write state. Writes the configuration and every state variable of the
+	 * elevator, and the groups on board by destination floor, for a building
+	 * snapshot.
+	 *
+	 * @param out the output
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void writeState(DataOutput out) throws IOException {
+		for (int v : new int[] {capacity, ticksPerFloor, ticksDoorOpenClose, passPerTick, currState, prevState, prevFloor,
+		                        currFloor, direction, timeInState, doorState, passengers, moveToFloor, postMoveToFloorDir,
+		                        timeNeeded, totalBoarding}) {
+			out.writeInt(v);
+		}
+		for (boolean b : new boolean[] {isBoarding, isBoardingDone, isOffloading, isOffloadingDone, canBoard, forcedOpen}) {
+			out.writeBoolean(b);
+		}
+		out.writeInt(peopleTo.length);
+		for (int floor = 0; floor < peopleTo.length; floor++) {
+			int n = 0;
+			for (int slot = firstTo[floor]; slot != NIL; slot = nextOnBoard[slot]) {
+				n++;
+			}
+			out.writeInt(n);
+			for (int slot = firstTo[floor]; slot != NIL; slot = nextOnBoard[slot]) {
+				onBoard[slot].write(out);
+			}
+		}
+	}
+
+	/**
+	 * Read state. Restores everything written by writeState.
+	 *
+	 * @param in the input
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void readState(DataInput in) throws IOException {
+		capacity = in.readInt();
+		ticksPerFloor = in.readInt();
+		ticksDoorOpenClose = in.readInt();
+		passPerTick = in.readInt();
+		currState = in.readInt();
+		prevState = in.readInt();
+		prevFloor = in.readInt();
+		currFloor = in.readInt();
+		direction = in.readInt();
+		timeInState = in.readInt();
+		doorState = in.readInt();
+		passengers = in.readInt();
+		moveToFloor = in.readInt();
+		postMoveToFloorDir = in.readInt();
+		timeNeeded = in.readInt();
+		totalBoarding = in.readInt();
+		isBoarding = in.readBoolean();
+		isBoardingDone = in.readBoolean();
+		isOffloading = in.readBoolean();
+		isOffloadingDone = in.readBoolean();
+		canBoard = in.readBoolean();
+		forcedOpen = in.readBoolean();
+		int numFloors = in.readInt();
+		if (numFloors != peopleTo.length) {
+			throw new IllegalArgumentException("Snapshot is for "+numFloors+" floors, not "+peopleTo.length);
+		}
+		clearOnBoard();
+		for (int floor = 0; floor < numFloors; floor++) {
+			for (int n = in.readInt(); n > 0; n--) {
+				addOnBoard(Passengers.read(in));
+			}
+		}
+	}
 }
@@ -0,0 +1,174 @@
+package building;
+
+import java.util.Arrays;
+
+/**
+ * The Class ElevatorIntent. What one elevator's tick does to the rest of the
+ * building, when the elevators are updated in two phases (see
+ * Building.setUpdateThreads). While the elevators work out their ticks side
+ * by side, each one only changes itself: the state changes it would log and
+ * the groups it would board, skip, give up on or drop off are recorded here,
+ * in the order they happen, instead of touching the floor queues, the
+ * totals, PassData and the log. The building then commits the intents one
+ * elevator after another, in the order a sequential tick updates them.
+ *
+ * Each record is a type and up to five ints, with the group it is about.
+ * The arrays are grown as needed and reused from tick to tick.
+ */
+class ElevatorIntent {
+
+	/** The record types. */
+	static final int STATE = 0;
+	static final int ARRIVED = 1;
+	static final int GAVEUP = 2;
+	static final int BOARD = 3;
+	static final int SKIP = 4;
+
+	/** The number of ints in a record - the type and up to 5 values. */
+	private static final int RECORD = 6;
+
+	/** The records. */
+	private int[] records = new int[RECORD * 16];
+
+	/** The group each record is about - null for a state change. */
+	private Passengers[] groups = new Passengers[16];
+
+	/** The number of records. */
+	private int size;
+
+	/**
+	 * Clear. Forgets the records of the last tick.
+	 */
+	void clear() {
+		for (int i = 0; i < size; i++) {
+			groups[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Add. Records an effect.
+	 *
+	 * @param type the type
+	 * @param p the group, or null
+	 * @param a the first value
+	 * @param b the second value
+	 * @param c the third value
+	 * @param d the fourth value
+	 * @param e the fifth value
+	 */
+	private void add(int type, Passengers p, int a, int b, int c, int d, int e) {
+		if (size == groups.length) {
+			records = Arrays.copyOf(records, 2 * records.length);
+			groups = Arrays.copyOf(groups, 2 * groups.length);
+		}
+		int r = size * RECORD;
+		records[r] = type;
+		records[r+1] = a;
+		records[r+2] = b;
+		records[r+3] = c;
+		records[r+4] = d;
+		records[r+5] = e;
+		groups[size++] = p;
+	}
+
+	/**
+	 * State changed. The elevator changed state or floor.
+	 *
+	 * @param time the time
+	 * @param prevState the prev state
+	 * @param currState the curr state
+	 * @param prevFloor the prev floor
+	 * @param currFloor the curr floor
+	 */
+	void stateChanged(int time, int prevState, int currState, int prevFloor, int currFloor) {
+		add(STATE, null, time, prevState, currState, prevFloor, currFloor);
+	}
+
+	/**
+	 * Arrived. A group got off at its destination floor.
+	 *
+	 * @param time the time
+	 * @param p the group
+	 * @param floor the floor
+	 */
+	void arrived(int time, Passengers p, int floor) {
+		add(ARRIVED, p, time, floor, 0, 0, 0);
+	}
+
+	/**
+	 * Gave up. The group at the head of the queue gave up waiting.
+	 *
+	 * @param time the time
+	 * @param p the group
+	 * @param floor the floor
+	 * @param dir the dir
+	 */
+	void gaveUp(int time, Passengers p, int floor, int dir) {
+		add(GAVEUP, p, time, floor, dir, 0, 0);
+	}
+
+	/**
+	 * Board. The group at the head of the queue boarded the elevator.
+	 *
+	 * @param time the time
+	 * @param p the group
+	 * @param floor the floor
+	 * @param dir the dir
+	 */
+	void board(int time, Passengers p, int floor, int dir) {
+		add(BOARD, p, time, floor, dir, 0, 0);
+	}
+
+	/**
+	 * Skip. A group was passed over.
+	 *
+	 * @param time the time
+	 * @param p the group
+	 * @param floor the floor
+	 * @param dir the dir
+	 */
+	void skip(int time, Passengers p, int floor, int dir) {
+		add(SKIP, p, time, floor, dir, 0, 0);
+	}
+
+	/**
+	 * Gets the number of records.
+	 *
+	 * @return the number of records
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the type of a record.
+	 *
+	 * @param i the record
+	 * @return the type
+	 */
+	int getType(int i) {
+		return records[i * RECORD];
+	}
+
+	/**
+	 * Gets a value of a record.
+	 *
+	 * @param i the record
+	 * @param v the value, from 0
+	 * @return the value
+	 */
+	int getValue(int i, int v) {
+		return records[i * RECORD + 1 + v];
+	}
+
+	/**
+	 * Gets the group a record is about.
+	 *
+	 * @param i the record
+	 * @return the group, or null for a state change
+	 */
+	Passengers getGroup(int i) {
+		return groups[i];
+	}
+}
@@ -1,6 +1,9 @@
 package building;
 // ListIterater can be used to look at the contents of the floor queues for 
 // debug/display purposes...
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ListIterator;
 import genericqueue.GenericQueue;
 
@@ -23,6 +26,12 @@ public class Floor {
 	
 	/** The up. */
 	private GenericQueue<Passengers> up;
+	
+	/** The call manager to notify when a queue changes - null if there is none. */
+	private CallManager callMgr;
+	
+	/** The number of this floor, as the call manager knows it. */
+	private int floorNum;
 
 
 	/**
@@ -31,16 +40,27 @@ public class Floor {
 	 * @param qSize the q size
 	 */
 	public Floor(int qSize) {
-		down = new GenericQueue<Passengers>(qSize);
-		up = new GenericQueue<Passengers>(qSize);
+		down = new GenericQueue<Passengers>(qSize, true);
+		up = new GenericQueue<Passengers>(qSize, true);
 	}
 	
 	/**
 	 * Instantiates a new floor.
 	 */
 	public Floor() {
-		down = new GenericQueue<Passengers>();
-		up = new GenericQueue<Passengers>();
+		this(20);
+	}
+	
+	/**
+	 * Sets the call manager that keeps track of the calls on this floor. It is
+	 * told about every passenger group added to or polled from the queues.
+	 *
+	 * @param callMgr the call manager
+	 * @param floorNum the number of this floor
+	 */
+	void setCallManager(CallManager callMgr, int floorNum) {
+		this.callMgr = callMgr;
+		this.floorNum = floorNum;
 	}
 	
 	// TODO: Write the helper methods needed for this class. 
@@ -61,6 +81,9 @@ public class Floor {
 		} else {
 			down.add(p);
 		}
+		if (callMgr != null) {
+			callMgr.callAdded(floorNum, dir);
+		}
 	}
 	
 	/**
@@ -72,11 +95,26 @@ public class Floor {
 	// peer-reviewed: Aman
 	//same as removes but returns null if queue is empty
 	public Passengers poll(int dir) {
-		if(dir == UP) {
-			return up.poll();
-		} else {
-			return down.poll();
+		Passengers p = (dir == UP) ? up.poll() : down.poll();
+		if (p != null && callMgr != null) {
+			callMgr.callRemoved(floorNum, dir);
+		}
+		return p;
+	}
+	
+	/**
+	 * Remove. Takes a group out of a queue, wherever it is waiting in it.
+	 *
+	 * @param dir the dir
+	 * @param p the group
+	 * @return true, if the group was waiting in the queue
+	 */
+	public boolean remove(int dir, Passengers p) {
+		boolean removed = (dir == UP) ? up.remove(p) : down.remove(p);
+		if (removed && callMgr != null) {
+			callMgr.callRemoved(floorNum, dir);
 		}
+		return removed;
 	}
 	
 	/**
@@ -107,6 +145,20 @@ public class Floor {
 		return down.peek();
 	}
 	
+	/**
+	 * Peek. Looks past the head of a queue.
+	 *
+	 * @param dir the dir
+	 * @param i the index from the head - 0 for the head
+	 * @return the passengers, or null if the queue is not that long
+	 */
+	public Passengers peek(int dir, int i) {
+		if(dir == UP) {
+			return up.peek(i);
+		}
+		return down.peek(i);
+	}
+	
 	/**
 	 * Size.
 	 *
@@ -122,6 +174,48 @@ public class Floor {
 	}
 	 
 	
+	/**
+	 * Write state. Writes the groups waiting in both queues, in order, for a
+	 * building snapshot.
+	 *
+	 * @param out the output
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void writeState(DataOutput out) throws IOException {
+		writeQueue(out, up);
+		writeQueue(out, down);
+	}
+	
+	/**
+	 * Write queue. Writes the size of a queue and its groups, in order.
+	 *
+	 * @param out the output
+	 * @param q the queue
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeQueue(DataOutput out, GenericQueue<Passengers> q) throws IOException {
+		out.writeInt(q.size());
+		ListIterator<Passengers> list = q.getListIterator();
+		while (list.hasNext()) {
+			list.next().write(out);
+		}
+	}
+	
+	/**
+	 * Read state. Refills both queues, which must be empty, from writeState.
+	 * The call manager is told about every group, as for add.
+	 *
+	 * @param in the input
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void readState(DataInput in) throws IOException {
+		for (int dir : new int[] {UP, DOWN}) {
+			for (int n = in.readInt(); n > 0; n--) {
+				add(dir, Passengers.read(in));
+			}
+		}
+	}
+	
 	/**
 	 * Queue string. This method provides visibility into the queue
 	 * contents as a string. What exactly you would want to visualize 
@@ -0,0 +1,304 @@
+package building;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The Class GiveUpWheel. A hierarchical timing wheel of the ticks at which
+ * waiting passenger groups give up. There are LEVELS wheels of SLOTS slots:
+ * a slot on level 0 is one tick, a slot on level l spans SLOTS^l ticks, and a
+ * group is kept on the lowest level whose slot holds only its tick among the
+ * ticks still to come. Deadlines further out than the top level reaches wait
+ * in an overflow list. As the wheel turns, the groups in a slot that is
+ * reached move down a level, until they fire from level 0 at their tick.
+ * Each level also keeps a bitmask of its slots in use, so the next tick with
+ * anything to do is found with a few word scans.
+ *
+ * The lists of a slot are doubly linked, and each group knows its entry, so a
+ * group that boards is taken out of the wheel in O(1) and the wheel only
+ * holds waiting groups. A tick costs O(1) however many groups are waiting,
+ * plus O(1) for each group moved or fired.
+ *
+ * Like ArrivalCalendar the entries are stored as parallel arrays, addressed
+ * by the slot the entry is stored in.
+ */
+public class GiveUpWheel {
+
+	/** No tick - the wheel is empty. */
+	public static final int NONE = Integer.MAX_VALUE;
+
+	/** The number of bits of the tick each level uses, and the number of slots per level. */
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+
+	/** The number of levels - together they reach 2^24 ticks ahead. */
+	private static final int LEVELS = 4;
+
+	/** The end of a list. */
+	private static final int NIL = -1;
+
+	/** The group and the tick of each entry. */
+	private Passengers[] group = new Passengers[0];
+	private int[] tick = new int[0];
+
+	/** The next entry in the same slot, or in the list of free entries. */
+	private int[] next = new int[0];
+
+	/** The previous entry in the same slot - NIL for the first. */
+	private int[] prev = new int[0];
+
+	/** The slot the entry is in, as an index into slotHead. */
+	private int[] home = new int[0];
+
+	/** The index in slotHead of the list beyond the top level. */
+	private static final int OVERFLOW = LEVELS * SLOTS;
+
+	/** The first entry of each slot, level by level, then of the overflow list - NIL if it is empty. */
+	private final int[] slotHead = new int[LEVELS * SLOTS + 1];
+
+	/** The slots in use on each level, one bit per slot. */
+	private final long[] inUse = new long[LEVELS];
+
+	/** The first free entry - NIL if every entry is in use. */
+	private int free;
+
+	/** The number of entries. */
+	private int size;
+
+	/** The last tick the wheel was turned to - every entry for it or earlier has fired. */
+	private int now;
+
+	/** The groups fired by the last call to advance. */
+	private final ArrayList<Passengers> fired = new ArrayList<Passengers>();
+
+	/**
+	 * Instantiates a new give up wheel.
+	 *
+	 * @param initialCapacity the number of entries to allocate up front
+	 * @param now the last tick simulated
+	 */
+	public GiveUpWheel(int initialCapacity, int now) {
+		resize(Math.max(1, initialCapacity));
+		clear(now);
+	}
+
+	/**
+	 * Resize. Sets the number of entries, keeping the ones in use.
+	 *
+	 * @param capacity the capacity
+	 */
+	private void resize(int capacity) {
+		group = Arrays.copyOf(group, capacity);
+		tick = Arrays.copyOf(tick, capacity);
+		next = Arrays.copyOf(next, capacity);
+		prev = Arrays.copyOf(prev, capacity);
+		home = Arrays.copyOf(home, capacity);
+	}
+
+	/**
+	 * Free entries. Makes every entry from the given one up free.
+	 *
+	 * @param from the first entry
+	 */
+	private void freeEntries(int from) {
+		for (int i = from; i < next.length - 1; i++) {
+			next[i] = i + 1;
+		}
+		next[next.length - 1] = NIL;
+		free = from;
+	}
+
+	/**
+	 * Clear. Removes every entry and sets the tick the wheel is at.
+	 *
+	 * @param now the last tick simulated
+	 */
+	public void clear(int now) {
+		for (int e = 0; e < group.length; e++) {
+			if (group[e] != null) group[e].setGiveUpEntry(NIL);
+		}
+		Arrays.fill(group, null);
+		Arrays.fill(slotHead, NIL);
+		Arrays.fill(inUse, 0);
+		freeEntries(0);
+		size = 0;
+		this.now = now;
+	}
+
+	/**
+	 * Adds a group that gives up at the given tick - or at the next tick, if
+	 * that one has passed already.
+	 *
+	 * @param p the group
+	 * @param tick the tick
+	 */
+	public void add(Passengers p, int tick) {
+		if (free == NIL) {
+			int capacity = group.length;
+			resize(2 * capacity);
+			freeEntries(capacity);
+		}
+		int e = free;
+		free = next[e];
+		group[e] = p;
+		p.setGiveUpEntry(e);
+		this.tick[e] = Math.max(tick, now + 1);
+		place(e);
+		size++;
+	}
+
+	/**
+	 * Removes a group, so it does not fire.
+	 *
+	 * @param p the group
+	 * @return true, if the group was in the wheel
+	 */
+	public boolean remove(Passengers p) {
+		int e = p.getGiveUpEntry();
+		if (e == NIL || group[e] != p) return false;
+		int h = home[e];
+		if (prev[e] == NIL) {
+			slotHead[h] = next[e];
+			if (next[e] == NIL && h != OVERFLOW) inUse[h / SLOTS] &= ~(1L << (h % SLOTS));
+		} else {
+			next[prev[e]] = next[e];
+		}
+		if (next[e] != NIL) prev[next[e]] = prev[e];
+		release(e);
+		return true;
+	}
+
+	/**
+	 * Release. Frees an entry that has been taken out of its slot.
+	 *
+	 * @param e the entry
+	 */
+	private void release(int e) {
+		group[e].setGiveUpEntry(NIL);
+		group[e] = null;
+		next[e] = free;
+		free = e;
+		size--;
+	}
+
+	/**
+	 * Place. Puts an entry in the slot for its tick, seen from the tick the
+	 * wheel is at: on the level of the highest bit the two ticks differ in.
+	 *
+	 * @param e the entry
+	 */
+	private void place(int e) {
+		int diff = tick[e] ^ now;
+		int level = (diff == 0) ? 0 : (31 - Integer.numberOfLeadingZeros(diff)) / SLOT_BITS;
+		int h = OVERFLOW;
+		if (level < LEVELS) {
+			int slot = (tick[e] >>> (level * SLOT_BITS)) & (SLOTS - 1);
+			h = level * SLOTS + slot;
+			inUse[level] |= 1L << slot;
+		}
+		next[e] = slotHead[h];
+		prev[e] = NIL;
+		if (next[e] != NIL) prev[next[e]] = e;
+		slotHead[h] = e;
+		home[e] = h;
+	}
+
+	/**
+	 * Next tick. Finds the next tick at which the wheel has anything to do -
+	 * a group to fire, or groups to move down a level. No group fires before it.
+	 *
+	 * @return the tick, or NONE if the wheel is empty
+	 */
+	public int nextTick() {
+		if (size == 0) return NONE;
+		for (int level = 0; level < LEVELS; level++) {
+			int shift = level * SLOT_BITS;
+			int digit = (now >>> shift) & (SLOTS - 1);
+			long later = inUse[level] & (-2L << digit);
+			if (later != 0) {
+				int span = shift + SLOT_BITS;
+				return ((now >>> span) << span) | (Long.numberOfTrailingZeros(later) << shift);
+			}
+		}
+		long top = ((long) (now >>> (LEVELS * SLOT_BITS)) + 1) << (LEVELS * SLOT_BITS);
+		return (top < NONE) ? (int) top : NONE;
+	}
+
+	/**
+	 * Advance. Turns the wheel to the given tick, skipping straight over the
+	 * ticks with nothing to do, and collects the groups that give up at it or
+	 * before it. The list is reused by the next call.
+	 *
+	 * @param to the tick
+	 * @return the groups that fired, in no particular order
+	 */
+	public ArrayList<Passengers> advance(int to) {
+		fired.clear();
+		while (now < to) {
+			int t = nextTick();
+			if (t > to) {
+				now = to;
+				break;
+			}
+			now = t;
+			turn(t);
+		}
+		return fired;
+	}
+
+	/**
+	 * Turn. Moves the groups in the slots that start at the given tick, from
+	 * the top level down, and fires the ones for the tick itself.
+	 *
+	 * @param t the tick the wheel is now at
+	 */
+	private void turn(int t) {
+		if ((t & ((1 << (LEVELS * SLOT_BITS)) - 1)) == 0) {
+			int e = slotHead[OVERFLOW];
+			slotHead[OVERFLOW] = NIL;
+			replace(e);
+		}
+		for (int level = LEVELS - 1; level > 0; level--) {
+			int shift = level * SLOT_BITS;
+			if ((t & ((1 << shift) - 1)) == 0) {
+				int slot = (t >>> shift) & (SLOTS - 1);
+				int e = slotHead[level * SLOTS + slot];
+				slotHead[level * SLOTS + slot] = NIL;
+				inUse[level] &= ~(1L << slot);
+				replace(e);
+			}
+		}
+		int slot = t & (SLOTS - 1);
+		for (int e = slotHead[slot]; e != NIL;) {
+			int n = next[e];
+			fired.add(group[e]);
+			release(e);
+			e = n;
+		}
+		slotHead[slot] = NIL;
+		inUse[0] &= ~(1L << slot);
+	}
+
+	/**
+	 * Replace. Places every entry of a list again, seen from the tick the
+	 * wheel is now at.
+	 *
+	 * @param e the first entry of the list
+	 */
+	private void replace(int e) {
+		while (e != NIL) {
+			int n = next[e];
+			place(e);
+			e = n;
+		}
+	}
+
+	/**
+	 * Size.
+	 *
+	 * @return the number of groups in the wheel
+	 */
+	public int size() {
+		return size;
+	}
+}
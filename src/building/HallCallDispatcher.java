@@ -0,0 +1,376 @@
+package building;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The Class HallCallDispatcher. Assigns every hall call - the groups waiting
+ * on a floor to go in one direction - to exactly one elevator, so that with
+ * several elevators each call is served by one car instead of every car
+ * leaving STOP to chase it. Each elevator has a CallManager view holding only
+ * its own calls, which the state machine in Building and the DispatchPolicy
+ * ask instead of the building's CallManager.
+ *
+ * A new call goes to the elevator with the lowest estimated time to serve it,
+ * worked out from the elevator's state, direction and load and the calls and
+ * passengers it already has (see eta). After every tick, the calls of any
+ * elevator whose estimate may have changed - it reached a floor, turned,
+ * filled up, went idle - are weighed up again, and move to another elevator
+ * when that one would be there sooner by more than REASSIGN_MARGIN floors. A
+ * call an elevator is already opening its doors for, or heading straight to
+ * from STOP, stays with it.
+ *
+ * Each call has one owner at a time, so only one elevator loads at a floor
+ * in a direction. At up peak, when most groups wait in the lobby, the cars
+ * take the lobby call in turn: the owner fills up and leaves, the call moves
+ * to the car that will be back soonest, and the others serve the calls
+ * upstairs. More cars still shorten the waits, but the lobby loads no
+ * faster than one car at a time.
+ *
+ * With a single elevator there is no dispatcher: the elevator serves every
+ * call through the building's CallManager, as it always has.
+ */
+class HallCallDispatcher {
+
+	/** The Constant UP. */
+	private final static int UP = 1;
+
+	/** The Constant DOWN. */
+	private final static int DOWN = -1;
+
+	/** The number of floors an elevator must save to take a call over from another. */
+	private static final int REASSIGN_MARGIN = 2;
+
+	/** The num floors. */
+	private final int NUM_FLOORS;
+
+	/** The floors. */
+	private final Floor[] floors;
+
+	/** The elevators. */
+	private final Elevator[] elevators;
+
+	/** The view of the calls assigned to each elevator. */
+	private final CallManager[] views;
+
+	/** The elevator each floor's up and down call is assigned to - -1 if there is no call. */
+	private final int[] upOwner;
+	private final int[] downOwner;
+
+	/** What each elevator's estimates depended on after the last tick - see signature. */
+	private final long[] lastSignature;
+
+	/** The elevators whose estimates may have changed in this tick. */
+	private final boolean[] changed;
+
+	/**
+	 * Instantiates a new hall call dispatcher. The elevators must already be
+	 * configured; each is given its view of the calls.
+	 *
+	 * @param floors the floors
+	 * @param numFloors the num floors
+	 * @param elevators the elevators
+	 */
+	HallCallDispatcher(Floor[] floors, int numFloors, Elevator[] elevators) {
+		this.floors = floors;
+		NUM_FLOORS = numFloors;
+		this.elevators = elevators;
+		views = new CallManager[elevators.length];
+		for (int i = 0; i < elevators.length; i++) {
+			views[i] = new CallManager(floors, numFloors, true);
+			elevators[i].setCalls(views[i]);
+		}
+		upOwner = new int[numFloors];
+		downOwner = new int[numFloors];
+		Arrays.fill(upOwner, -1);
+		Arrays.fill(downOwner, -1);
+		lastSignature = new long[elevators.length];
+		changed = new boolean[elevators.length];
+		for (int i = 0; i < elevators.length; i++) {
+			lastSignature[i] = signature(i);
+		}
+	}
+
+	/**
+	 * Owners. Gets the owners of the calls in a direction.
+	 *
+	 * @param dir the dir
+	 * @return the owners, by floor
+	 */
+	private int[] owners(int dir) {
+		return (dir == UP) ? upOwner : downOwner;
+	}
+
+	/**
+	 * Gets the elevator a call is assigned to.
+	 *
+	 * @param floor the floor
+	 * @param dir the dir
+	 * @return the elevator, or -1 if there is no call
+	 */
+	int getOwner(int floor, int dir) {
+		return owners(dir)[floor];
+	}
+
+	/**
+	 * Call added. A group joined the queue of the floor in the given direction:
+	 * it goes to the elevator the call is assigned to, assigning the call first
+	 * if it is new.
+	 *
+	 * @param floor the floor
+	 * @param dir the dir
+	 */
+	void callAdded(int floor, int dir) {
+		int[] owner = owners(dir);
+		if (owner[floor] < 0) {
+			int best = 0;
+			int bestEta = eta(0, floor, dir);
+			for (int i = 1; i < elevators.length; i++) {
+				int e = eta(i, floor, dir);
+				if (e < bestEta) {
+					best = i;
+					bestEta = e;
+				}
+			}
+			owner[floor] = best;
+		}
+		views[owner[floor]].callAdded(floor, dir);
+	}
+
+	/**
+	 * Call removed. A group left the queue of the floor in the given direction;
+	 * once the queue is empty, the call is no longer assigned.
+	 *
+	 * @param floor the floor
+	 * @param dir the dir
+	 */
+	void callRemoved(int floor, int dir) {
+		int[] owner = owners(dir);
+		views[owner[floor]].callRemoved(floor, dir);
+		if (floors[floor].empty(dir)) owner[floor] = -1;
+	}
+
+	/**
+	 * Reassign. Moves a call to another elevator.
+	 *
+	 * @param floor the floor
+	 * @param dir the dir
+	 * @param to the elevator to assign it to
+	 */
+	private void reassign(int floor, int dir, int to) {
+		int[] owner = owners(dir);
+		views[owner[floor]].release(floor, dir);
+		owner[floor] = to;
+		views[to].claim(floor, dir);
+	}
+
+	/**
+	 * Signature. Packs up everything about an elevator that its estimates
+	 * depend on, apart from the calls it has: its state, floor, direction,
+	 * where it is heading from STOP, and whether it is full or empty.
+	 *
+	 * @param car the elevator
+	 * @return the signature
+	 */
+	private long signature(int car) {
+		Elevator lift = elevators[car];
+		return (long) lift.getCurrState() << 56 ^ (long) (lift.getDirection() & 3) << 52 ^
+		       (long) (lift.isFull() ? 1 : lift.isEmpty() ? 2 : 0) << 48 ^
+		       (long) lift.getMoveToFloor() << 24 ^ lift.getCurrFloor();
+	}
+
+	/**
+	 * Rebalance. Called after every tick: finds the elevators whose estimates
+	 * may have changed, and moves each call to the elevator that would now
+	 * serve it soonest - when that saves more than REASSIGN_MARGIN floors. The
+	 * calls of the changed elevators are weighed up against every elevator,
+	 * and every other call against the changed elevators only. Calls and
+	 * elevators are always visited in the same order, so the assignments
+	 * depend on nothing but the state of the building.
+	 */
+	void rebalance() {
+		boolean anyChanged = false;
+		for (int i = 0; i < elevators.length; i++) {
+			long sig = signature(i);
+			changed[i] = (sig != lastSignature[i]);
+			lastSignature[i] = sig;
+			anyChanged |= changed[i];
+		}
+		if (!anyChanged) return;
+		for (int dir = UP; dir >= DOWN; dir -= 2) {
+			int[] owner = owners(dir);
+			for (int floor = 0; floor < NUM_FLOORS; floor++) {
+				int from = owner[floor];
+				if (from < 0 || committed(from, floor, dir)) continue;
+				int fromEta = eta(from, floor, dir);
+				int best = from;
+				int bestEta = Integer.MAX_VALUE;
+				for (int i = 0; i < elevators.length; i++) {
+					if (i == from || !(changed[from] || changed[i])) continue;
+					int e = eta(i, floor, dir);
+					if (e < bestEta) {
+						best = i;
+						bestEta = e;
+					}
+				}
+				if (best != from && bestEta + REASSIGN_MARGIN * elevators[best].getTicksPerFloor() < fromEta) {
+					reassign(floor, dir, best);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Committed. Checks whether an elevator is already committed to a call:
+	 * it is on the floor going that way with its doors opening, open or
+	 * closing, or on its way there from STOP.
+	 *
+	 * @param car the elevator
+	 * @param floor the floor
+	 * @param dir the dir
+	 * @return true, if the call must stay with the elevator
+	 */
+	private boolean committed(int car, int floor, int dir) {
+		Elevator lift = elevators[car];
+		switch (lift.getCurrState()) {
+			case Elevator.MVTOFLR:
+				return lift.getMoveToFloor() == floor && lift.getPostMoveToFloorDir() == dir;
+			case Elevator.OPENDR:
+			case Elevator.OFFLD:
+			case Elevator.BOARD:
+			case Elevator.CLOSEDR:
+				return lift.getCurrFloor() == floor && lift.getDirection() == dir;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Eta. Estimates the ticks an elevator needs to reach a call, ready to
+	 * take the group in the call's direction. An elevator on its way there,
+	 * going the right way, only has the floors in between to travel; one
+	 * going the other way first finishes its sweep to its farthest call or
+	 * passenger's floor and turns; one going the right way but already past
+	 * the floor has to sweep out and back again. Every call it has and every
+	 * floor its passengers get off at adds a stop, and a full elevator is
+	 * counted as a whole trip up and down the building late.
+	 *
+	 * @param car the elevator
+	 * @param floor the floor
+	 * @param dir the dir
+	 * @return the estimated ticks
+	 */
+	int eta(int car, int floor, int dir) {
+		Elevator lift = elevators[car];
+		CallManager view = views[car];
+		int floorTicks = lift.getTicksPerFloor();
+		int stopTicks = 2 * lift.getTicksDoorOpenClose() + 2;
+		int at = lift.getCurrFloor();
+		int heading = lift.getDirection();
+		int ticks = 0;
+		switch (lift.getCurrState()) {
+			case Elevator.STOP:
+				if (!view.callPending()) return Math.abs(floor - at) * floorTicks;
+				break;
+			case Elevator.MVTOFLR:
+				ticks = Math.abs(lift.getMoveToFloor() - at) * floorTicks + stopTicks;
+				at = lift.getMoveToFloor();
+				heading = lift.getPostMoveToFloorDir();
+				break;
+			case Elevator.MV1FLR:
+				// it can only stop at the next floor
+				at = clamp(at + heading);
+				break;
+			case Elevator.CLOSEDR:
+				if (!lift.isEmpty()) at = clamp(at + heading);
+				break;
+			default:
+				break;
+		}
+		if (heading == 0) heading = (floor >= at) ? UP : DOWN;
+		int far = farthest(car, heading, at);
+		int travel;
+		if (dir == heading && (floor - at) * heading >= 0) {
+			travel = Math.abs(floor - at);
+		} else if (dir != heading) {
+			int turn = (heading == UP) ? Math.max(far, floor) : Math.min(far, floor);
+			travel = Math.abs(turn - at) + Math.abs(turn - floor);
+		} else {
+			int back = farthest(car, -heading, floor);
+			back = (heading == UP) ? Math.min(back, floor) : Math.max(back, floor);
+			travel = Math.abs(far - at) + Math.abs(far - back) + Math.abs(floor - back);
+		}
+		ticks += travel * floorTicks + (view.numCallFloors() + lift.numDestinations()) * stopTicks;
+		if (lift.isFull()) ticks += 2 * NUM_FLOORS * floorTicks;
+		return ticks;
+	}
+
+	/**
+	 * Farthest. Gets the farthest floor, in the given direction from a floor,
+	 * that an elevator has a call on or a passenger going to.
+	 *
+	 * @param car the elevator
+	 * @param dir the dir
+	 * @param from the floor
+	 * @return the farthest floor - from itself if there is none
+	 */
+	private int farthest(int car, int dir, int from) {
+		int call = views[car].farthestCall(dir);
+		int dest = elevators[car].farthestDestination(dir);
+		int far = from;
+		if (call >= 0) far = (dir == UP) ? Math.max(far, call) : Math.min(far, call);
+		if (dest >= 0) far = (dir == UP) ? Math.max(far, dest) : Math.min(far, dest);
+		return far;
+	}
+
+	/**
+	 * Clamp. Keeps a floor inside the building.
+	 *
+	 * @param floor the floor
+	 * @return the floor
+	 */
+	private int clamp(int floor) {
+		return Math.max(0, Math.min(NUM_FLOORS - 1, floor));
+	}
+
+	/**
+	 * Write state. Writes the owner of every call and the signatures, for a
+	 * building snapshot.
+	 *
+	 * @param out the output
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void writeState(DataOutput out) throws IOException {
+		for (int floor = 0; floor < NUM_FLOORS; floor++) {
+			out.writeInt(upOwner[floor]);
+			out.writeInt(downOwner[floor]);
+		}
+		for (long sig : lastSignature) {
+			out.writeLong(sig);
+		}
+	}
+
+	/**
+	 * Read state. Restores everything written by writeState, once the floor
+	 * queues have been restored, and refills the views of the calls.
+	 *
+	 * @param in the input
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void readState(DataInput in) throws IOException {
+		for (CallManager view : views) {
+			view.clearCalls();
+		}
+		for (int floor = 0; floor < NUM_FLOORS; floor++) {
+			upOwner[floor] = in.readInt();
+			downOwner[floor] = in.readInt();
+			if (upOwner[floor] >= 0) views[upOwner[floor]].claim(floor, UP);
+			if (downOwner[floor] >= 0) views[downOwner[floor]].claim(floor, DOWN);
+		}
+		for (int i = 0; i < lastSignature.length; i++) {
+			lastSignature[i] = in.readLong();
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package building;
+
+/**
+ * The Class NearestCallPolicy. Sends an elevator in STOP to the nearest
+ * floor with a call, in either direction, instead of weighing up the calls
+ * in each direction. On that floor it takes the direction with more groups
+ * waiting, up on a tie. Once moving, it follows the default rules.
+ */
+public class NearestCallPolicy extends DefaultDispatchPolicy {
+
+	/** The Constant UP. */
+	private final static int UP = 1;
+
+	/** The Constant DOWN. */
+	private final static int DOWN = -1;
+
+	@Override
+	public Passengers chooseTarget(CallManager calls, int floor) {
+		int target = calls.nearestCall(floor);
+		return calls.getPassenger(target, (calls.numCalls(target, UP) >= calls.numCalls(target, DOWN)) ? UP : DOWN);
+	}
+}
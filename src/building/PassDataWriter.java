@@ -0,0 +1,307 @@
+package building;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import myfileio.MyFileIO;
+
+/**
+ * The Class PassDataWriter. Writes the PassData csv
+ * (ID,Number,From,To,WaitToBoard,TotalTime) a row at a time, as each
+ * passenger group arrives or gives up, instead of keeping every group until
+ * the end of the run. Rows go through a buffer straight to the file, so the
+ * rows written so far survive a run that never ends.
+ *
+ * Ordered, the file lists the arrivals followed by the give ups, as it always
+ * has; the give ups are kept in a temporary spill file until finish() appends
+ * them. Unordered, every row is written to the file in the order it happens,
+ * so nothing is held back.
+ *
+ * A checkpoint records how long the file is and holds the spilled give ups,
+ * so a writer restored from it carries on as if the run had never stopped:
+ * the file is cut back to that length, or, for a different file, started
+ * with a copy of that much of the checkpointed one.
+ */
+class PassDataWriter {
+
+	/** The header of the PassData csv. */
+	private static final String HEADER = "ID,Number,From,To,WaitToBoard,TotalTime\n";
+
+	/** The size of the write buffers in bytes. */
+	private static final int BUFFER_SIZE = 1 << 14;
+
+	/** The most bytes a row can take - 6 ints, 5 commas and the newline. */
+	private static final int MAX_ROW = 6 * 11 + 6;
+
+	/** The fio. */
+	private MyFileIO fio = new MyFileIO();
+
+	/** The PassData file. */
+	private final File file;
+
+	/** Whether give ups go after all arrivals. */
+	private final boolean ordered;
+
+	/** The channel and buffer for the PassData file - null once finished. */
+	private FileChannel out;
+	private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/** The spill file, its channel and buffer - null until the first give up. */
+	private File spillFile;
+	private FileChannel spill;
+	private ByteBuffer spillBuf;
+
+	/**
+	 * Instantiates a new pass data writer, creating (or truncating) the file
+	 * and writing the header.
+	 *
+	 * @param file the PassData file
+	 * @param ordered true to write the give ups after all arrivals
+	 */
+	PassDataWriter(File file, boolean ordered) {
+		this.file = file;
+		this.ordered = ordered;
+		try {
+			out = open(file);
+			for (int i = 0; i < HEADER.length(); i++) buf.put((byte) HEADER.charAt(i));
+		} catch (IOException e) {
+			System.err.println("Error in writing file: "+file.getPath());
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Instantiates a new pass data writer from a checkpoint. The rows in the
+	 * file up to the checkpoint are kept, and any after it are cut off.
+	 *
+	 * @param file the PassData file
+	 * @param in the input to read the checkpoint from
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	PassDataWriter(File file, DataInput in) throws IOException {
+		this.file = file;
+		ordered = in.readBoolean();
+		File from = new File(in.readUTF());
+		long length = in.readLong();
+		long spillLength = in.readLong();
+		if (length < 0) return;
+		if (from.getCanonicalFile().equals(file.getCanonicalFile())) {
+			out = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+		} else {
+			out = open(file);
+			try (FileChannel src = FileChannel.open(from.toPath(), StandardOpenOption.READ)) {
+				long pos = 0;
+				while (pos < length && pos < src.size()) pos += src.transferTo(pos, length - pos, out);
+			}
+		}
+		if (out.size() < length) {
+			out.close();
+			out = null;
+			throw new IllegalStateException(file.getPath()+" is shorter than its checkpoint - the rows before it are lost");
+		}
+		out.truncate(length);
+		out.position(length);
+		if (spillLength > 0) {
+			spillBuf = ByteBuffer.allocate(BUFFER_SIZE);
+			spillFile = File.createTempFile(file.getName(), ".gaveup");
+			spillFile.deleteOnExit();
+			spill = open(spillFile);
+			for (long n = spillLength; n > 0; ) {
+				int chunk = (int) Math.min(n, spillBuf.capacity());
+				in.readFully(spillBuf.array(), 0, chunk);
+				spillBuf.position(chunk);
+				drain(spill, spillBuf);
+				n -= chunk;
+			}
+		}
+	}
+
+	/**
+	 * Checkpoint. Flushes the rows written so far, and writes the order, the
+	 * file and its length, and the spilled give ups.
+	 *
+	 * @param to the output to write the checkpoint to
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void checkpoint(DataOutput to) throws IOException {
+		flush();
+		to.writeBoolean(ordered);
+		to.writeUTF(file.getPath());
+		to.writeLong((out == null) ? -1 : out.position());
+		long spillLength = (spill == null || out == null) ? 0 : spill.position();
+		to.writeLong(spillLength);
+		if (spillLength > 0) {
+			byte[] chunk = new byte[BUFFER_SIZE];
+			try (FileChannel in = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ)) {
+				ByteBuffer b = ByteBuffer.wrap(chunk);
+				for (long pos = 0; pos < spillLength; ) {
+					b.clear();
+					int n = in.read(b, pos);
+					if (n < 0) throw new IOException(spillFile.getPath()+" is shorter than expected");
+					to.write(chunk, 0, n);
+					pos += n;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Open a file for writing, truncating it.
+	 *
+	 * @param f the file
+	 * @return the channel
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private FileChannel open(File f) throws IOException {
+		return FileChannel.open(f.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Write the row of a group that arrived at its destination.
+	 *
+	 * @param id the id of the group
+	 * @param numPass the number of people in the group
+	 * @param onFloor the floor the group called from (0-based)
+	 * @param destFloor the floor the group went to (0-based)
+	 * @param waitToBoard the time from calling to boarding
+	 * @param totalTime the time from calling to arriving
+	 */
+	void arrived(int id, int numPass, int onFloor, int destFloor, int waitToBoard, int totalTime) {
+		if (out == null) return;
+		if (buf.remaining() < MAX_ROW) drain(out, buf);
+		putRow(buf, id, numPass, onFloor+1, destFloor+1, waitToBoard, totalTime);
+	}
+
+	/**
+	 * Write the row of a group that gave up. Its TotalTime is -1.
+	 *
+	 * @param id the id of the group
+	 * @param numPass the number of people in the group
+	 * @param onFloor the floor the group called from (0-based)
+	 * @param destFloor the floor the group was going to (0-based)
+	 * @param waitTime the time the group waited before giving up
+	 */
+	void gaveUp(int id, int numPass, int onFloor, int destFloor, int waitTime) {
+		if (out == null) return;
+		if (!ordered) {
+			if (buf.remaining() < MAX_ROW) drain(out, buf);
+			putRow(buf, id, numPass, onFloor+1, destFloor+1, waitTime, -1);
+			return;
+		}
+		if (spillBuf == null) {
+			spillBuf = ByteBuffer.allocate(BUFFER_SIZE);
+			try {
+				spillFile = File.createTempFile(file.getName(), ".gaveup");
+				spillFile.deleteOnExit();
+				spill = open(spillFile);
+			} catch (IOException e) {
+				System.err.println("Error in writing file: "+spillFile);
+				e.printStackTrace();
+			}
+		}
+		if (spillBuf.remaining() < MAX_ROW) drain(spill, spillBuf);
+		putRow(spillBuf, id, numPass, onFloor+1, destFloor+1, waitTime, -1);
+	}
+
+	/**
+	 * Put a row into a buffer as csv, without building a String.
+	 *
+	 * @param b the buffer
+	 * @param id the id
+	 * @param number the number of people
+	 * @param from the from floor
+	 * @param to the to floor
+	 * @param waitToBoard the wait to board
+	 * @param totalTime the total time
+	 */
+	private static void putRow(ByteBuffer b, int id, int number, int from, int to, int waitToBoard, int totalTime) {
+		putInt(b, id);
+		b.put((byte) ',');
+		putInt(b, number);
+		b.put((byte) ',');
+		putInt(b, from);
+		b.put((byte) ',');
+		putInt(b, to);
+		b.put((byte) ',');
+		putInt(b, waitToBoard);
+		b.put((byte) ',');
+		putInt(b, totalTime);
+		b.put((byte) '\n');
+	}
+
+	/**
+	 * Put an int into a buffer as decimal digits.
+	 *
+	 * @param b the buffer
+	 * @param value the value
+	 */
+	private static void putInt(ByteBuffer b, int value) {
+		long v = value;
+		if (v < 0) {
+			b.put((byte) '-');
+			v = -v;
+		}
+		long div = 1;
+		while (div * 10 <= v) div *= 10;
+		for (; div > 0; div /= 10) {
+			b.put((byte) ('0' + (v / div) % 10));
+		}
+	}
+
+	/**
+	 * Drain. Writes a buffer to its channel.
+	 *
+	 * @param ch the channel - nothing is written if it is null
+	 * @param b the buffer
+	 */
+	private void drain(FileChannel ch, ByteBuffer b) {
+		b.flip();
+		try {
+			while (ch != null && b.hasRemaining()) ch.write(b);
+		} catch (IOException e) {
+			System.err.println("Error in writing file: "+file.getPath());
+			e.printStackTrace();
+		}
+		b.clear();
+	}
+
+	/**
+	 * Flush the rows written so far to the file(s).
+	 */
+	void flush() {
+		if (out == null) return;
+		drain(out, buf);
+		if (spillBuf != null) drain(spill, spillBuf);
+	}
+
+	/**
+	 * Finish the file - appends the give ups when ordered, and closes it. Rows
+	 * written after this are ignored.
+	 */
+	void finish() {
+		if (out == null) return;
+		flush();
+		try {
+			if (spill != null) {
+				long pos = 0, size = spill.size();
+				try (FileChannel in = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ)) {
+					while (pos < size) pos += in.transferTo(pos, size - pos, out);
+				}
+				spill.close();
+				spill = null;
+				fio.deleteFile(spillFile.getPath());
+			}
+			out.close();
+		} catch (IOException e) {
+			System.err.println("Error in writing file: "+file.getPath());
+			e.printStackTrace();
+		}
+		out = null;
+	}
+}
@@ -0,0 +1,50 @@
+package building;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The Interface PassengerSource. Supplies the passenger groups of a simulation
+ * one at a time, so that the Building only has to hold the next few arrivals
+ * instead of the whole trace. A source adds each group it reads to the
+ * Building with addPassengersToQueue. The groups should come roughly in time
+ * order: a group read after its tick has been released calls at the next tick
+ * (see Building.setReadAhead).
+ *
+ * A source can save how far it has read in a building snapshot, so that a
+ * source over the same input carries on from there when the snapshot is
+ * restored.
+ */
+public interface PassengerSource {
+
+	/**
+	 * Reads the next passenger group and adds it to the building's passenger queue.
+	 *
+	 * @param building the building to add the group to
+	 * @return false if the source has no more groups
+	 */
+	boolean readNext(Building building);
+
+	/**
+	 * Close the source and release any file it has open.
+	 */
+	void close();
+
+	/**
+	 * Checkpoint. Writes how far the source has read.
+	 *
+	 * @param out the output to write to
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void checkpoint(DataOutput out) throws IOException;
+
+	/**
+	 * Restore. Moves the source to a checkpoint written by a source of the
+	 * same kind over the same input.
+	 *
+	 * @param in the input to read the checkpoint from
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void restore(DataInput in) throws IOException;
+}
@@ -0,0 +1,198 @@
+package building;
+
+import java.util.Arrays;
+
+/**
+ * The Class PassengerTable. Stores passenger groups as parallel primitive
+ * arrays, one row per group, instead of one Passengers object each. A row is
+ * addressed by an int handle - the slot the row is stored in, which is
+ * reused once the row is released. The table grows as needed, keeping every
+ * row in its slot.
+ *
+ * The table only holds the groups, and leaves it to a subclass to keep them
+ * in order: a row in use can be linked into a list of the subclass through
+ * next, which links the free slots otherwise. A Passengers object is built
+ * for a row once its group calls the elevator - the floor queues and the
+ * elevators only ever hold a few groups each, so they keep the objects.
+ *
+ * Floors are stored 0-based, as Building uses them.
+ */
+public class PassengerTable {
+
+	/** The end of a list. */
+	protected static final int NIL = -1;
+
+	/** The columns - one entry per slot. */
+	private int[] id;
+	private int[] time;
+	private int[] numPass;
+	private int[] onFloor;
+	private int[] destFloor;
+	private int[] waitTime;
+	private boolean[] polite;
+
+	/** The next row in a list of the subclass while the row is in use, or the next free slot. */
+	protected int[] next;
+
+	/** The first free slot - NIL if every slot is in use. */
+	private int free;
+
+	/** The number of rows. */
+	private int size;
+
+	/**
+	 * Instantiates a new passenger table.
+	 *
+	 * @param initialCapacity the number of rows to allocate up front
+	 */
+	public PassengerTable(int initialCapacity) {
+		int capacity = Integer.highestOneBit(Math.max(2, initialCapacity - 1)) << 1;
+		id = new int[capacity];
+		time = new int[capacity];
+		numPass = new int[capacity];
+		onFloor = new int[capacity];
+		destFloor = new int[capacity];
+		waitTime = new int[capacity];
+		polite = new boolean[capacity];
+		next = new int[capacity];
+		freeSlots(0);
+	}
+
+	/**
+	 * Gets the capacity.
+	 *
+	 * @return the number of slots - a power of 2
+	 */
+	protected int capacity() {
+		return next.length;
+	}
+
+	/**
+	 * Free slots. Makes every slot from the given one up free.
+	 *
+	 * @param from the first slot
+	 */
+	private void freeSlots(int from) {
+		for (int i = from; i < next.length - 1; i++) {
+			next[i] = i + 1;
+		}
+		next[next.length - 1] = NIL;
+		free = from;
+	}
+
+	/**
+	 * Grow. Doubles the number of slots, keeping every row in its slot. A
+	 * subclass that keeps columns of its own grows them too.
+	 */
+	protected void grow() {
+		int capacity = next.length << 1;
+		id = Arrays.copyOf(id, capacity);
+		time = Arrays.copyOf(time, capacity);
+		numPass = Arrays.copyOf(numPass, capacity);
+		onFloor = Arrays.copyOf(onFloor, capacity);
+		destFloor = Arrays.copyOf(destFloor, capacity);
+		waitTime = Arrays.copyOf(waitTime, capacity);
+		polite = Arrays.copyOf(polite, capacity);
+		int oldCapacity = next.length;
+		next = Arrays.copyOf(next, capacity);
+		freeSlots(oldCapacity);
+	}
+
+	/**
+	 * Adds a row for a passenger group that has not boarded yet.
+	 *
+	 * @param id the id of the group
+	 * @param time the time the group calls the elevator
+	 * @param numPass the number of people in the group
+	 * @param onFloor the floor the group calls from (0-based)
+	 * @param destFloor the floor the group is going to (0-based)
+	 * @param polite whether the group lets the doors close
+	 * @param waitTime the time the group waits before giving up
+	 * @return the handle of the new row
+	 */
+	public int add(int id, int time, int numPass, int onFloor, int destFloor, boolean polite, int waitTime) {
+		if (free == NIL) {
+			grow();
+		}
+		int r = free;
+		free = next[r];
+		next[r] = NIL;
+		this.id[r] = id;
+		this.time[r] = time;
+		this.numPass[r] = numPass;
+		this.onFloor[r] = onFloor;
+		this.destFloor[r] = destFloor;
+		this.polite[r] = polite;
+		this.waitTime[r] = waitTime;
+		size++;
+		return r;
+	}
+
+	/**
+	 * Adds a row for a passenger group that has not boarded yet.
+	 *
+	 * @param p the passenger group
+	 * @return the handle of the new row
+	 */
+	public int add(Passengers p) {
+		return add(p.getId(), p.getTime(), p.getNumPass(), p.getOnFloor(), p.getDestFloor(), p.isPolite(), p.getWaitTime());
+	}
+
+	/**
+	 * Release. Frees the slot of a row, which must no longer be on any list
+	 * of the subclass.
+	 *
+	 * @param r the handle of the row
+	 */
+	protected void release(int r) {
+		next[r] = free;
+		free = r;
+		size--;
+	}
+
+	/**
+	 * Clear. Removes all rows.
+	 */
+	public void clear() {
+		freeSlots(0);
+		size = 0;
+	}
+
+	/**
+	 * Checks if is empty.
+	 *
+	 * @return true, if the table has no rows
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Size.
+	 *
+	 * @return the number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the passengers. Builds a Passengers object from a row.
+	 *
+	 * @param r the handle of the row
+	 * @return the passengers
+	 */
+	public Passengers getPassengers(int r) {
+		return new Passengers(id[r], time[r], numPass[r], onFloor[r]+1, destFloor[r]+1, polite[r], waitTime[r]);
+	}
+
+	/**
+	 * Gets the time a row's group calls the elevator.
+	 *
+	 * @param r the handle of the row
+	 * @return the time
+	 */
+	public int getTime(int r) {
+		return time[r];
+	}
+}
@@ -1,5 +1,9 @@
 package building;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 // TODO: Auto-generated Javadoc
 /**
  * The Class Passengers. Represents a GROUP of passengers that are 
@@ -12,11 +16,9 @@ public class Passengers {
 	private static final int UP = 1;
 	private static final int DOWN = -1;
 	
-	/**  ID represents the NEXT available id for the passenger group. */
-	private static int ID=0;
-
 	/** id is the unique ID assigned to each Passenger during construction.
-	 *  After assignment, static ID must be incremented.
+	 *  IDs are handed out by the Building, so each simulation numbers its
+	 *  Passengers from 0 independently of any other.
 	 */
 	private int id;
 	
@@ -40,9 +42,13 @@ public class Passengers {
 	private int boardTime=-1;
 	private int timeArrived=-1;
 
+	/** The entry of the group in the give up wheel - -1 when it is not in it. */
+	private int giveUpEntry=-1;
+
 	/**
 	 * Instantiates a new passengers.
 	 *
+	 * @param id the unique id of this group
 	 * @param time the time
 	 * @param numPass the number of people in this Passenger
 	 * @param on the floor that the Passenger calls the elevator from
@@ -50,7 +56,7 @@ public class Passengers {
 	 * @param polite - are the passengers polite?
 	 * @param waitTime the amount of time that the passenger will wait before giving up
 	 */
-	public Passengers(int time, int numPass, int on, int dest, boolean polite, int waitTime) {
+	public Passengers(int id, int time, int numPass, int on, int dest, boolean polite, int waitTime) {
 	// TODO: Write the constructor for this class
 	//       Remember to appropriately adjust the onFloor and destFloor to account  
 	//       to convert from American to European numbering...
@@ -60,10 +66,10 @@ public class Passengers {
 		this.destFloor = dest;
 		this.polite = polite;
 		this.waitTime = waitTime;
-		this.id = ID++;
+		this.id = id;
 		this.onFloor = this.onFloor - 1;
 		this.destFloor = this.destFloor - 1;
-		
+		this.timeWillGiveUp = time + waitTime;
 	}
 	
 	
@@ -107,6 +113,7 @@ public class Passengers {
 
 	public void setTime(int time) {
 		this.time = time;
+		this.timeWillGiveUp = time + waitTime;
 	}
 
 
@@ -157,19 +164,72 @@ public class Passengers {
 
 	public void setWaitTime(int waitTime) {
 		this.waitTime = waitTime;
+		this.timeWillGiveUp = time + waitTime;
+	}
+
+
+	/**
+	 * Gets the time will give up - the last tick the group waits for an
+	 * elevator. It gives up at any tick after it.
+	 *
+	 * @return the time will give up
+	 */
+	public int getTimeWillGiveUp() {
+		return timeWillGiveUp;
 	}
 	
 	/**
-	 * Reset static ID. 
-	 * This method MUST be called during the building constructor BEFORE
-	 * reading the configuration files. This is to provide consistency in the
-	 * Passenger ID's during JUnit testing.
+	 * Gets the give up entry.
+	 *
+	 * @return the entry of the group in the give up wheel, or -1
 	 */
-	static void resetStaticID() {
-		ID = 0;
+	int getGiveUpEntry() {
+		return giveUpEntry;
 	}
 
+	/**
+	 * Sets the give up entry.
+	 *
+	 * @param giveUpEntry the entry of the group in the give up wheel, or -1
+	 */
+	void setGiveUpEntry(int giveUpEntry) {
+		this.giveUpEntry = giveUpEntry;
+	}
+	
+	/**
+	 * Write. Writes every field of the group, for a building snapshot.
+	 *
+	 * @param out the output
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void write(DataOutput out) throws IOException {
+		out.writeInt(id);
+		out.writeInt(time);
+		out.writeInt(numPass);
+		out.writeInt(onFloor);
+		out.writeInt(destFloor);
+		out.writeBoolean(polite);
+		out.writeInt(waitTime);
+		out.writeInt(boardTime);
+		out.writeInt(timeArrived);
+	}
 
+	/**
+	 * Read. Reads a group written by write.
+	 *
+	 * @param in the input
+	 * @return the passengers
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	static Passengers read(DataInput in) throws IOException {
+		int id = in.readInt(), time = in.readInt(), numPass = in.readInt(), onFloor = in.readInt(), destFloor = in.readInt();
+		boolean polite = in.readBoolean();
+		Passengers p = new Passengers(id, time, numPass, onFloor+1, destFloor+1, polite, in.readInt());
+		p.setBoardTime(in.readInt());
+		p.setTimeArrived(in.readInt());
+		return p;
+	}
+	
 	/**
 	 * toString - returns the formatted string for this class
 	 *
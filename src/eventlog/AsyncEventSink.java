@@ -0,0 +1,312 @@
+package eventlog;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The Class AsyncEventSink. Takes the writing of events off the simulation
+ * thread. Each event is stored as a fixed-size record of ints in a ring that
+ * is allocated once, and a background writer thread hands the records on to
+ * another sink - usually a FileEventSink - in batches. The simulation thread
+ * never formats a line or touches the disk.
+ *
+ * When the ring is full the event is handled by the policy given at
+ * construction: BLOCK waits for the writer to make room, so no event is ever
+ * lost, while DROP throws the event away and counts it. The CONFIG and end of
+ * simulation records are never dropped, so a log always says what was run
+ * and whether it finished. flush() and close()
+ * wait until the writer has passed every event logged before them on to the
+ * other sink, and flushed or closed it. That keeps the log on disk
+ * deterministic at the end of a run.
+ *
+ * The sink expects a single thread to log events, as the Building does.
+ */
+public class AsyncEventSink implements EventSink {
+
+	/** Full ring policy - wait for the writer to make room. */
+	public static final int BLOCK = 0;
+
+	/** Full ring policy - drop the event and count it. */
+	public static final int DROP = 1;
+
+	/** The default number of records in the ring. */
+	public static final int DEFAULT_SIZE = 1 << 14;
+
+	/** The record types. */
+	private static final int CONFIG = 0;
+	private static final int STATE = 1;
+	private static final int CALLED = 2;
+	private static final int BOARD = 3;
+	private static final int SKIP = 4;
+	private static final int GAVEUP = 5;
+	private static final int ARRIVED = 6;
+	private static final int END = 7;
+	private static final int FLUSH = 8;
+	private static final int CLOSE = 9;
+
+	/** The number of ints in a record, as a shift - the type and up to 6 values. */
+	private static final int RECORD_SHIFT = 3;
+
+	/** The most records the writer hands on before it frees their space. */
+	private static final int BATCH = 256;
+
+	/** How long a waiting thread sleeps before it checks the ring again, in nanoseconds. */
+	private static final long WAIT_NANOS = 20000;
+
+	/** The sink the writer hands the events on to. */
+	private final EventSink delegate;
+
+	/** The policy for a full ring. */
+	private final int policy;
+
+	/** The ring of records. */
+	private final int[] ring;
+
+	/** The number of records in the ring minus 1 - the size is a power of 2. */
+	private final int mask;
+
+	/** The sequence number of the next record to write - only the logging thread changes it. */
+	private volatile long tail;
+
+	/** The sequence number of the next record to hand on - only the writer changes it. */
+	private volatile long head;
+
+	/** Set while the writer is parked waiting for records. */
+	private volatile boolean idle;
+
+	/** The number of events dropped because the ring was full. */
+	private volatile long dropped;
+
+	/** The writer thread - null once the sink is closed. */
+	private Thread writer;
+
+	/**
+	 * Instantiates a new async event sink with the default ring size that
+	 * blocks when the ring is full.
+	 *
+	 * @param delegate the sink to hand the events on to
+	 */
+	public AsyncEventSink(EventSink delegate) {
+		this(delegate, DEFAULT_SIZE, BLOCK);
+	}
+
+	/**
+	 * Instantiates a new async event sink, and starts its writer thread.
+	 *
+	 * @param delegate the sink to hand the events on to
+	 * @param size the number of records in the ring - rounded up to a power of 2
+	 * @param policy the policy for a full ring, BLOCK or DROP
+	 */
+	public AsyncEventSink(EventSink delegate, int size, int policy) {
+		if (policy != BLOCK && policy != DROP) throw new IllegalArgumentException("Bad full ring policy: "+policy);
+		this.delegate = delegate;
+		this.policy = policy;
+		int capacity = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+		ring = new int[capacity << RECORD_SHIFT];
+		mask = capacity - 1;
+		writer = new Thread(this::drain, "AsyncEventSink");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Gets the number of events dropped because the ring was full.
+	 *
+	 * @return the number of dropped events
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Claim a record. Finds room in the ring for one record, applying the full
+	 * ring policy unless the record must not be dropped.
+	 *
+	 * @param type the record type
+	 * @param mustKeep true for records that are never dropped
+	 * @return the index of the record in the ring, or -1 if it was dropped
+	 */
+	private int claim(int type, boolean mustKeep) {
+		if (writer == null) return -1;
+		long t = tail;
+		while (t - head > mask) {
+			if (policy == DROP && !mustKeep) {
+				dropped++;
+				return -1;
+			}
+			wake();
+			LockSupport.parkNanos(WAIT_NANOS);
+		}
+		int i = (int) (t & mask) << RECORD_SHIFT;
+		ring[i] = type;
+		return i;
+	}
+
+	/**
+	 * Publish the record that was claimed last, and wake the writer if it is
+	 * waiting for records.
+	 */
+	private void publish() {
+		tail = tail + 1;
+		if (idle) wake();
+	}
+
+	/**
+	 * Wake the writer.
+	 */
+	private void wake() {
+		Thread w = writer;
+		if (w != null) LockSupport.unpark(w);
+	}
+
+	/**
+	 * Log a record of up to 5 values.
+	 *
+	 * @param type the record type
+	 * @param a the first value
+	 * @param b the second value
+	 * @param c the third value
+	 * @param d the fourth value
+	 * @param e the fifth value
+	 */
+	private void put(int type, int a, int b, int c, int d, int e) {
+		int i = claim(type, false);
+		if (i < 0) return;
+		ring[i+1] = a;
+		ring[i+2] = b;
+		ring[i+3] = c;
+		ring[i+4] = d;
+		ring[i+5] = e;
+		publish();
+	}
+
+	/**
+	 * Log a FLUSH or CLOSE record and wait until the writer has handled it.
+	 *
+	 * @param type the record type
+	 */
+	private void putAndWait(int type) {
+		if (claim(type, true) < 0) return;
+		long seq = tail;
+		publish();
+		wake();
+		while (head <= seq) {
+			LockSupport.parkNanos(WAIT_NANOS);
+		}
+	}
+
+	/**
+	 * Drain. The writer loop - hands records on to the delegate in order until
+	 * it reaches a CLOSE record.
+	 */
+	private void drain() {
+		long h = head;
+		while (true) {
+			long t = tail;
+			if (h == t) {
+				idle = true;
+				if (tail == h) LockSupport.park(this);
+				idle = false;
+				continue;
+			}
+			long end = Math.min(t, h + BATCH);
+			boolean closed = false;
+			for (; h < end && !closed; h++) {
+				closed = handOn((int) (h & mask) << RECORD_SHIFT);
+			}
+			head = h;
+			if (closed) return;
+		}
+	}
+
+	/**
+	 * Hand one record on to the delegate.
+	 *
+	 * @param i the index of the record in the ring
+	 * @return true, if it was the CLOSE record
+	 */
+	private boolean handOn(int i) {
+		try {
+			switch (ring[i]) {
+				case CONFIG:  delegate.config(ring[i+1], ring[i+2], ring[i+3], ring[i+4], ring[i+5], ring[i+6]); break;
+				case STATE:   delegate.stateChanged(ring[i+1], ring[i+2], ring[i+3], ring[i+4], ring[i+5]); break;
+				case CALLED:  delegate.called(ring[i+1], ring[i+2], ring[i+3], ring[i+4], ring[i+5]); break;
+				case BOARD:   delegate.board(ring[i+1], ring[i+2], ring[i+3], ring[i+4], ring[i+5]); break;
+				case SKIP:    delegate.skip(ring[i+1], ring[i+2], ring[i+3], ring[i+4], ring[i+5]); break;
+				case GAVEUP:  delegate.gaveUp(ring[i+1], ring[i+2], ring[i+3], ring[i+4], ring[i+5]); break;
+				case ARRIVED: delegate.arrived(ring[i+1], ring[i+2], ring[i+3], ring[i+4]); break;
+				case END:     delegate.endSimulation(ring[i+1]); break;
+				case FLUSH:   delegate.flush(); break;
+				case CLOSE:   delegate.close(); return true;
+			}
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	@Override
+	public void config(int capacity, int ticksPerFloor, int ticksDoorOpenClose, int passPerTick, int state, int floor) {
+		int i = claim(CONFIG, true);
+		if (i < 0) return;
+		ring[i+1] = capacity;
+		ring[i+2] = ticksPerFloor;
+		ring[i+3] = ticksDoorOpenClose;
+		ring[i+4] = passPerTick;
+		ring[i+5] = state;
+		ring[i+6] = floor;
+		publish();
+	}
+
+	@Override
+	public void stateChanged(int time, int prevState, int currState, int prevFloor, int currFloor) {
+		put(STATE, time, prevState, currState, prevFloor, currFloor);
+	}
+
+	@Override
+	public void called(int time, int numPass, int floor, int dir, int id) {
+		put(CALLED, time, numPass, floor, dir, id);
+	}
+
+	@Override
+	public void board(int time, int numPass, int floor, int dir, int id) {
+		put(BOARD, time, numPass, floor, dir, id);
+	}
+
+	@Override
+	public void skip(int time, int numPass, int floor, int dir, int id) {
+		put(SKIP, time, numPass, floor, dir, id);
+	}
+
+	@Override
+	public void gaveUp(int time, int numPass, int floor, int dir, int id) {
+		put(GAVEUP, time, numPass, floor, dir, id);
+	}
+
+	@Override
+	public void arrived(int time, int numPass, int floor, int id) {
+		put(ARRIVED, time, numPass, floor, id, 0);
+	}
+
+	@Override
+	public void endSimulation(int time) {
+		int i = claim(END, true);
+		if (i < 0) return;
+		ring[i+1] = time;
+		publish();
+	}
+
+	@Override
+	public void flush() {
+		putAndWait(FLUSH);
+	}
+
+	@Override
+	public void close() {
+		if (writer == null) return;
+		putAndWait(CLOSE);
+		writer = null;
+		if (dropped > 0) {
+			System.err.println("Event log full: dropped "+dropped+" events");
+		}
+	}
+}
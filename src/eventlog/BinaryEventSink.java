@@ -0,0 +1,178 @@
+package eventlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import myfileio.MyFileIO;
+
+/**
+ * The Class BinaryEventSink. Writes the events of one Building to a compact
+ * binary log - one 16 byte record per event instead of a line of text.
+ * BinaryLogRenderer turns the log back into exactly the text FileEventSink
+ * would have written, so it can still be checked with ElevatorLogCompare.
+ *
+ * The file starts with the magic "ELOG" and a version int. Every record is
+ *   type (byte), a (byte), b (short), time (int), x (int), y (int)
+ * big-endian, laid out by type as:
+ *   CONFIG  - a=state, b=floor, time=capacity, x=ticksPerFloor,
+ *             y=ticksDoorOpenClose << 16 | passPerTick
+ *   STATE   - a=prevState, b=currState, x=prevFloor, y=currFloor
+ *   CALLED, BOARD, SKIP, GAVEUP - a=dir, b=floor, x=numPass, y=id
+ *   ARRIVED - b=floor, x=numPass, y=id
+ *   END     - time only
+ * Floors are 0-based, as the Building passes them.
+ */
+public class BinaryEventSink implements EventSink {
+
+	/** The magic number at the start of every binary log. */
+	static final int MAGIC = ('E' << 24) | ('L' << 16) | ('O' << 8) | 'G';
+
+	/** The format version. */
+	static final int VERSION = 1;
+
+	/** The size of the header in bytes. */
+	static final int HEADER_SIZE = 8;
+
+	/** The size of a record in bytes. */
+	static final int RECORD_SIZE = 16;
+
+	/** The record types. */
+	static final byte CONFIG = 0;
+	static final byte STATE = 1;
+	static final byte CALLED = 2;
+	static final byte BOARD = 3;
+	static final byte SKIP = 4;
+	static final byte GAVEUP = 5;
+	static final byte ARRIVED = 6;
+	static final byte END = 7;
+
+	/** The file name extension of binary logs. */
+	public static final String EXTENSION = ".elog";
+
+	/** The size of the write buffer in bytes. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The fio. */
+	private MyFileIO fio = new MyFileIO();
+
+	/** The logfile. */
+	private final String logfile;
+
+	/** The channel - null if the log file could not be opened or has been closed. */
+	private FileChannel out;
+
+	/** The write buffer. */
+	private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/**
+	 * Instantiates a new binary event sink, creating (or truncating) the log file.
+	 *
+	 * @param logfile the file to log to
+	 */
+	public BinaryEventSink(String logfile) {
+		this.logfile = logfile;
+		try {
+			out = FileChannel.open(fio.getFileHandle(logfile).toPath(), StandardOpenOption.WRITE,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			buf.putInt(MAGIC).putInt(VERSION);
+		} catch (IOException e) {
+			System.err.println("Error in writing file: "+logfile);
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Write one record to the log.
+	 *
+	 * @param type the record type
+	 * @param a the byte field
+	 * @param b the short field
+	 * @param time the time field
+	 * @param x the x field
+	 * @param y the y field
+	 */
+	private void write(byte type, int a, int b, int time, int x, int y) {
+		if (out == null) return;
+		if (buf.remaining() < RECORD_SIZE) drain();
+		buf.put(type).put((byte) a).putShort((short) b).putInt(time).putInt(x).putInt(y);
+	}
+
+	/**
+	 * Drain. Writes the buffered records to the channel.
+	 */
+	private void drain() {
+		buf.flip();
+		try {
+			while (buf.hasRemaining()) out.write(buf);
+		} catch (IOException e) {
+			System.err.println("Error in writing file: "+logfile);
+			e.printStackTrace();
+		}
+		buf.clear();
+	}
+
+	@Override
+	public void config(int capacity, int ticksPerFloor, int ticksDoorOpenClose, int passPerTick, int state, int floor) {
+		if (ticksDoorOpenClose >>> 16 != 0 || passPerTick >>> 16 != 0) {
+			throw new IllegalArgumentException("Config does not fit a binary log record: Ticks-Door="+ticksDoorOpenClose+
+					" Ticks-Passengers="+passPerTick);
+		}
+		write(CONFIG, state, floor, capacity, ticksPerFloor, (ticksDoorOpenClose << 16) | passPerTick);
+	}
+
+	@Override
+	public void stateChanged(int time, int prevState, int currState, int prevFloor, int currFloor) {
+		write(STATE, prevState, currState, time, prevFloor, currFloor);
+	}
+
+	@Override
+	public void called(int time, int numPass, int floor, int dir, int id) {
+		write(CALLED, dir, floor, time, numPass, id);
+	}
+
+	@Override
+	public void board(int time, int numPass, int floor, int dir, int id) {
+		write(BOARD, dir, floor, time, numPass, id);
+	}
+
+	@Override
+	public void skip(int time, int numPass, int floor, int dir, int id) {
+		write(SKIP, dir, floor, time, numPass, id);
+	}
+
+	@Override
+	public void gaveUp(int time, int numPass, int floor, int dir, int id) {
+		write(GAVEUP, dir, floor, time, numPass, id);
+	}
+
+	@Override
+	public void arrived(int time, int numPass, int floor, int id) {
+		write(ARRIVED, 0, floor, time, numPass, id);
+	}
+
+	@Override
+	public void endSimulation(int time) {
+		write(END, 0, 0, time, 0, 0);
+	}
+
+	@Override
+	public void flush() {
+		if (out == null) return;
+		drain();
+	}
+
+	@Override
+	public void close() {
+		if (out == null) return;
+		drain();
+		try {
+			out.close();
+		} catch (IOException e) {
+			System.err.println("Error in closing file: "+logfile);
+			e.printStackTrace();
+		}
+		out = null;
+	}
+}
@@ -0,0 +1,109 @@
+package eventlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import myfileio.MyFileIO;
+
+/**
+ * The Class BinaryLogRenderer. Replays a binary log written by
+ * BinaryEventSink into another EventSink. Replaying into a FileEventSink
+ * gives exactly the text log the simulation would have written, which
+ * ElevatorLogCompare can check against the golden logs.
+ *
+ * Usage: java eventlog.BinaryLogRenderer binaryLog textLog
+ */
+public class BinaryLogRenderer {
+
+	/** The size of the read buffer in bytes - a whole number of records. */
+	private static final int BUFFER_SIZE = BinaryEventSink.RECORD_SIZE << 12;
+
+	/**
+	 * Replay a binary log into a sink. The sink is left open.
+	 *
+	 * @param binaryLog the binary log file
+	 * @param sink the sink to replay the events into
+	 * @return the number of events replayed
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static long replay(String binaryLog, EventSink sink) throws IOException {
+		long count = 0;
+		try (FileChannel in = FileChannel.open(new MyFileIO().getFileHandle(binaryLog).toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			buf.limit(0);
+			if (!fill(in, buf, BinaryEventSink.HEADER_SIZE) || buf.getInt() != BinaryEventSink.MAGIC) {
+				throw new IllegalArgumentException(binaryLog+" is not a binary event log");
+			}
+			int version = buf.getInt();
+			if (version != BinaryEventSink.VERSION) {
+				throw new IllegalArgumentException(binaryLog+" has unsupported log version "+version);
+			}
+			while (fill(in, buf, BinaryEventSink.RECORD_SIZE)) {
+				byte type = buf.get();
+				int a = buf.get();
+				int b = buf.getShort();
+				int time = buf.getInt();
+				int x = buf.getInt();
+				int y = buf.getInt();
+				switch (type) {
+					case BinaryEventSink.CONFIG:  sink.config(time, x, y >>> 16, y & 0xffff, a, b); break;
+					case BinaryEventSink.STATE:   sink.stateChanged(time, a, b, x, y); break;
+					case BinaryEventSink.CALLED:  sink.called(time, x, b, a, y); break;
+					case BinaryEventSink.BOARD:   sink.board(time, x, b, a, y); break;
+					case BinaryEventSink.SKIP:    sink.skip(time, x, b, a, y); break;
+					case BinaryEventSink.GAVEUP:  sink.gaveUp(time, x, b, a, y); break;
+					case BinaryEventSink.ARRIVED: sink.arrived(time, x, b, y); break;
+					case BinaryEventSink.END:     sink.endSimulation(time); break;
+					default:
+						throw new IllegalArgumentException(binaryLog+" has a bad record type "+type+" in record "+count);
+				}
+				count++;
+			}
+			if (buf.hasRemaining()) {
+				throw new IllegalArgumentException(binaryLog+" is truncated after record "+count);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Fill. Makes sure the buffer holds at least the given number of bytes,
+	 * reading more from the channel if needed.
+	 *
+	 * @param in the channel
+	 * @param buf the buffer, ready to be read from
+	 * @param need the number of bytes needed
+	 * @return false if the file ends first
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static boolean fill(FileChannel in, ByteBuffer buf, int need) throws IOException {
+		if (buf.remaining() >= need) return true;
+		buf.compact();
+		while (buf.position() < need && in.read(buf) >= 0);
+		buf.flip();
+		return buf.remaining() >= need;
+	}
+
+	/**
+	 * The main method. Renders a binary log as the text log.
+	 *
+	 * @param args the binary log and the text log to write
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: java eventlog.BinaryLogRenderer binaryLog textLog");
+			return;
+		}
+		FileEventSink sink = new FileEventSink(args[1]);
+		try {
+			replay(args[0], sink);
+		} catch (IOException e) {
+			System.err.println("Error in reading file: "+args[0]);
+			e.printStackTrace();
+		} finally {
+			sink.close();
+		}
+	}
+}
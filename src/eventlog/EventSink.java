@@ -0,0 +1,106 @@
+package eventlog;
+
+/**
+ * The Interface EventSink. Receives every event that a Building logs while
+ * the simulation runs. Each Building has its own sink, so simulations that
+ * share a JVM never write into each other's logs. Floors are passed in the
+ * Building's 0-based numbering and directions as 1 (up) or -1 (down); it is
+ * up to the sink to format them.
+ */
+public interface EventSink {
+
+	/**
+	 * Config. The configuration of one elevator, logged when it is created and
+	 * when logging is enabled.
+	 *
+	 * @param capacity the capacity
+	 * @param ticksPerFloor the ticks per floor
+	 * @param ticksDoorOpenClose the ticks door open close
+	 * @param passPerTick the pass per tick
+	 * @param state the state
+	 * @param floor the floor
+	 */
+	void config(int capacity, int ticksPerFloor, int ticksDoorOpenClose, int passPerTick, int state, int floor);
+
+	/**
+	 * State changed. An elevator changed state or floor.
+	 *
+	 * @param time the time
+	 * @param prevState the prev state
+	 * @param currState the curr state
+	 * @param prevFloor the prev floor
+	 * @param currFloor the curr floor
+	 */
+	void stateChanged(int time, int prevState, int currState, int prevFloor, int currFloor);
+
+	/**
+	 * Called. A passenger group arrived on its floor and called the elevator.
+	 *
+	 * @param time the time
+	 * @param numPass the num pass
+	 * @param floor the floor
+	 * @param dir the dir
+	 * @param id the id
+	 */
+	void called(int time, int numPass, int floor, int dir, int id);
+
+	/**
+	 * Board. A passenger group boarded an elevator.
+	 *
+	 * @param time the time
+	 * @param numPass the num pass
+	 * @param floor the floor
+	 * @param dir the dir
+	 * @param id the id
+	 */
+	void board(int time, int numPass, int floor, int dir, int id);
+
+	/**
+	 * Skip. A passenger group did not fit in the elevator.
+	 *
+	 * @param time the time
+	 * @param numPass the num pass
+	 * @param floor the floor
+	 * @param dir the dir
+	 * @param id the id
+	 */
+	void skip(int time, int numPass, int floor, int dir, int id);
+
+	/**
+	 * Gave up. A passenger group gave up waiting for the elevator.
+	 *
+	 * @param time the time
+	 * @param numPass the num pass
+	 * @param floor the floor
+	 * @param dir the dir
+	 * @param id the id
+	 */
+	void gaveUp(int time, int numPass, int floor, int dir, int id);
+
+	/**
+	 * Arrived. A passenger group got off at its destination floor.
+	 *
+	 * @param time the time
+	 * @param numPass the num pass
+	 * @param floor the floor
+	 * @param id the id
+	 */
+	void arrived(int time, int numPass, int floor, int id);
+
+	/**
+	 * End simulation. The Building detected the end of the simulation.
+	 *
+	 * @param time the time
+	 */
+	void endSimulation(int time);
+
+	/**
+	 * Flush any buffered events to their destination.
+	 */
+	void flush();
+
+	/**
+	 * Close the sink. Events received after closing are dropped.
+	 */
+	void close();
+}
@@ -0,0 +1,175 @@
+package eventlog;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+import building.Elevator;
+import myfileio.MyFileIO;
+
+/**
+ * The Class FileEventSink. Writes the events of one Building to a text file,
+ * one line per event, in the format that the java.util.logging based Building
+ * logger used to produce - so the logs can still be checked with
+ * ElevatorLogCompare. Each line is formatted into a reused buffer, so logging
+ * an event does not allocate.
+ */
+public class FileEventSink implements EventSink {
+
+	/** The prefix of every line - the level name as SimpleFormatter printed it. */
+	private static final String PREFIX = "INFO    ";
+
+	/** The line separator. */
+	private static final String EOL = System.lineSeparator();
+
+	/** The fio. */
+	private MyFileIO fio = new MyFileIO();
+
+	/** The writer - null if the log file could not be opened or has been closed. */
+	private BufferedWriter out;
+
+	/** The line buffer - every line is formatted into it. */
+	private final StringBuilder line = new StringBuilder(128);
+
+	/** The chars of the line being written. */
+	private char[] chars = new char[128];
+
+	/**
+	 * Instantiates a new file event sink, creating (or truncating) the log file.
+	 *
+	 * @param logfile the file to log to
+	 */
+	public FileEventSink(String logfile) {
+		out = fio.openBufferedWriter(fio.getFileHandle(logfile));
+	}
+
+	/**
+	 * Start a line. Clears the line buffer and puts the prefix in it.
+	 *
+	 * @return the line buffer
+	 */
+	private StringBuilder line() {
+		line.setLength(0);
+		return line.append(PREFIX);
+	}
+
+	/**
+	 * Write the line in the line buffer to the log. The line is copied into a
+	 * reused char array, so that no String is built for it.
+	 */
+	private void write() {
+		if (out == null) return;
+		line.append(EOL);
+		int len = line.length();
+		if (len > chars.length) chars = new char[Math.max(len, 2 * chars.length)];
+		line.getChars(0, len, chars, 0);
+		try {
+			out.write(chars, 0, len);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Append a passenger event - every one but arrivals has the same layout.
+	 *
+	 * @param event the name of the event
+	 * @param time the time
+	 * @param numPass the number of passengers
+	 * @param floor the floor (0-based)
+	 * @param dir the direction
+	 * @param id the passenger id
+	 */
+	private void writePassengers(String event, int time, int numPass, int floor, int dir, int id) {
+		line().append("Time=").append(time).append("   ").append(event).append('=').append(numPass)
+			  .append(" Floor=").append(floor+1).append(" Dir=").append((dir>0)?"Up":"Down").append("   passID=").append(id);
+		write();
+	}
+
+	/**
+	 * Prints the state.
+	 *
+	 * @param state the state
+	 * @return the string
+	 */
+	private String printState(int state) {
+		String str = "";
+		
+		switch (state) {
+			case Elevator.STOP: 		str =  "STOP   "; break;
+			case Elevator.MVTOFLR: 		str =  "MVTOFLR"; break;
+			case Elevator.OPENDR:   	str =  "OPENDR "; break;
+			case Elevator.CLOSEDR:		str =  "CLOSEDR"; break;
+			case Elevator.BOARD:		str =  "BOARD  "; break;
+			case Elevator.OFFLD:		str =  "OFFLD  "; break;
+			case Elevator.MV1FLR:		str =  "MV1FLR "; break;
+			default:					str =  "UNDEF  "; break;
+		}
+		return(str);
+	}
+
+	@Override
+	public void config(int capacity, int ticksPerFloor, int ticksDoorOpenClose, int passPerTick, int state, int floor) {
+		line().append("CONFIG:   Capacity=").append(capacity).append("   Ticks-Floor=").append(ticksPerFloor)
+			  .append("   Ticks-Door=").append(ticksDoorOpenClose).append("   Ticks-Passengers=").append(passPerTick)
+			  .append("   CurrState=").append(printState(state)).append("   CurrFloor=").append(floor+1);
+		write();
+	}
+
+	@Override
+	public void stateChanged(int time, int prevState, int currState, int prevFloor, int currFloor) {
+		line().append("Time=").append(time).append("   Prev State: ").append(printState(prevState))
+			  .append("   Curr State: ").append(printState(currState))
+			  .append("   PrevFloor: ").append(prevFloor+1).append("   CurrFloor: ").append(currFloor+1);
+		write();
+	}
+
+	@Override
+	public void called(int time, int numPass, int floor, int dir, int id) {
+		writePassengers("Called", time, numPass, floor, dir, id);
+	}
+
+	@Override
+	public void board(int time, int numPass, int floor, int dir, int id) {
+		writePassengers("Board", time, numPass, floor, dir, id);
+	}
+
+	@Override
+	public void skip(int time, int numPass, int floor, int dir, int id) {
+		writePassengers("Skip", time, numPass, floor, dir, id);
+	}
+
+	@Override
+	public void gaveUp(int time, int numPass, int floor, int dir, int id) {
+		writePassengers("GaveUp", time, numPass, floor, dir, id);
+	}
+
+	@Override
+	public void arrived(int time, int numPass, int floor, int id) {
+		line().append("Time=").append(time).append("   Arrived=").append(numPass)
+			  .append(" Floor=").append(floor+1).append(" passID=").append(id);
+		write();
+	}
+
+	@Override
+	public void endSimulation(int time) {
+		line().append("Time=").append(time).append("   Detected End of Simulation");
+		write();
+	}
+
+	@Override
+	public void flush() {
+		if (out == null) return;
+		try {
+			out.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void close() {
+		if (out == null) return;
+		fio.closeFile(out);
+		out = null;
+	}
+}
@@ -4,23 +4,36 @@ import java.util.ListIterator;
 import java.util.NoSuchElementException;
 
 /**
- * The Class GenericQueue.
+ * The Class GenericQueue. By default the entries are kept in a LinkedList;
+ * a queue can instead be created as a ring buffer, an array of queueSize
+ * slots that is allocated up front, so adding and polling entries does not
+ * allocate. A ring buffer is never full - when every slot is taken, it
+ * doubles its array and keeps going.
  *
  * @param <E> the element type
  */
 public class GenericQueue<E> {
 	
-	/** The max queue size. */
+	/** The max queue size - the first size of the array of a ring buffer. */
 	private final int MAX_QUEUE_SIZE;
 	
-	/** The queue. */
-	private LinkedList<E> queue = new LinkedList<>();
+	/** The queue - null when the queue is a ring buffer. */
+	private LinkedList<E> queue;
+	
+	/** The ring buffer - null when the queue is a LinkedList. */
+	private Object[] ring;
+	
+	/** The index of the head of the ring buffer. */
+	private int head;
+	
+	/** The number of entries in the ring buffer. */
+	private int count;
 
 	/**
 	 * Instantiates a new generic queue with a default size of 20
 	 */
 	public GenericQueue() {	
-		MAX_QUEUE_SIZE=20;
+		this(20);
 	}
 
 	/**
@@ -29,18 +42,93 @@ public class GenericQueue<E> {
 	 * @param queueSize the queue size
 	 */
 	public GenericQueue(int queueSize) {	
+		this(queueSize, false);
+	}
+	
+	/**
+	 * Instantiates a new generic queue of the specified size, backed either by a
+	 * LinkedList or by a ring buffer.
+	 *
+	 * @param queueSize the queue size
+	 * @param ringBuffer true to back the queue with a ring buffer
+	 */
+	public GenericQueue(int queueSize, boolean ringBuffer) {
 		MAX_QUEUE_SIZE=queueSize;
+		if (ringBuffer) {
+			ring = new Object[queueSize];
+		} else {
+			ring = null;
+			queue = new LinkedList<>();
+		}
+	}
+	
+	/**
+	 * Ring add. Adds the element at the tail of the ring buffer, growing it first
+	 * if it is full.
+	 *
+	 * @param o the element to add
+	 */
+	private void ringAdd(E o) {
+		if (count == ring.length) ringGrow();
+		int tail = head + count;
+		if (tail >= ring.length) tail -= ring.length;
+		ring[tail] = o;
+		count++;
+	}
+	
+	/**
+	 * Ring grow. Doubles the array of the ring buffer, moving the entries to the
+	 * start of it in order.
+	 */
+	private void ringGrow() {
+		Object[] grown = new Object[Math.max(1, ring.length * 2)];
+		for (int i = 0; i < count; i++) {
+			grown[i] = ringGet(i);
+		}
+		ring = grown;
+		head = 0;
+	}
+	
+	/**
+	 * Ring poll. Removes the element at the head of the ring buffer, which must not be empty.
+	 *
+	 * @return the e
+	 */
+	@SuppressWarnings("unchecked")
+	private E ringPoll() {
+		E o = (E)ring[head];
+		ring[head] = null;
+		if (++head == ring.length) head = 0;
+		count--;
+		return o;
+	}
+	
+	/**
+	 * Ring get. Returns the i-th element from the head of the ring buffer.
+	 *
+	 * @param i the index from the head
+	 * @return the e
+	 */
+	@SuppressWarnings("unchecked")
+	private E ringGet(int i) {
+		int index = head + i;
+		if (index >= ring.length) index -= ring.length;
+		return (E)ring[index];
 	}
 
 	/**
-	 * Adds the element to the queue if possible
+	 * Adds the element to the queue if possible - a ring buffer always has room
 	 *
 	 * @param o the element to add
 	 * @return true, if successful
 	 * @throws IllegalStateException the illegal state exception
 	 */
 	public boolean add (E o) throws IllegalStateException {
-		if (queue.size() == MAX_QUEUE_SIZE) 
+		if (ring != null) {
+			ringAdd(o);
+			return true;
+		}
+		if (size() == MAX_QUEUE_SIZE) 
 			throw new IllegalStateException("Add failed - Queue is full");
 		queue.addLast(o);
 		return true;
@@ -55,7 +143,7 @@ public class GenericQueue<E> {
 	public E remove() throws NoSuchElementException {
 		if (isEmpty())
 			throw new NoSuchElementException("No Element to be removed - Queue is empty");
-		return(queue.removeFirst());
+		return (ring != null) ? ringPoll() : queue.removeFirst();
 	}
 
 	/**
@@ -68,7 +156,7 @@ public class GenericQueue<E> {
 	public E element() throws NoSuchElementException {	
 		if (isEmpty())
 			throw new NoSuchElementException("No Element to be removed - Queue is empty");
-		return(queue.getFirst());
+		return (ring != null) ? ringGet(0) : queue.getFirst();
 	}
 	
 	/**
@@ -78,7 +166,11 @@ public class GenericQueue<E> {
 	 * @return true, if successful
 	 */
 	public boolean offer (E o) {
-		if (queue.size() == MAX_QUEUE_SIZE)
+		if (ring != null) {
+			ringAdd(o);
+			return true;
+		}
+		if (size() == MAX_QUEUE_SIZE)
 			return false;
 		queue.addLast(o);
 		return true;
@@ -92,7 +184,7 @@ public class GenericQueue<E> {
 	public E poll() {
 		if (isEmpty()) 
 			return null;
-		return(queue.removeFirst());
+		return (ring != null) ? ringPoll() : queue.removeFirst();
 	}
 
 	/**
@@ -104,7 +196,55 @@ public class GenericQueue<E> {
 	public E peek() {	
 		if (isEmpty()) 
 			return null;
-		return(queue.getFirst());
+		return (ring != null) ? ringGet(0) : queue.getFirst();
+	}
+	
+	/**
+	 * Peek. Returns the i-th element from the head of the queue without
+	 * removing it, or null if the queue is not that long.
+	 *
+	 * @param i the index from the head - 0 for the head
+	 * @return the e
+	 */
+	public E peek(int i) {
+		if (i >= size())
+			return null;
+		return (ring != null) ? ringGet(i) : queue.get(i);
+	}
+	
+	/**
+	 * Removes the given element from wherever it is in the queue - the entries
+	 * behind it move up one place.
+	 *
+	 * @param o the element to remove, compared by identity
+	 * @return true, if the element was in the queue
+	 */
+	public boolean remove(E o) {
+		if (ring == null) {
+			for (ListIterator<E> list = queue.listIterator(); list.hasNext();) {
+				if (list.next() == o) {
+					list.remove();
+					return true;
+				}
+			}
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			if (ringGet(i) == o) {
+				int index = head + i;
+				for (; i < count - 1; i++, index++) {
+					int from = index + 1;
+					if (index >= ring.length) index -= ring.length;
+					if (from >= ring.length) from -= ring.length;
+					ring[index] = ring[from];
+				}
+				if (index >= ring.length) index -= ring.length;
+				ring[index] = null;
+				count--;
+				return true;
+			}
+		}
+		return false;
 	}
 	
 	/**
@@ -113,7 +253,7 @@ public class GenericQueue<E> {
 	 * @return true, if is empty
 	 */
 	public boolean isEmpty() {
-		return (queue.isEmpty());
+		return (ring != null) ? count == 0 : queue.isEmpty();
 	}
 	
 	/**
@@ -122,7 +262,7 @@ public class GenericQueue<E> {
 	 * @return the int
 	 */
 	public int size() {
-		return (queue.size());
+		return (ring != null) ? count : queue.size();
 	}
 	
 	/**
@@ -132,7 +272,7 @@ public class GenericQueue<E> {
 	 * @return the list iterator
 	 */
 	public ListIterator<E> getListIterator() {
-		return queue.listIterator(0);
+		return (ring != null) ? new RingIterator() : queue.listIterator(0);
 	}
 	
 	/**
@@ -143,7 +283,7 @@ public class GenericQueue<E> {
 	@Override
 	public String toString() {
 		String str = "queue: [";
-		ListIterator<E> list = queue.listIterator(0);
+		ListIterator<E> list = getListIterator();
 		if (list != null) {
 			while (list.hasNext()) {
 				str += list.next();
@@ -153,5 +293,64 @@ public class GenericQueue<E> {
 		str += "]";
 		return str;
 	}
+	
+	/**
+	 * The Class RingIterator. A read-only ListIterator over the ring buffer,
+	 * from head to tail.
+	 */
+	private class RingIterator implements ListIterator<E> {
+		
+		/** The index from the head of the next element. */
+		private int next = 0;
+
+		@Override
+		public boolean hasNext() {
+			return next < count;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return ringGet(next++);
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			return next > 0;
+		}
+
+		@Override
+		public E previous() {
+			if (!hasPrevious())
+				throw new NoSuchElementException();
+			return ringGet(--next);
+		}
+
+		@Override
+		public int nextIndex() {
+			return next;
+		}
+
+		@Override
+		public int previousIndex() {
+			return next - 1;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void set(E e) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void add(E e) {
+			throw new UnsupportedOperationException();
+		}
+	}
 
 }
@@ -0,0 +1,166 @@
+package statehash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import myfileio.MyFileIO;
+
+/**
+ * The Class StateHashCompare. Compares the state hash streams of two runs,
+ * written by StateHashWriter, and finds the first tick at which they
+ * differ. The hashes are rolling, so the runs are identical up to that tick
+ * and differ from then on. The records have a fixed size, so the streams
+ * are compared a buffer at a time as plain bytes, and only the record with
+ * the first differing byte is decoded.
+ *
+ * Usage: java statehash.StateHashCompare expected.shash actual.shash
+ */
+public class StateHashCompare {
+
+	/** The result when the streams are identical. */
+	public static final int SAME = -1;
+
+	/** The size of the read buffers in bytes - a whole number of records. */
+	private static final int BUFFER_SIZE = StateHashWriter.RECORD_SIZE << 14;
+
+	/** The number of identical records the last compare found. */
+	private long recordsCompared;
+
+	/** The message describing the result. */
+	private String message = "";
+
+	/**
+	 * Compare two state hash streams.
+	 *
+	 * @param expected the expected stream
+	 * @param actual the actual stream
+	 * @return the first tick the runs differ at, or SAME
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public int compare(String expected, String actual) throws IOException {
+		recordsCompared = 0;
+		MyFileIO fio = new MyFileIO();
+		try (FileChannel e = FileChannel.open(fio.getFileHandle(expected).toPath(), StandardOpenOption.READ);
+		     FileChannel a = FileChannel.open(fio.getFileHandle(actual).toPath(), StandardOpenOption.READ)) {
+			ByteBuffer eb = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			ByteBuffer ab = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			readHeader(e, eb, expected);
+			readHeader(a, ab, actual);
+			long lastHash = 0;
+			while (true) {
+				int eLen = read(e, eb, expected);
+				int aLen = read(a, ab, actual);
+				int len = Math.min(eLen, aLen);
+				eb.limit(len);
+				ab.limit(len);
+				int i = eb.mismatch(ab);
+				if (i >= 0) {
+					int r = i - i % StateHashWriter.RECORD_SIZE;
+					int eTick = eb.getInt(r), aTick = ab.getInt(r);
+					recordsCompared += r / StateHashWriter.RECORD_SIZE;
+					if (eTick != aTick) {
+						message = "Differ at tick "+Math.min(eTick, aTick)+": only "+(eTick < aTick ? expected : actual)+
+						          " changed state in it, after "+recordsCompared+" identical records";
+						return Math.min(eTick, aTick);
+					}
+					message = "Differ at tick "+eTick+" after "+recordsCompared+" identical records";
+					return eTick;
+				}
+				recordsCompared += len / StateHashWriter.RECORD_SIZE;
+				if (len > 0) lastHash = eb.getLong(len - 8);
+				if (eLen != aLen) {
+					ByteBuffer longer = (eLen > aLen) ? eb : ab;
+					int tick = longer.limit(len + 4).getInt(len);
+					message = "Differ at tick "+tick+": "+(eLen > aLen ? actual : expected)+" ends after "+recordsCompared+
+					          " identical records";
+					return tick;
+				}
+				if (len == 0) {
+					message = "Identical: "+recordsCompared+" records, digest "+Long.toHexString(lastHash);
+					return SAME;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read header. Checks the magic and version of a stream.
+	 *
+	 * @param in the channel
+	 * @param buf a buffer to read the header into
+	 * @param filename the file name
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void readHeader(FileChannel in, ByteBuffer buf, String filename) throws IOException {
+		buf.clear().limit(StateHashWriter.HEADER_SIZE);
+		while (buf.hasRemaining() && in.read(buf) >= 0);
+		if (buf.hasRemaining() || buf.getInt(0) != StateHashWriter.MAGIC) {
+			throw new IllegalArgumentException(filename+" is not a state hash stream");
+		}
+		int version = buf.getInt(4);
+		if (version != StateHashWriter.VERSION) {
+			throw new IllegalArgumentException(filename+" has unsupported state hash version "+version);
+		}
+	}
+
+	/**
+	 * Read. Fills a buffer with the next records of a stream.
+	 *
+	 * @param in the channel
+	 * @param buf the buffer - left at position 0
+	 * @param filename the file name
+	 * @return the number of bytes read, a whole number of records
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private int read(FileChannel in, ByteBuffer buf, String filename) throws IOException {
+		buf.clear();
+		while (buf.hasRemaining() && in.read(buf) >= 0);
+		int len = buf.position();
+		if (len % StateHashWriter.RECORD_SIZE != 0) {
+			throw new IllegalArgumentException(filename+" is truncated after record "+
+			                                   (recordsCompared + len / StateHashWriter.RECORD_SIZE));
+		}
+		buf.position(0);
+		return len;
+	}
+
+	/**
+	 * Gets the message describing the result of the last compare.
+	 *
+	 * @return the message
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Gets the number of identical records the last compare found.
+	 *
+	 * @return the records compared
+	 */
+	public long getRecordsCompared() {
+		return recordsCompared;
+	}
+
+	/**
+	 * The main method. Compares two state hash streams.
+	 *
+	 * @param args the expected and actual streams
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: java statehash.StateHashCompare expected.shash actual.shash");
+			return;
+		}
+		StateHashCompare cmp = new StateHashCompare();
+		try {
+			cmp.compare(args[0], args[1]);
+			System.out.println(cmp.getMessage());
+		} catch (IOException e) {
+			System.err.println("Error in reading file: "+args[0]+" or "+args[1]);
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package statehash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import myfileio.MyFileIO;
+
+/**
+ * The Class StateHashWriter. Writes the state hash stream of a run: after
+ * every simulated tick the Building hashes the state of its elevators and
+ * floor queues, and whenever that hash changes, folds it and the tick into a
+ * rolling 64-bit hash which the writer records. Ticks in which nothing
+ * changed are left out, so an idle building writes nothing. Two runs are the
+ * same up to the first record their streams differ in, so StateHashCompare
+ * can find the first tick two runs differ at without any text logs. The
+ * hash of the last record is the digest of the run.
+ *
+ * The file starts with the magic "SHSH" and a version int. Every record is
+ * 12 bytes - the tick (int) and the rolling hash (long), big-endian - so
+ * two streams can be compared as plain bytes. A run is only comparable to
+ * runs made with the same time skip setting, because the skipped ticks are
+ * never hashed.
+ */
+public class StateHashWriter {
+
+	/** The magic number at the start of every state hash stream. */
+	static final int MAGIC = ('S' << 24) | ('H' << 16) | ('S' << 8) | 'H';
+
+	/** The format version. */
+	static final int VERSION = 1;
+
+	/** The size of the header in bytes. */
+	static final int HEADER_SIZE = 8;
+
+	/** The size of a record in bytes. */
+	static final int RECORD_SIZE = 4 + 8;
+
+	/** The file name extension of state hash streams. */
+	public static final String EXTENSION = ".shash";
+
+	/** The size of the write buffer in bytes. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The fio. */
+	private MyFileIO fio = new MyFileIO();
+
+	/** The file. */
+	private final String filename;
+
+	/** The channel - null if the file could not be opened or has been closed. */
+	private FileChannel out;
+
+	/** The write buffer. */
+	private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/** The hash of the last record. */
+	private long digest;
+
+	/** The number of records written. */
+	private long count;
+
+	/**
+	 * Instantiates a new state hash writer, creating (or truncating) the file.
+	 *
+	 * @param filename the file to write
+	 */
+	public StateHashWriter(String filename) {
+		this.filename = filename;
+		try {
+			out = FileChannel.open(fio.getFileHandle(filename).toPath(), StandardOpenOption.WRITE,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			buf.putInt(MAGIC).putInt(VERSION);
+		} catch (IOException e) {
+			System.err.println("Error in writing file: "+filename);
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Mix. Scrambles the bits of a long so that every input bit affects every
+	 * output bit (the splitmix64 finalizer).
+	 *
+	 * @param z the value
+	 * @return the mixed value
+	 */
+	public static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Record the rolling hash after a tick in which the state changed.
+	 *
+	 * @param tick the tick
+	 * @param hash the rolling hash after the tick
+	 */
+	public void record(int tick, long hash) {
+		digest = hash;
+		count++;
+		if (out == null) return;
+		if (buf.remaining() < RECORD_SIZE) drain();
+		buf.putInt(tick).putLong(hash);
+	}
+
+	/**
+	 * Gets the digest - the rolling hash of the last tick recorded.
+	 *
+	 * @return the digest
+	 */
+	public long getDigest() {
+		return digest;
+	}
+
+	/**
+	 * Gets the number of records - the ticks in which the state changed.
+	 *
+	 * @return the count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Drain. Writes the buffered records to the channel.
+	 */
+	private void drain() {
+		buf.flip();
+		try {
+			while (buf.hasRemaining()) out.write(buf);
+		} catch (IOException e) {
+			System.err.println("Error in writing file: "+filename);
+			e.printStackTrace();
+		}
+		buf.clear();
+	}
+
+	/**
+	 * Flush the records written so far to the file.
+	 */
+	public void flush() {
+		if (out == null) return;
+		drain();
+	}
+
+	/**
+	 * Close the file. Records after this are still folded into the digest,
+	 * but not written.
+	 */
+	public void close() {
+		if (out == null) return;
+		drain();
+		try {
+			out.close();
+		} catch (IOException e) {
+			System.err.println("Error in closing file: "+filename);
+			e.printStackTrace();
+		}
+		out = null;
+	}
+}
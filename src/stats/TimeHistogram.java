@@ -0,0 +1,250 @@
+package stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The Class TimeHistogram. Counts times (in ticks) in log-linear buckets, in
+ * the style of an HDR histogram: every power of 2 is split into SUB_BUCKETS
+ * equal buckets, so a time is known to within 1% whatever its size, while
+ * times below 2*SUB_BUCKETS are counted exactly. The memory is fixed at
+ * construction, however many times are recorded, and the counts can be
+ * queried at any point of a run.
+ *
+ * Each time is recorded with a weight - the number of passengers in the group
+ * - so percentiles are taken over passengers, not groups.
+ */
+public class TimeHistogram {
+
+	/** log2 of the number of buckets each power of 2 is split into. */
+	private static final int SUB_BITS = 7;
+
+	/** The number of buckets each power of 2 is split into. */
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	/** The name of the histogram. */
+	private final String name;
+
+	/** The weighted count in each bucket. */
+	private final long[] counts = new long[bucketIndex(Integer.MAX_VALUE) + 1];
+
+	/** The total weight of all recorded times. */
+	private long totalCount;
+
+	/** The sum of the recorded times, times their weights. */
+	private long totalTime;
+
+	/** The smallest and largest recorded times. */
+	private int min = Integer.MAX_VALUE;
+	private int max = -1;
+
+	/**
+	 * Instantiates a new time histogram.
+	 *
+	 * @param name the name of the histogram
+	 */
+	public TimeHistogram(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Bucket index. Gets the bucket a time is counted in.
+	 *
+	 * @param time the time, not negative
+	 * @return the bucket index
+	 */
+	private static int bucketIndex(int time) {
+		int msb = 31 - Integer.numberOfLeadingZeros(time);
+		if (msb <= SUB_BITS) return time;
+		int shift = msb - SUB_BITS;
+		return (shift << SUB_BITS) + (time >>> shift);
+	}
+
+	/**
+	 * Lowest time. Gets the smallest time counted in a bucket.
+	 *
+	 * @param index the bucket index
+	 * @return the lowest time of the bucket
+	 */
+	private static long lowestTime(int index) {
+		if (index < 2 * SUB_BUCKETS) return index;
+		int shift = (index >>> SUB_BITS) - 1;
+		return (long) (index - (shift << SUB_BITS)) << shift;
+	}
+
+	/**
+	 * Highest time. Gets the largest time counted in a bucket.
+	 *
+	 * @param index the bucket index
+	 * @return the highest time of the bucket
+	 */
+	private static long highestTime(int index) {
+		if (index < 2 * SUB_BUCKETS) return index;
+		int shift = (index >>> SUB_BITS) - 1;
+		return lowestTime(index) + (1L << shift) - 1;
+	}
+
+	/**
+	 * Record a time. Negative times are counted as 0.
+	 *
+	 * @param time the time
+	 * @param weight the weight - the number of passengers
+	 */
+	public void record(int time, int weight) {
+		if (time < 0) time = 0;
+		counts[bucketIndex(time)] += weight;
+		totalCount += weight;
+		totalTime += (long) time * weight;
+		if (time < min) min = time;
+		if (time > max) max = time;
+	}
+
+	/**
+	 * Reset. Forgets all recorded times.
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		totalCount = 0;
+		totalTime = 0;
+		min = Integer.MAX_VALUE;
+		max = -1;
+	}
+
+	/**
+	 * Write. Writes the recorded times - only the buckets in use - so the
+	 * histogram can be restored with read.
+	 *
+	 * @param out the output
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeLong(totalCount);
+		out.writeLong(totalTime);
+		out.writeInt(min);
+		out.writeInt(max);
+		int used = 0;
+		for (long c : counts) {
+			if (c != 0) used++;
+		}
+		out.writeInt(used);
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				out.writeInt(i);
+				out.writeLong(counts[i]);
+			}
+		}
+	}
+
+	/**
+	 * Read. Replaces the recorded times with those written by write.
+	 *
+	 * @param in the input
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void read(DataInput in) throws IOException {
+		reset();
+		totalCount = in.readLong();
+		totalTime = in.readLong();
+		min = in.readInt();
+		max = in.readInt();
+		for (int n = in.readInt(); n > 0; n--) {
+			int i = in.readInt();
+			if (i < 0 || i >= counts.length) throw new IllegalArgumentException("Bad histogram bucket: "+i);
+			counts[i] = in.readLong();
+		}
+	}
+
+	/**
+	 * Gets the name.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the total weight of the recorded times.
+	 *
+	 * @return the count
+	 */
+	public long getCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Gets the weighted mean of the recorded times.
+	 *
+	 * @return the mean, or 0 if nothing was recorded
+	 */
+	public double getMean() {
+		return (totalCount == 0) ? 0 : (double) totalTime / totalCount;
+	}
+
+	/**
+	 * Gets the smallest recorded time.
+	 *
+	 * @return the min, or 0 if nothing was recorded
+	 */
+	public int getMin() {
+		return (totalCount == 0) ? 0 : min;
+	}
+
+	/**
+	 * Gets the largest recorded time.
+	 *
+	 * @return the max, or 0 if nothing was recorded
+	 */
+	public int getMax() {
+		return (totalCount == 0) ? 0 : max;
+	}
+
+	/**
+	 * Gets a percentile - the time that the given percentage of the recorded
+	 * weight is at or below. The answer is the top of the bucket the percentile
+	 * falls in, capped at the largest recorded time.
+	 *
+	 * @param percentile the percentile, 0 to 100
+	 * @return the time, or 0 if nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		if (totalCount == 0) return 0;
+		double p = Math.min(100.0, Math.max(0.0, percentile));
+		// p * totalCount is exact for whole percentiles, where p / 100 is not - 0.07 * 100 > 7
+		long target = Math.max(1, (long) Math.ceil(p * totalCount / 100.0));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return Math.max(getMin(), Math.min(max, highestTime(i)));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Gets the header of the summary rows.
+	 *
+	 * @return the header
+	 */
+	public static String getSummaryHeader() {
+		return "Metric,Count,Mean,Min,P50,P90,P99,P99.9,Max";
+	}
+
+	/**
+	 * Gets the summary row of the histogram.
+	 *
+	 * @return the summary, formatted to match getSummaryHeader
+	 */
+	public String getSummary() {
+		return name+","+totalCount+","+String.format("%.2f", getMean())+","+getMin()+","+getPercentile(50)+","+
+		       getPercentile(90)+","+getPercentile(99)+","+getPercentile(99.9)+","+getMax();
+	}
+
+	@Override
+	public String toString() {
+		return getSummary();
+	}
+}
@@ -0,0 +1,170 @@
+package trace;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import building.Building;
+import building.PassengerSource;
+
+/**
+ * The Class BinaryPassengerSource. Streams passenger groups from a binary
+ * trace written by BinaryTrace, decoding one record each time the Building
+ * asks for the next group. A file that is not a binary trace, or is cut
+ * short, throws an IllegalArgumentException.
+ */
+public class BinaryPassengerSource implements PassengerSource {
+
+	/** The filename. */
+	private final String filename;
+
+	/** The reader - null once the trace is exhausted or closed. */
+	private ChannelReader in;
+
+	/** The number of floors the trace was written for. */
+	private int numFloors;
+
+	/** The number of records left to read. */
+	private long remaining;
+
+	/** The time of the last group read. */
+	private int prevTime;
+
+	/**
+	 * Instantiates a new binary passenger source, opening the file and reading
+	 * its header.
+	 *
+	 * @param filename the binary trace file
+	 */
+	public BinaryPassengerSource(String filename) {
+		this.filename = filename;
+		try {
+			in = new ChannelReader(filename);
+			if (readInt() != BinaryTrace.MAGIC) {
+				throw new IllegalArgumentException(filename+" is not a binary passenger trace");
+			}
+			int version = readByte();
+			if (version != BinaryTrace.VERSION) {
+				throw new IllegalArgumentException(filename+" has unsupported trace version "+version);
+			}
+			numFloors = readInt();
+			remaining = ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+		} catch (IllegalArgumentException e) {
+			close();
+			throw e;
+		} catch (IOException e) {
+			System.err.println("Error in reading file: "+filename);
+			e.printStackTrace();
+			close();
+		}
+	}
+
+	/**
+	 * Gets the number of floors the trace was written for.
+	 *
+	 * @return the number of floors
+	 */
+	public int getNumFloors() {
+		return numFloors;
+	}
+
+	@Override
+	public boolean readNext(Building building) {
+		if (in == null) return false;
+		if (remaining > 0) {
+			try {
+				int time = prevTime + BinaryTrace.unzigzag(readVarint());
+				int numPass = readVarint();
+				int floors = readVarint();
+				int wait = ((floors & BinaryTrace.HAS_WAIT) != 0) ? BinaryTrace.unzigzag(readVarint()) : BinaryTrace.DEFAULT_WAIT;
+				int pair = floors >>> 2;
+				prevTime = time;
+				remaining--;
+				building.addPassengersToQueue(time, numPass, pair / numFloors + 1, pair % numFloors + 1,
+						(floors & BinaryTrace.POLITE) != 0, wait);
+				return true;
+			} catch (IllegalArgumentException e) {
+				close();
+				throw e;
+			} catch (IOException e) {
+				System.err.println("Error in reading file: "+filename);
+				e.printStackTrace();
+			}
+		}
+		close();
+		return false;
+	}
+
+	/**
+	 * Read byte.
+	 *
+	 * @return the next byte
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private int readByte() throws IOException {
+		int b = in.next();
+		if (b < 0) throw new IllegalArgumentException(filename+" is truncated");
+		return b;
+	}
+
+	/**
+	 * Read a big-endian int.
+	 *
+	 * @return the int
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private int readInt() throws IOException {
+		return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+	}
+
+	/**
+	 * Read a varint.
+	 *
+	 * @return the value
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private int readVarint() throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = readByte();
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0 && shift < 35);
+		return value;
+	}
+
+	@Override
+	public void close() {
+		if (in == null) return;
+		try {
+			in.close();
+		} catch (IOException e) {
+			System.err.println("Error in closing file: "+filename);
+			e.printStackTrace();
+		}
+		in = null;
+	}
+
+	@Override
+	public void checkpoint(DataOutput out) throws IOException {
+		out.writeLong((in == null) ? -1 : in.position());
+		out.writeLong(remaining);
+		out.writeInt(prevTime);
+	}
+
+	@Override
+	public void restore(DataInput from) throws IOException {
+		long position = from.readLong();
+		remaining = from.readLong();
+		prevTime = from.readInt();
+		if (position < 0) {
+			close();
+		} else if (in == null) {
+			throw new IllegalStateException("Cannot restore "+filename+": the source is closed");
+		} else {
+			in.seek(position);
+		}
+	}
+}
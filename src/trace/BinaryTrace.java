@@ -0,0 +1,173 @@
+package trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import myfileio.MyFileIO;
+
+/**
+ * The Class BinaryTrace. Describes the binary passenger trace format, and
+ * converts passenger csv files to it. A binary trace holds the same groups as
+ * the csv in a fraction of the space, and reading it back needs no text
+ * parsing at all.
+ *
+ * The file starts with a header:
+ *   magic "PTRC" (4 bytes), version (1 byte), number of floors (int),
+ *   number of records (long)
+ * followed by one record per passenger group, in csv order:
+ *   time - zigzag varint of the difference to the previous group's time
+ *   numPass - varint
+ *   floors - varint of ((FromFloor-1)*numFloors + (ToFloor-1)) << 2 | flags,
+ *            where flag 1 is Polite and flag 2 means a Wait follows
+ *   wait - zigzag varint, only when it is not the default of 1000
+ * Multi-byte header fields are big-endian; varints hold 7 bits per byte,
+ * low bits first, with the high bit set on every byte but the last.
+ *
+ * Usage: java trace.BinaryTrace passCSV traceFile numFloors
+ */
+public class BinaryTrace {
+
+	/** The magic number at the start of every binary trace. */
+	static final int MAGIC = ('P' << 24) | ('T' << 16) | ('R' << 8) | 'C';
+
+	/** The format version. */
+	static final int VERSION = 1;
+
+	/** The size of the header in bytes. */
+	static final int HEADER_SIZE = 17;
+
+	/** The floors flag for a polite group. */
+	static final int POLITE = 1;
+
+	/** The floors flag for a group whose Wait is stored. */
+	static final int HAS_WAIT = 2;
+
+	/** The Wait of a group when none is given. */
+	static final int DEFAULT_WAIT = 1000;
+
+	/** The file name extension of binary traces. */
+	public static final String EXTENSION = ".ptrace";
+
+	/** The size of the write buffer in bytes. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Checks if a file holds a binary trace, going by its name.
+	 *
+	 * @param filename the filename
+	 * @return true, if the file is a binary trace
+	 */
+	public static boolean isBinaryTrace(String filename) {
+		return filename.endsWith(EXTENSION);
+	}
+
+	/**
+	 * Convert a passenger csv file to a binary trace.
+	 *
+	 * @param passCSV the passenger csv file
+	 * @param traceFile the binary trace file to write
+	 * @param numFloors the number of floors of the building the trace is for
+	 * @return the number of records written
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static long convert(String passCSV, String traceFile, int numFloors) throws IOException {
+		if (numFloors < 1) throw new IllegalArgumentException("Bad number of floors: "+numFloors);
+		MyFileIO fio = new MyFileIO();
+		CsvPassengerSource csv = new CsvPassengerSource(passCSV);
+		long count = 0;
+		try (FileChannel out = FileChannel.open(fio.getFileHandle(traceFile).toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			buf.position(HEADER_SIZE);
+			int prevTime = 0;
+			int[] row;
+			while ((row = csv.nextRow()) != null) {
+				int fromFloor = row[2], toFloor = row[3];
+				if (fromFloor < 1 || fromFloor > numFloors || toFloor < 1 || toFloor > numFloors) {
+					throw new IllegalArgumentException("Bad passenger data in "+passCSV+" line "+csv.getLineNum()+
+							": floor out of range 1-"+numFloors);
+				}
+				if (row[1] < 0) {
+					throw new IllegalArgumentException("Bad passenger data in "+passCSV+" line "+csv.getLineNum()+
+							": negative NumPass");
+				}
+				if (buf.remaining() < 4 * 5) {
+					buf.flip();
+					while (buf.hasRemaining()) out.write(buf);
+					buf.clear();
+				}
+				int flags = ((row[4] != 0) ? POLITE : 0) | ((row[5] != DEFAULT_WAIT) ? HAS_WAIT : 0);
+				putVarint(buf, zigzag(row[0] - prevTime));
+				putVarint(buf, row[1]);
+				putVarint(buf, (((fromFloor - 1) * numFloors + (toFloor - 1)) << 2) | flags);
+				if ((flags & HAS_WAIT) != 0) putVarint(buf, zigzag(row[5]));
+				prevTime = row[0];
+				count++;
+			}
+			buf.flip();
+			while (buf.hasRemaining()) out.write(buf);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).put((byte) VERSION).putInt(numFloors).putLong(count).flip();
+			long pos = 0;
+			while (header.hasRemaining()) pos += out.write(header, pos);
+		} finally {
+			csv.close();
+		}
+		return count;
+	}
+
+	/**
+	 * Put varint. Writes an int 7 bits per byte, low bits first.
+	 *
+	 * @param buf the buffer to write to
+	 * @param value the value, taken as unsigned
+	 */
+	private static void putVarint(ByteBuffer buf, int value) {
+		while ((value & ~0x7f) != 0) {
+			buf.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		buf.put((byte) value);
+	}
+
+	/**
+	 * Zigzag. Maps signed ints to unsigned so that small negatives stay short.
+	 *
+	 * @param value the value
+	 * @return the zigzag encoded value
+	 */
+	static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * Unzigzag. Reverses zigzag.
+	 *
+	 * @param value the zigzag encoded value
+	 * @return the value
+	 */
+	static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * The main method. Converts a passenger csv file to a binary trace.
+	 *
+	 * @param args the passenger csv file, the trace file and the number of floors
+	 */
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			System.err.println("Usage: java trace.BinaryTrace passCSV traceFile numFloors");
+			return;
+		}
+		try {
+			long count = convert(args[0], args[1], Integer.parseInt(args[2]));
+			System.out.println("Wrote "+count+" passenger groups to "+args[1]);
+		} catch (IOException e) {
+			System.err.println("Error in writing file: "+args[1]);
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import myfileio.MyFileIO;
+
+/**
+ * The Class ChannelReader. Reads a file a byte at a time through a FileChannel
+ * and a direct ByteBuffer that is refilled in chunks, for the trace sources
+ * that decode their input without building Strings.
+ */
+class ChannelReader {
+
+	/** The size of the read buffer in bytes. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The channel - null once closed. */
+	private FileChannel channel;
+
+	/** The read buffer - holds the bytes not yet consumed. */
+	private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/** Set when the channel has reached the end of the file. */
+	private boolean eof;
+
+	/**
+	 * Instantiates a new channel reader, opening the file.
+	 *
+	 * @param filename the filename
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	ChannelReader(String filename) throws IOException {
+		channel = FileChannel.open(new MyFileIO().getFileHandle(filename).toPath(), StandardOpenOption.READ);
+		buf.limit(0);
+	}
+
+	/**
+	 * Next. Gets the next byte of the file, refilling the buffer as needed.
+	 *
+	 * @return the next byte, or -1 at the end of the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	int next() throws IOException {
+		if (!buf.hasRemaining()) {
+			if (eof) return -1;
+			buf.clear();
+			int n;
+			while ((n = channel.read(buf)) == 0);
+			buf.flip();
+			if (n < 0) {
+				eof = true;
+				return -1;
+			}
+		}
+		return buf.get() & 0xff;
+	}
+
+	/**
+	 * Checks if the whole file has been consumed.
+	 *
+	 * @return true, if there are no bytes left
+	 */
+	boolean atEnd() {
+		return eof && !buf.hasRemaining();
+	}
+
+	/**
+	 * Position. Gets the offset in the file of the next byte next() returns.
+	 *
+	 * @return the position
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	long position() throws IOException {
+		return channel.position() - buf.remaining();
+	}
+
+	/**
+	 * Seek. Moves to an offset in the file, so that next() returns the byte there.
+	 *
+	 * @param position the position
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void seek(long position) throws IOException {
+		channel.position(position);
+		buf.limit(0);
+		eof = false;
+	}
+
+	/**
+	 * Close the channel.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void close() throws IOException {
+		if (channel == null) return;
+		channel.close();
+		channel = null;
+	}
+}
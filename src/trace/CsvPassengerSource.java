@@ -0,0 +1,251 @@
+package trace;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import building.Building;
+import building.PassengerSource;
+
+/**
+ * The Class CsvPassengerSource. Streams passenger groups from a passenger csv
+ * file (Time,NumPass,FromFloor,ToFloor,Polite,Wait), reading one line each
+ * time the Building asks for the next group. The header line and blank lines
+ * are skipped; missing Polite and Wait fields default to TRUE and 1000, and
+ * any fields after Wait are ignored. As when the line was split on commas,
+ * empty fields at the end of a line count as missing, while an empty field
+ * with more after it is an impolite Polite field, or a bad number.
+ *
+ * The file is read in chunks into a direct ByteBuffer and the fields are
+ * decoded straight from the bytes into primitives, so reading a row does not
+ * allocate anything. A row that cannot be decoded throws an
+ * IllegalArgumentException naming the file and line.
+ */
+public class CsvPassengerSource implements PassengerSource {
+
+	/** The number of fields the source decodes - the rest of a line is ignored. */
+	private static final int NUM_FIELDS = 6;
+
+	/** The index of the Polite field. */
+	private static final int POLITE = 4;
+
+	/** The filename. */
+	private final String filename;
+
+	/** The reader - null once the file is exhausted or closed. */
+	private ChannelReader in;
+
+	/** The decoded fields of the current line. */
+	private final int[] fields = new int[NUM_FIELDS];
+
+	/** The number of the line being decoded (1-based, the header is line 1). */
+	private int lineNum;
+
+	/**
+	 * Instantiates a new csv passenger source, opening the file and skipping
+	 * its header line.
+	 *
+	 * @param filename the passenger csv file
+	 */
+	public CsvPassengerSource(String filename) {
+		this.filename = filename;
+		try {
+			in = new ChannelReader(filename);
+			lineNum = 1;
+			int b;
+			while ((b = in.next()) >= 0 && b != '\n');
+		} catch (IOException e) {
+			System.err.println("Error in reading file: "+filename);
+			e.printStackTrace();
+			close();
+		}
+	}
+
+	@Override
+	public boolean readNext(Building building) {
+		if (in == null) return false;
+		try {
+			int[] row = nextRow();
+			if (row != null) {
+				building.addPassengersToQueue(row[0], row[1], row[2], row[3], row[POLITE] != 0, row[5]);
+				return true;
+			}
+		} catch (IOException e) {
+			System.err.println("Error in reading file: "+filename);
+			e.printStackTrace();
+		}
+		close();
+		return false;
+	}
+
+	/**
+	 * Next row. Decodes the next non-blank line into
+	 * Time,NumPass,FromFloor,ToFloor,Polite,Wait, with Polite as 1 or 0. The
+	 * array is reused for every row.
+	 *
+	 * @return the fields of the row, or null at the end of the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws IllegalArgumentException if the line cannot be decoded
+	 */
+	public int[] nextRow() throws IOException {
+		if (in == null) return null;
+		while (!in.atEnd()) {
+			lineNum++;
+			if (parseLine()) return fields;
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the number of the line last decoded.
+	 *
+	 * @return the line number
+	 */
+	public int getLineNum() {
+		return lineNum;
+	}
+
+	/**
+	 * Parses one line of passenger data into the fields array. Fields that are
+	 * missing from the line, or empty with nothing after them, keep their
+	 * defaults.
+	 *
+	 * @return false if the line is blank
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private boolean parseLine() throws IOException {
+		fields[0] = fields[1] = fields[2] = fields[3] = 0;
+		fields[POLITE] = 1;
+		fields[5] = 1000;
+		int b = in.next();
+		if (b == '\r') b = in.next();
+		if (b < 0 || b == '\n') return false;
+		int field = 0;
+		int firstEmpty = -1;
+		while (true) {
+			if (b < 0 || b == ',' || b == '\n' || b == '\r') {
+				if (firstEmpty < 0) firstEmpty = field;
+			} else {
+				if (firstEmpty >= 0) {
+					emptyFields(firstEmpty, field);
+					firstEmpty = -1;
+				}
+				if (field < NUM_FIELDS) {
+					b = (field == POLITE) ? parsePolite(b) : parseInt(b, field);
+				} else {
+					while (b >= 0 && b != ',' && b != '\n') b = in.next();
+				}
+			}
+			if (b == ',') {
+				field++;
+				b = in.next();
+			} else if (b < 0 || b == '\n') {
+				return true;
+			} else if (b == '\r' && ((b = in.next()) < 0 || b == '\n')) {
+				return true;
+			} else {
+				throw malformed("unexpected character '"+(char) b+"' in field "+(field+1));
+			}
+		}
+	}
+
+	/**
+	 * Empty fields. Decodes empty fields that have a non-empty field after
+	 * them on the line - the ones split(",") keeps. Empty fields at the end of
+	 * the line are dropped by split, and keep their defaults.
+	 *
+	 * @param from the first empty field
+	 * @param to the non-empty field after them
+	 */
+	private void emptyFields(int from, int to) {
+		for (int field = from; field < Math.min(to, NUM_FIELDS); field++) {
+			if (field != POLITE) throw malformed("field "+(field+1)+" is not a number");
+			fields[POLITE] = 0;
+		}
+	}
+
+	/**
+	 * Parses an integer field, as Integer.parseInt would.
+	 *
+	 * @param b the first byte of the field
+	 * @param field the index of the field
+	 * @return the byte after the field
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private int parseInt(int b, int field) throws IOException {
+		boolean neg = (b == '-');
+		if (neg || b == '+') b = in.next();
+		if (b < '0' || b > '9') throw malformed("field "+(field+1)+" is not a number");
+		long value = 0;
+		do {
+			value = value * 10 + (b - '0');
+			if (value > (long) Integer.MAX_VALUE + 1) throw malformed("field "+(field+1)+" is out of range");
+			b = in.next();
+		} while (b >= '0' && b <= '9');
+		if (neg) value = -value;
+		if (value > Integer.MAX_VALUE) throw malformed("field "+(field+1)+" is out of range");
+		fields[field] = (int) value;
+		return b;
+	}
+
+	/**
+	 * Parses the Polite field - polite only when it reads TRUE, in any case.
+	 *
+	 * @param b the first byte of the field
+	 * @return the byte after the field
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private int parsePolite(int b) throws IOException {
+		final String TRUE = "TRUE";
+		int len = 0;
+		boolean match = true;
+		while (b >= 0 && b != ',' && b != '\n' && b != '\r') {
+			match = match && len < TRUE.length() && (b & ~0x20) == TRUE.charAt(len);
+			len++;
+			b = in.next();
+		}
+		fields[POLITE] = (match && len == TRUE.length()) ? 1 : 0;
+		return b;
+	}
+
+	/**
+	 * Malformed. Builds the exception for a line that cannot be decoded.
+	 *
+	 * @param reason what is wrong with the line
+	 * @return the exception
+	 */
+	private IllegalArgumentException malformed(String reason) {
+		return new IllegalArgumentException("Bad passenger data in "+filename+" line "+lineNum+": "+reason);
+	}
+
+	@Override
+	public void close() {
+		if (in == null) return;
+		try {
+			in.close();
+		} catch (IOException e) {
+			System.err.println("Error in closing file: "+filename);
+			e.printStackTrace();
+		}
+		in = null;
+	}
+
+	@Override
+	public void checkpoint(DataOutput out) throws IOException {
+		out.writeLong((in == null) ? -1 : in.position());
+		out.writeInt(lineNum);
+	}
+
+	@Override
+	public void restore(DataInput from) throws IOException {
+		long position = from.readLong();
+		lineNum = from.readInt();
+		if (position < 0) {
+			close();
+		} else if (in == null) {
+			throw new IllegalStateException("Cannot restore "+filename+": the source is closed");
+		} else {
+			in.seek(position);
+		}
+	}
+}
@@ -0,0 +1,471 @@
+package traffic;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import building.Building;
+import building.PassengerSource;
+import myfileio.MyFileIO;
+
+/**
+ * The Class TrafficGenerator. Generates a seeded, repeatable stream of
+ * passenger groups, so traces of any length can be produced without writing
+ * them by hand. The groups are made one at a time and never stored, so a
+ * generator can feed a Building directly as its PassengerSource, or write
+ * the Passengers csv (Time,NumPass,FromFloor,ToFloor,Polite,Wait) for
+ * hundreds of millions of groups in constant memory.
+ *
+ * Groups arrive as a Poisson process - the gaps between them are exponential
+ * with the given mean - and the profile picks their floors:
+ *   POISSON   - from and to any two different floors
+ *   UP_PEAK   - mostly from the lobby (floor 1) up to the other floors
+ *   LUNCH     - as many from the lobby as down to it, with some interfloor
+ *   DOWN_PEAK - mostly from the other floors down to the lobby
+ * The group sizes, the share of polite groups and the range of wait times
+ * can be set before the first group is generated. The same seed and settings
+ * always give the same groups.
+ *
+ * The floor queues grow as the groups pile up, so a mean gap too short for
+ * the elevators to keep up only makes the waits long.
+ *
+ * Usage: java traffic.TrafficGenerator profile numFloors numGroups meanGap seed passCSV
+ */
+public class TrafficGenerator implements PassengerSource {
+
+	/** The traffic profiles. */
+	public static final int POISSON = 0;
+	public static final int UP_PEAK = 1;
+	public static final int LUNCH = 2;
+	public static final int DOWN_PEAK = 3;
+
+	/** The names of the profiles, as given in the configuration. */
+	private static final String[] PROFILE_NAMES = {"POISSON", "UPPEAK", "LUNCH", "DOWNPEAK"};
+
+	/** The share of groups that travel to or from the lobby in the peak profiles. */
+	private static final double PEAK_SHARE = 0.85;
+
+	/** The share of groups that go up from the lobby at lunch - as many come down to it. */
+	private static final double LUNCH_SHARE = 0.4;
+
+	/** The time of the first possible arrival. */
+	private static final int START_TIME = 10;
+
+	/** The size of the write buffer in bytes. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The most bytes a row can take - 5 ints, TRUE or FALSE, 5 commas and the newline. */
+	private static final int MAX_ROW = 5 * 11 + 5 + 6;
+
+	/** The header of the Passengers csv. */
+	private static final String HEADER = "Time,NumPass,FromFloor,ToFloor,Polite,Wait\n";
+
+	/** The number of floors. */
+	private final int numFloors;
+
+	/** The profile. */
+	private final int profile;
+
+	/** The number of groups to generate. */
+	private final long numGroups;
+
+	/** The mean number of ticks between groups. */
+	private final double meanGap;
+
+	/** The seed. */
+	private final long seed;
+
+	/** The state of the random number generator - a splitmix64 counter. */
+	private long rngState;
+
+	/** The cumulative weights of the group sizes 1, 2, ... - the last is 1. */
+	private double[] groupSizes = {0.5, 0.75, 0.9, 1.0};
+
+	/** The share of polite groups. */
+	private double politeShare = 0.5;
+
+	/** The shortest and longest time a group waits before giving up. */
+	private int minWait = 300;
+	private int maxWait = 1000;
+
+	/** The number of groups generated so far. */
+	private long generated;
+
+	/** The arrival time of the last group, in fractional ticks. */
+	private double clock = START_TIME;
+
+	/** The last group generated - floors are 1-based, as in the csv. */
+	private int time;
+	private int numPass;
+	private int fromFloor;
+	private int toFloor;
+	private boolean polite;
+	private int wait;
+
+	/**
+	 * Instantiates a new traffic generator.
+	 *
+	 * @param profile the profile - POISSON, UP_PEAK, LUNCH or DOWN_PEAK
+	 * @param numFloors the number of floors, at least 2
+	 * @param numGroups the number of groups to generate
+	 * @param meanGap the mean number of ticks between groups
+	 * @param seed the seed
+	 */
+	public TrafficGenerator(int profile, int numFloors, long numGroups, double meanGap, long seed) {
+		if (profile < POISSON || profile > DOWN_PEAK) throw new IllegalArgumentException("Bad traffic profile: "+profile);
+		if (numFloors < 2) throw new IllegalArgumentException("Bad number of floors: "+numFloors);
+		if (numGroups < 0) throw new IllegalArgumentException("Bad number of groups: "+numGroups);
+		if (!(meanGap > 0)) throw new IllegalArgumentException("Bad mean gap: "+meanGap);
+		this.profile = profile;
+		this.numFloors = numFloors;
+		this.numGroups = numGroups;
+		this.meanGap = meanGap;
+		this.seed = seed;
+		rngState = seed;
+	}
+
+	/**
+	 * Parses the name of a profile.
+	 *
+	 * @param name the name - POISSON, UPPEAK, LUNCH or DOWNPEAK, in any case and
+	 *        with or without an underscore, as UP_PEAK
+	 * @return the profile
+	 */
+	public static int parseProfile(String name) {
+		String bare = name.replace("_", "");
+		for (int i = 0; i < PROFILE_NAMES.length; i++) {
+			if (PROFILE_NAMES[i].equalsIgnoreCase(bare)) return i;
+		}
+		throw new IllegalArgumentException("Bad traffic profile: "+name);
+	}
+
+	/**
+	 * Gets the name of the traffic - the profile, floors, groups and seed -
+	 * used to name the log files of a generated run.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return "Traffic-"+PROFILE_NAMES[profile]+"-"+numFloors+"-"+numGroups+"-"+seed;
+	}
+
+	/**
+	 * Sets the relative weights of the group sizes 1, 2, ... weights.length.
+	 *
+	 * @param weights the weights, not negative and not all 0
+	 */
+	public void setGroupSizes(double... weights) {
+		double total = 0;
+		for (double w : weights) {
+			if (!(w >= 0)) throw new IllegalArgumentException("Bad group size weight: "+w);
+			total += w;
+		}
+		if (!(total > 0)) throw new IllegalArgumentException("No group size has any weight");
+		double[] cumulative = new double[weights.length];
+		double sum = 0;
+		for (int i = 0; i < weights.length; i++) {
+			sum += weights[i];
+			cumulative[i] = sum / total;
+		}
+		cumulative[weights.length - 1] = 1.0;
+		groupSizes = cumulative;
+	}
+
+	/**
+	 * Sets the share of polite groups.
+	 *
+	 * @param share the share, 0 to 1
+	 */
+	public void setPoliteShare(double share) {
+		if (!(share >= 0 && share <= 1)) throw new IllegalArgumentException("Bad polite share: "+share);
+		politeShare = share;
+	}
+
+	/**
+	 * Sets the range of the wait times - each group waits a time drawn
+	 * uniformly from minWait to maxWait before giving up.
+	 *
+	 * @param minWait the shortest wait
+	 * @param maxWait the longest wait
+	 */
+	public void setWaitRange(int minWait, int maxWait) {
+		if (minWait < 0 || maxWait < minWait) throw new IllegalArgumentException("Bad wait range: "+minWait+"-"+maxWait);
+		this.minWait = minWait;
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * Generate the next group. Its fields can then be read with the getters.
+	 * The stream also ends early if the next arrival would not fit an int.
+	 *
+	 * @return false if all the groups have been generated
+	 */
+	public boolean next() {
+		if (generated >= numGroups) return false;
+		double nextClock = clock - Math.log(1.0 - nextDouble()) * meanGap;
+		if (nextClock >= Integer.MAX_VALUE) {
+			generated = numGroups;
+			return false;
+		}
+		clock = nextClock;
+		time = (int) clock;
+		numPass = pickGroupSize();
+		pickFloors();
+		polite = nextDouble() < politeShare;
+		wait = (minWait == maxWait) ? minWait : minWait + nextInt(maxWait - minWait + 1);
+		generated++;
+		return true;
+	}
+
+	/**
+	 * Next long. Steps the splitmix64 generator.
+	 *
+	 * @return the next random long
+	 */
+	private long nextLong() {
+		long z = (rngState += 0x9e3779b97f4a7c15L);
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Next double.
+	 *
+	 * @return a random double from 0 (inclusive) to 1 (exclusive)
+	 */
+	private double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Next int.
+	 *
+	 * @param bound the bound, positive
+	 * @return a random int from 0 to bound-1
+	 */
+	private int nextInt(int bound) {
+		return (int) (((nextLong() >>> 32) * bound) >>> 32);
+	}
+
+	/**
+	 * Pick a group size from the group size weights.
+	 *
+	 * @return the group size
+	 */
+	private int pickGroupSize() {
+		double u = nextDouble();
+		int i = 0;
+		while (u >= groupSizes[i]) i++;
+		return i + 1;
+	}
+
+	/**
+	 * Pick the from and to floors of a group for the profile.
+	 */
+	private void pickFloors() {
+		double u = nextDouble();
+		switch (profile) {
+			case UP_PEAK:
+				if (u < PEAK_SHARE) {
+					fromFloor = 1;
+					toFloor = 2 + nextInt(numFloors - 1);
+					return;
+				}
+				break;
+			case DOWN_PEAK:
+				if (u < PEAK_SHARE) {
+					fromFloor = 2 + nextInt(numFloors - 1);
+					toFloor = 1;
+					return;
+				}
+				break;
+			case LUNCH:
+				if (u < LUNCH_SHARE) {
+					fromFloor = 1;
+					toFloor = 2 + nextInt(numFloors - 1);
+					return;
+				} else if (u < 2 * LUNCH_SHARE) {
+					fromFloor = 2 + nextInt(numFloors - 1);
+					toFloor = 1;
+					return;
+				}
+				break;
+		}
+		fromFloor = 1 + nextInt(numFloors);
+		toFloor = 1 + (fromFloor + nextInt(numFloors - 1)) % numFloors;
+	}
+
+	/**
+	 * Gets the time of the last group.
+	 *
+	 * @return the time
+	 */
+	public int getTime() {
+		return time;
+	}
+
+	/**
+	 * Gets the number of passengers in the last group.
+	 *
+	 * @return the num pass
+	 */
+	public int getNumPass() {
+		return numPass;
+	}
+
+	/**
+	 * Gets the floor the last group calls from (1-based).
+	 *
+	 * @return the from floor
+	 */
+	public int getFromFloor() {
+		return fromFloor;
+	}
+
+	/**
+	 * Gets the floor the last group goes to (1-based).
+	 *
+	 * @return the to floor
+	 */
+	public int getToFloor() {
+		return toFloor;
+	}
+
+	/**
+	 * Checks if the last group is polite.
+	 *
+	 * @return true, if polite
+	 */
+	public boolean isPolite() {
+		return polite;
+	}
+
+	/**
+	 * Gets the time the last group waits before giving up.
+	 *
+	 * @return the wait
+	 */
+	public int getWait() {
+		return wait;
+	}
+
+	/**
+	 * Gets the number of groups generated so far.
+	 *
+	 * @return the number of groups
+	 */
+	public long getGenerated() {
+		return generated;
+	}
+
+	@Override
+	public boolean readNext(Building building) {
+		if (!next()) return false;
+		building.addPassengersToQueue(time, numPass, fromFloor, toFloor, polite, wait);
+		return true;
+	}
+
+	@Override
+	public void close() {
+		generated = numGroups;
+	}
+
+	@Override
+	public void checkpoint(DataOutput out) throws IOException {
+		out.writeLong(generated);
+		out.writeDouble(clock);
+		out.writeLong(rngState);
+	}
+
+	@Override
+	public void restore(DataInput in) throws IOException {
+		generated = in.readLong();
+		clock = in.readDouble();
+		rngState = in.readLong();
+	}
+
+	/**
+	 * Write the rest of the groups to a Passengers csv file.
+	 *
+	 * @param passCSV the file to write
+	 * @return the number of groups written
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public long writeCsv(String passCSV) throws IOException {
+		long count = 0;
+		try (FileChannel out = FileChannel.open(new MyFileIO().getFileHandle(passCSV).toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			for (int i = 0; i < HEADER.length(); i++) buf.put((byte) HEADER.charAt(i));
+			while (next()) {
+				if (buf.remaining() < MAX_ROW) drain(out, buf);
+				putInt(buf, time);
+				buf.put((byte) ',');
+				putInt(buf, numPass);
+				buf.put((byte) ',');
+				putInt(buf, fromFloor);
+				buf.put((byte) ',');
+				putInt(buf, toFloor);
+				buf.put((byte) ',');
+				String p = polite ? "TRUE," : "FALSE,";
+				for (int i = 0; i < p.length(); i++) buf.put((byte) p.charAt(i));
+				putInt(buf, wait);
+				buf.put((byte) '\n');
+				count++;
+			}
+			drain(out, buf);
+		}
+		return count;
+	}
+
+	/**
+	 * Drain. Writes a buffer to a channel.
+	 *
+	 * @param out the channel
+	 * @param buf the buffer
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void drain(FileChannel out, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) out.write(buf);
+		buf.clear();
+	}
+
+	/**
+	 * Put a non-negative int into a buffer as decimal digits.
+	 *
+	 * @param buf the buffer
+	 * @param value the value
+	 */
+	private static void putInt(ByteBuffer buf, int value) {
+		int div = 1;
+		while (div <= value / 10) div *= 10;
+		for (; div > 0; div /= 10) {
+			buf.put((byte) ('0' + (value / div) % 10));
+		}
+	}
+
+	/**
+	 * The main method. Writes generated traffic to a Passengers csv file.
+	 *
+	 * @param args the profile, number of floors, number of groups, mean gap, seed and csv file
+	 */
+	public static void main(String[] args) {
+		if (args.length < 6) {
+			System.err.println("Usage: java traffic.TrafficGenerator profile numFloors numGroups meanGap seed passCSV");
+			return;
+		}
+		TrafficGenerator gen = new TrafficGenerator(parseProfile(args[0]), Integer.parseInt(args[1]),
+				Long.parseLong(args[2]), Double.parseDouble(args[3]), Long.parseLong(args[4]));
+		try {
+			System.out.println("Wrote "+gen.writeCsv(args[5])+" groups to "+args[5]);
+		} catch (IOException e) {
+			System.err.println("Error in writing file: "+args[5]);
+			e.printStackTrace();
+		}
+	}
+}